@@ -0,0 +1,28 @@
+# We assume we're in the project root directory
+
+[bool]$build = $true
+[string]$mainclass = 'wpilogviewer.bench.Bench'
+[string[]]$programargs = @()
+
+for ([int]$i = 0; $i -lt $ARGS.Length; ++$i) {
+	[string]$arg = $ARGS[$i]
+	if ($arg -ceq '-Sskipbuild') {
+		$build = $false
+	} elseif ($arg -ceq '-Sgenerate') {
+		$mainclass = 'wpilogviewer.bench.SyntheticLog'
+	} elseif ($arg -ceq '-Scheck') {
+		$mainclass = 'wpilogviewer.bench.Checks'
+	} elseif ($arg -clike '-S*') {
+		echo "Got unknown script argument '$arg'"
+		exit 1
+	} else {
+		$programargs = $ARGS[$i..($ARGS.Length-1)]
+		break
+	}
+}
+
+if ($build) {
+	./build -q
+}
+
+java -cp build/program.jar $mainclass $programargs
@@ -0,0 +1,457 @@
+package wpilogviewer.bench;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import wpilogviewer.Logger;
+import wpilogviewer.PrintLogger;
+import wpilogviewer.TextOutput;
+import wpilogviewer.Util;
+import wpilogviewer.WpiLogProcessor;
+import wpilogviewer.loading.Loader;
+
+// Measures the hot paths on a synthetic (or given) log; each benchmark reports time, throughput over the log's
+// bytes, and how much the benchmark thread allocated per operation
+public class Bench {
+	private static final String USAGE = "Bench [-filter <name substring>]... [-warmup <iterations>] [-iterations <iterations>] [-log <file>] [-seed <seed>] [-duration <seconds>] [-payload <array or string length>] [-topics <type>:<count>:<rate in Hz>]...";
+	private static final int LOOKUPS_PER_OP = 100_000;
+
+	private static interface Operation {
+		void run() throws Exception;
+	}
+
+	// State an operation needs, which is only set up when its benchmark runs, outside the measurement, and released
+	// right after so it doesn't weigh on the benchmarks that follow
+	private static interface Fixture extends Closeable {
+		void setUp() throws IOException;
+	}
+
+	private static class Benchmark {
+		private final String name;
+		// Bytes each operation covers, or 0 if throughput in bytes doesn't mean anything
+		private final long bytesPerOp;
+		private final Operation operation;
+
+		public Benchmark(String name, long bytesPerOp, Operation operation) {
+			this.name = name;
+			this.bytesPerOp = bytesPerOp;
+			this.operation = operation;
+		}
+	}
+
+	// A full collection with the log loaded on the heap or off it, so the pause shows what keeping the records costs
+	// the collector
+	private static class FullGc implements Operation, Fixture {
+		private Loader loader;
+
+		public FullGc(Path log, boolean offHeap) {
+			loader = new Loader(log, Loader.Verbosity.SILENT);
+			loader.setOffHeap(offHeap);
+		}
+
+		@Override
+		public void setUp() throws IOException {
+			loader.load();
+		}
+
+		@Override
+		public void run() {
+			System.gc();
+		}
+
+		@Override
+		public void close() throws IOException {
+			loader.close();
+			loader = null;
+		}
+	}
+
+	// Random timestamps across the active range of random entries, picked up front so only the lookups get measured
+	private static class Lookup implements Operation, Fixture {
+		private Loader loader;
+		private final long[] lookupIds = new long[LOOKUPS_PER_OP];
+		private final long[] lookupTimestamps = new long[LOOKUPS_PER_OP];
+
+		public Lookup(Path log, boolean offHeap) {
+			loader = new Loader(log, Loader.Verbosity.SILENT);
+			loader.setOffHeap(offHeap);
+		}
+
+		@Override
+		public void setUp() throws IOException {
+			loader.load();
+			List<Long> ids = new ArrayList<>(loader.getIds());
+			if (ids.isEmpty()) {
+				return;
+			}
+			var random = new SplittableRandom(1);
+			for (int i = 0; i < LOOKUPS_PER_OP; ++i) {
+				long id = ids.get(random.nextInt(ids.size()));
+				var starts = loader.getEntryStartTimestamps(id);
+				long start = starts.stream().min(Comparator.naturalOrder()).get();
+				var entry = loader.getEntry(id, start);
+				long end = entry.getRecordCount() == 0 ? start + 1 : entry.getRecords(Long.MIN_VALUE, Long.MAX_VALUE).get(entry.getRecordCount() - 1).getTimestamp() + 1;
+				lookupIds[i] = id;
+				lookupTimestamps[i] = start + random.nextLong(Math.max(1, end - start));
+			}
+		}
+
+		@Override
+		public void run() {
+			long sum = 0;
+			for (int i = 0; i < lookupIds.length; ++i) {
+				var entry = loader.getEntry(lookupIds[i], lookupTimestamps[i]);
+				if (entry == null) {
+					continue;
+				}
+				var record = entry.getRecord(lookupTimestamps[i]);
+				if (record != null) {
+					sum += record.getTimestamp();
+				}
+			}
+			sink += sum;
+		}
+
+		@Override
+		public void close() throws IOException {
+			loader.close();
+			loader = null;
+		}
+	}
+
+	// Ignores everything, so processing costs only what the processor itself does
+	private static class NopLogger implements Logger {
+		@Override
+		public void logStart(long entryId, String entryName, String entryType, String entryMetadata, long timestamp) {}
+
+		@Override
+		public void logFinish(long entryId, long timestamp) {}
+
+		@Override
+		public void logSetMetadata(long entryId, long timestamp, String newMetadata) {}
+
+		@Override
+		public void logValue(long entryId, long timestamp, Supplier<byte[]> payloadSupplier) {}
+	}
+
+	// Like NopLogger, but reads every payload like a real consumer would
+	private static class PayloadLogger extends NopLogger {
+		@Override
+		public void logValue(long entryId, long timestamp, Supplier<byte[]> payloadSupplier) {
+			sink += payloadSupplier.get().length;
+		}
+	}
+
+	// Results get folded into this so the JIT can't drop the work that produced them
+	private static long sink = 0;
+
+	private final PrintStream out;
+	private final com.sun.management.ThreadMXBean threadBean;
+	private final List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+	private int warmupIterations = 3;
+	private int iterations = 5;
+
+	public Bench(PrintStream out) {
+		this.out = out;
+		var bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean sunBean && sunBean.isThreadAllocatedMemorySupported()) {
+			sunBean.setThreadAllocatedMemoryEnabled(true);
+			threadBean = sunBean;
+		} else {
+			threadBean = null;
+		}
+	}
+
+	public void setWarmupIterations(int warmupIterations) {
+		this.warmupIterations = warmupIterations;
+	}
+
+	public void setIterations(int iterations) {
+		if (iterations < 1) {
+			throw new IllegalArgumentException("Need at least 1 iteration, but got " + iterations);
+		}
+		this.iterations = iterations;
+	}
+
+	private long allocatedBytes() {
+		return threadBean == null ? 0 : threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private long gcCount() {
+		long count = 0;
+		for (var bean : gcBeans) {
+			count += Math.max(0, bean.getCollectionCount());
+		}
+		return count;
+	}
+
+	private long gcMillis() {
+		long millis = 0;
+		for (var bean : gcBeans) {
+			millis += Math.max(0, bean.getCollectionTime());
+		}
+		return millis;
+	}
+
+	public void printHeader() {
+		out.printf("%-28s %12s %10s %12s %10s %14s %6s %8s%n", "benchmark", "ms/op", "+-", "ops/s", "MB/s", "alloc B/op", "gcs", "gc ms");
+	}
+
+	public void run(Benchmark benchmark) throws Exception {
+		for (int i = 0; i < warmupIterations; ++i) {
+			benchmark.operation.run();
+		}
+		double[] millis = new double[iterations];
+		long startAllocated = allocatedBytes();
+		long startGcCount = gcCount();
+		long startGcMillis = gcMillis();
+		for (int i = 0; i < iterations; ++i) {
+			long start = System.nanoTime();
+			benchmark.operation.run();
+			millis[i] = (System.nanoTime() - start) / 1e6;
+		}
+		long allocated = allocatedBytes() - startAllocated;
+		double mean = 0;
+		for (double value : millis) {
+			mean += value;
+		}
+		mean /= iterations;
+		double variance = 0;
+		for (double value : millis) {
+			variance += (value - mean) * (value - mean);
+		}
+		double deviation = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : 0;
+		String throughput = benchmark.bytesPerOp > 0 ? String.format("%.1f", benchmark.bytesPerOp / 1e6 / (mean / 1e3)) : "-";
+		String allocation = threadBean != null ? Long.toString(allocated / iterations) : "n/a";
+		out.printf("%-28s %12.3f %10.3f %12.1f %10s %14s %6d %8d%n", benchmark.name, mean, deviation, 1e3 / mean, throughput, allocation, gcCount() - startGcCount, gcMillis() - startGcMillis);
+	}
+
+	private static List<Benchmark> createBenchmarks(Path log, byte[] bytes, PrintStream nullOut) throws IOException {
+		long firstRecordOffset = WpiLogProcessor.findFirstRecordOffset(log);
+		List<Benchmark> benchmarks = new ArrayList<>();
+		benchmarks.add(new Benchmark("process.path.nop", bytes.length, () -> {
+			WpiLogProcessor.process(log, new NopLogger(), firstRecordOffset, Long.MAX_VALUE);
+		}));
+		benchmarks.add(new Benchmark("process.path.payloads", bytes.length, () -> {
+			WpiLogProcessor.process(log, new PayloadLogger(), firstRecordOffset, Long.MAX_VALUE);
+		}));
+		benchmarks.add(new Benchmark("process.stream.nop", bytes.length, () -> {
+			WpiLogProcessor.processRecords(new ByteArrayInputStream(bytes), new NopLogger());
+		}));
+		benchmarks.add(new Benchmark("load.eager", bytes.length, () -> {
+			try (var loader = new Loader(log, Loader.Verbosity.SILENT)) {
+				loader.load();
+				sink += loader.getMemoryUsage();
+			}
+		}));
+		benchmarks.add(new Benchmark("load.lazy", bytes.length, () -> {
+			try (var loader = new Loader(log, Loader.Verbosity.SILENT)) {
+				loader.setLazy(true);
+				loader.load();
+				sink += loader.getMemoryUsage();
+			}
+		}));
+		int processors = Runtime.getRuntime().availableProcessors();
+		benchmarks.add(new Benchmark("load.parallel" + processors, bytes.length, () -> {
+			try (var loader = new Loader(log, Loader.Verbosity.SILENT)) {
+				loader.setParallelism(processors);
+				loader.load();
+				sink += loader.getMemoryUsage();
+			}
+		}));
+		benchmarks.add(new Benchmark("load.stream", bytes.length, () -> {
+			try (var loader = new Loader(new ByteArrayInputStream(bytes), Loader.Verbosity.SILENT)) {
+				loader.load();
+				sink += loader.getMemoryUsage();
+			}
+		}));
+		benchmarks.add(new Benchmark("print", bytes.length, () -> {
+			WpiLogProcessor.process(log, new PrintLogger((String) null, true, true), firstRecordOffset, Long.MAX_VALUE);
+			nullOut.flush();
+		}));
+		var textOutput = new TextOutput(OutputStream.nullOutputStream(), StandardCharsets.UTF_8, false);
+		benchmarks.add(new Benchmark("print.buffered", bytes.length, () -> {
+			WpiLogProcessor.process(log, new PrintLogger(null, true, true, textOutput), firstRecordOffset, Long.MAX_VALUE);
+			textOutput.flush();
+		}));
+		// Decodes every aligned slice of the log, which is as good as any other bytes
+		long decodeBytes = bytes.length / 8 * 8;
+		benchmarks.add(new Benchmark("util.longFromBytes", decodeBytes, () -> {
+			long sum = 0;
+			for (int i = 0; i + 8 <= bytes.length; i += 8) {
+				sum += Util.longFromBytes(bytes, i, 8);
+			}
+			sink += sum;
+		}));
+		benchmarks.add(new Benchmark("util.intFromBytes", decodeBytes, () -> {
+			long sum = 0;
+			for (int i = 0; i + 4 <= bytes.length; i += 4) {
+				sum += Util.intFromBytes(bytes, i, 4);
+			}
+			sink += sum;
+		}));
+		benchmarks.add(new Benchmark("util.longAt", decodeBytes, () -> {
+			long sum = 0;
+			for (int i = 0; i + 8 <= bytes.length; i += 8) {
+				sum += Util.longAt(bytes, i);
+			}
+			sink += sum;
+		}));
+		// Slices the size of a 32 element array payload, element by element like before and in bulk
+		var slices = new byte[bytes.length / 256][];
+		for (int i = 0; i < slices.length; ++i) {
+			slices[i] = Arrays.copyOfRange(bytes, 256 * i, 256 * (i + 1));
+		}
+		benchmarks.add(new Benchmark("util.doubleArray.elements", 256L * slices.length, () -> {
+			long sum = 0;
+			for (var slice : slices) {
+				double[] value = new double[slice.length / 8];
+				for (int i = 0; i < value.length; ++i) {
+					value[i] = Double.longBitsToDouble(Util.longFromBytes(slice, 8 * i, 8));
+				}
+				sum += value.length;
+			}
+			sink += sum;
+		}));
+		benchmarks.add(new Benchmark("util.doubleArray.bulk", 256L * slices.length, () -> {
+			long sum = 0;
+			for (var slice : slices) {
+				sum += Util.doublesFromBytes(slice).length;
+			}
+			sink += sum;
+		}));
+		var booleans = new byte[bytes.length];
+		for (int i = 0; i < booleans.length; ++i) {
+			booleans[i] = (byte) (bytes[i] & 1);
+		}
+		benchmarks.add(new Benchmark("util.isBooleanArray", booleans.length, () -> {
+			sink += Util.isBooleanArray(booleans) ? 1 : 0;
+		}));
+		benchmarks.add(new Benchmark("util.utf8StringFromBytes", decodeBytes, () -> {
+			long sum = 0;
+			for (int i = 0; i + 32 <= bytes.length; i += 32) {
+				sum += Util.utf8StringFromBytes(bytes, i, 32).length();
+			}
+			sink += sum;
+		}));
+		benchmarks.add(new Benchmark("lookup.getRecord", 0, new Lookup(log, false)));
+		benchmarks.add(new Benchmark("lookup.getRecord.offHeap", 0, new Lookup(log, true)));
+		benchmarks.add(new Benchmark("gc.full.onHeap", 0, new FullGc(log, false)));
+		benchmarks.add(new Benchmark("gc.full.offHeap", 0, new FullGc(log, true)));
+		return benchmarks;
+	}
+
+	private static boolean matches(String name, List<String> filters) {
+		if (filters.isEmpty()) {
+			return true;
+		}
+		for (var filter : filters) {
+			if (name.contains(filter)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void deleteRecursively(Path path) throws IOException {
+		if (Files.isDirectory(path)) {
+			try (var children = Files.list(path)) {
+				for (var child : (Iterable<Path>) children::iterator) {
+					deleteRecursively(child);
+				}
+			}
+		}
+		Files.deleteIfExists(path);
+	}
+
+	public static void main(String[] args) throws Exception {
+		var generator = new SyntheticLog();
+		List<String> filters = new ArrayList<>();
+		var bench = new Bench(System.out);
+		Path log = null;
+		for (int i = 0; i < args.length; ++i) {
+			String arg = args[i];
+			if (arg.equals("-h")) {
+				System.out.println(USAGE);
+				return;
+			}
+			if (i + 1 == args.length) {
+				System.err.println(arg.startsWith("-") ? "Missing value for " + arg + "!" : "Unknown argument " + arg + "!");
+				return;
+			}
+			switch (arg) {
+				case "-filter" -> filters.add(args[++i]);
+				case "-warmup" -> bench.setWarmupIterations(Integer.parseInt(args[++i]));
+				case "-iterations" -> bench.setIterations(Integer.parseInt(args[++i]));
+				case "-log" -> log = Path.of(args[++i]);
+				case "-seed" -> generator.setSeed(Long.parseLong(args[++i]));
+				case "-duration" -> generator.setDuration(Double.parseDouble(args[++i]));
+				case "-payload" -> generator.setPayloadSize(Integer.parseInt(args[++i]));
+				case "-topics" -> {
+					// Types like struct:Pose2d have colons of their own, so only the last two split
+					String[] parts = args[++i].split(":(?=[^:]*(?::[^:]*)?$)");
+					if (parts.length != 3) {
+						System.err.println("Topics must look like <type>:<count>:<rate in Hz>!");
+						return;
+					}
+					generator.addTopics(parts[0], Integer.parseInt(parts[1]), Double.parseDouble(parts[2]));
+				}
+				default -> {
+					System.err.println("Unknown argument " + arg + "!");
+					return;
+				}
+			}
+		}
+		// Generated logs go in a directory that gets cleaned up
+		Path tempDirectory = null;
+		if (log == null) {
+			tempDirectory = Files.createTempDirectory("wpilogbench");
+			log = tempDirectory.resolve("synthetic.wpilog");
+			generator.write(log);
+		}
+		var originalOut = System.out;
+		// Loading and printing write to stdout, which would otherwise be measured as well as drown out the results
+		var nullOut = new PrintStream(new BufferedOutputStream(OutputStream.nullOutputStream(), 1 << 16), false);
+		try {
+			byte[] bytes = Files.readAllBytes(log);
+			originalOut.println("Log: " + log + " (" + bytes.length + " bytes)");
+			System.setOut(nullOut);
+			bench.printHeader();
+			for (var benchmark : createBenchmarks(log, bytes, nullOut)) {
+				if (!matches(benchmark.name, filters)) {
+					continue;
+				}
+				if (benchmark.operation instanceof Fixture) {
+					try (var fixture = (Fixture) benchmark.operation) {
+						fixture.setUp();
+						bench.run(benchmark);
+					}
+				} else {
+					bench.run(benchmark);
+				}
+			}
+		} finally {
+			System.setOut(originalOut);
+			if (tempDirectory != null) {
+				deleteRecursively(tempDirectory);
+			}
+		}
+		if (sink == 42) {
+			System.out.println();
+		}
+	}
+}
@@ -0,0 +1,454 @@
+package wpilogviewer.bench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import wpilogviewer.WpiLogWriter;
+import wpilogviewer.loading.Decimation;
+import wpilogviewer.loading.Entry;
+import wpilogviewer.loading.Loader;
+import wpilogviewer.loading.Record;
+
+// Loads generated logs in the ways that are meant to agree and reports where they don't; exits with status 1 if any
+// check failed
+public class Checks {
+	private static final String USAGE = "Checks [-filter <name substring>]...";
+
+	private static interface Check {
+		void run(Path directory) throws Exception;
+	}
+
+	private static class NamedCheck {
+		private final String name;
+		private final Check check;
+
+		public NamedCheck(String name, Check check) {
+			this.name = name;
+			this.check = check;
+		}
+	}
+
+	private static final List<NamedCheck> CHECKS = List.of(
+		new NamedCheck("lazy invalid payloads", Checks::checkLazyInvalidPayloads),
+		new NamedCheck("struct schemas per log", Checks::checkStructSchemasPerLog),
+		new NamedCheck("struct schema changes", Checks::checkStructSchemaChanges),
+		new NamedCheck("struct fields", Checks::checkStructFields)
+	);
+
+	public static void main(String[] args) throws IOException {
+		var filters = new ArrayList<String>();
+		for (int i = 0; i < args.length; ++i) {
+			if (args[i].equals("-filter") && i + 1 < args.length) {
+				filters.add(args[++i]);
+			} else {
+				System.err.println("Unknown argument " + args[i]);
+				System.err.println("Usage: " + USAGE);
+				System.exit(1);
+			}
+		}
+		int failed = 0;
+		var directory = Files.createTempDirectory("wpilogviewer-checks");
+		try {
+			for (var check : CHECKS) {
+				if (!filters.isEmpty() && filters.stream().noneMatch(check.name::contains)) {
+					continue;
+				}
+				try {
+					check.check.run(directory);
+					System.out.println("PASS " + check.name);
+				} catch (Exception | AssertionError e) {
+					System.out.println("FAIL " + check.name + ": " + e.getMessage());
+					++failed;
+				}
+			}
+		} finally {
+			try (var paths = Files.walk(directory)) {
+				for (var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+					Files.delete(path);
+				}
+			}
+		}
+		if (failed != 0) {
+			System.out.println(failed + " check(s) failed");
+			System.exit(1);
+		}
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+
+	private static byte[] doubles(double... values) {
+		var buffer = ByteBuffer.allocate(8 * values.length).order(ByteOrder.LITTLE_ENDIAN);
+		for (double value : values) {
+			buffer.putDouble(value);
+		}
+		return buffer.array();
+	}
+
+	private static String format(Record record) {
+		return record.getTimestamp() + " " + record.getType() + " " + formatValue(record);
+	}
+
+	private static String formatValue(Record record) {
+		return switch (record.getType()) {
+			case RAW, UNKNOWN -> Arrays.toString(record.rawValue());
+			case BOOLEAN -> String.valueOf(record.booleanValue());
+			case INT64 -> String.valueOf(record.int64Value());
+			case FLOAT -> String.valueOf(record.floatValue());
+			case DOUBLE -> String.valueOf(record.doubleValue());
+			case STRING -> record.stringValue();
+			case BOOLEAN_ARRAY -> Arrays.toString(record.booleanArrayValue());
+			case INT64_ARRAY -> Arrays.toString(record.int64ArrayValue());
+			case FLOAT_ARRAY -> Arrays.toString(record.floatArrayValue());
+			case DOUBLE_ARRAY -> Arrays.toString(record.doubleArrayValue());
+			case STRING_ARRAY -> Arrays.toString(record.stringArrayValue());
+			case STRUCT -> Arrays.stream(record.structValue()).map(Checks::formatValue).toList().toString();
+		};
+	}
+
+	private static void describeRecords(Entry entry, long[] lookupTimestamps, List<String> lines) {
+		lines.add(entry.getName() + " " + entry.getType() + ": " + entry.getRecordCount() + " records");
+		for (var record : entry.getRecords(0, Long.MAX_VALUE)) {
+			lines.add("  " + format(record));
+		}
+		for (long timestamp : lookupTimestamps) {
+			var record = entry.getRecord(timestamp);
+			lines.add("  at " + timestamp + ": " + (record == null ? "-" : format(record)));
+		}
+	}
+
+	// Every entry of the log and every field of its structs by name with its records, and what getRecord finds at each
+	// of the timestamps
+	private static List<String> describe(Loader loader, long[] lookupTimestamps) {
+		var lines = new ArrayList<String>();
+		for (long id : new TreeSet<>(loader.getIds())) {
+			for (long startTimestamp : new TreeSet<>(loader.getEntryStartTimestamps(id))) {
+				Entry entry = loader.getEntry(id, startTimestamp);
+				describeRecords(entry, lookupTimestamps, lines);
+				for (var field : entry.getFields()) {
+					describeRecords(field, lookupTimestamps, lines);
+				}
+			}
+		}
+		return lines;
+	}
+
+	// The field names and records of the entry with the name
+	private static List<String> describeStruct(Loader loader, String name) {
+		for (long id : loader.getIds()) {
+			for (long startTimestamp : loader.getEntryStartTimestamps(id)) {
+				Entry entry = loader.getEntry(id, startTimestamp);
+				if (!entry.getName().equals(name)) {
+					continue;
+				}
+				var lines = new ArrayList<String>();
+				var fieldNames = new ArrayList<String>();
+				for (var field : entry.getFields()) {
+					fieldNames.add(field.getName().substring(name.length() + 1));
+				}
+				lines.add(name + " " + fieldNames + ": " + entry.getRecordCount() + " records");
+				for (var record : entry.getRecords(0, Long.MAX_VALUE)) {
+					lines.add("  " + format(record));
+				}
+				return lines;
+			}
+		}
+		throw new AssertionError("No entry " + name);
+	}
+
+	private static List<String> load(Path path, boolean lazy, int parallelism, long[] lookupTimestamps) throws IOException {
+		try (var loader = new Loader(path, Loader.Verbosity.SILENT)) {
+			loader.setLazy(lazy);
+			loader.setParallelism(parallelism);
+			loader.load();
+			return describe(loader, lookupTimestamps);
+		}
+	}
+
+	private static void checkSame(List<String> expected, List<String> actual, String what) {
+		for (int i = 0; i < Math.min(expected.size(), actual.size()); ++i) {
+			check(expected.get(i).equals(actual.get(i)), what + " got \"" + actual.get(i) + "\" instead of \"" + expected.get(i) + "\"");
+		}
+		check(expected.size() == actual.size(), what + " got " + actual.size() + " lines instead of " + expected.size());
+	}
+
+	// Lazily loaded entries must leave out the payloads eager loading rejects for their size or their content, instead
+	// of counting them and answering lookups that land on them with the record before
+	private static void checkLazyInvalidPayloads(Path directory) throws IOException {
+		var path = directory.resolve("invalid.wpilog");
+		int count = 3000;
+		var lookupTimestamps = new ArrayList<Long>();
+		try (var writer = new WpiLogWriter(path, "")) {
+			writer.startEntry(1, "/double", "double", "", 0);
+			writer.startEntry(2, "/int64", "int64", "", 0);
+			writer.startEntry(3, "/float", "float", "", 0);
+			writer.startEntry(4, "/boolean", "boolean", "", 0);
+			writer.startEntry(5, "/double[]", "double[]", "", 0);
+			writer.startEntry(6, "/float[]", "float[]", "", 0);
+			writer.startEntry(7, "/.schema/struct:Point", "structschema", "", 0);
+			writer.appendRecord(7, 0, "double x;double y".getBytes(StandardCharsets.UTF_8));
+			writer.startEntry(8, "/point", "struct:Point", "", 0);
+			writer.startEntry(9, "/point[]", "struct:Point[]", "", 0);
+			writer.startEntry(10, "/boolean value", "boolean", "", 0);
+			writer.startEntry(11, "/boolean[]", "boolean[]", "", 0);
+			writer.startEntry(12, "/string[]", "string[]", "", 0);
+			for (int i = 0; i < count; ++i) {
+				long timestamp = 10 + 10L * i;
+				// Invalid payloads land on block boundaries and in runs, where lookups fall back the furthest
+				boolean invalid = i % 1024 == 0 || i % 7 == 3 || (i >= 2040 && i < 2060);
+				if (invalid) {
+					lookupTimestamps.add(timestamp);
+				}
+				int extra = invalid ? 3 : 0;
+				writer.appendRecord(1, timestamp, Arrays.copyOf(doubles(i), 8 + extra));
+				writer.appendRecord(2, timestamp, Arrays.copyOf(doubles(i), 8 - extra));
+				writer.appendRecord(3, timestamp, new byte[4 + extra]);
+				writer.appendRecord(4, timestamp, new byte[1 + extra]);
+				writer.appendRecord(5, timestamp, Arrays.copyOf(doubles(i, -i), 16 + extra));
+				writer.appendRecord(6, timestamp, new byte[8 + extra]);
+				writer.appendRecord(8, timestamp, Arrays.copyOf(doubles(i, 2 * i), 16 + extra));
+				writer.appendRecord(9, timestamp, Arrays.copyOf(doubles(i, 2 * i, -i, 0), 32 + extra));
+				// Right sizes, but a boolean of 2 and a string[] with one string and none in the payload
+				writer.appendRecord(10, timestamp, new byte[] {(byte) (invalid ? 2 : i % 2)});
+				writer.appendRecord(11, timestamp, new byte[] {1, 0, (byte) (invalid ? 2 : 1)});
+				writer.appendRecord(12, timestamp, invalid ? new byte[] {1, 0, 0, 0} : new byte[] {1, 0, 0, 0, 1, 0, 0, 0, 'a'});
+			}
+		}
+		long[] lookups = lookupTimestamps.stream().mapToLong(Long::longValue).toArray();
+		var eager = load(path, false, 1, lookups);
+		checkSame(eager, load(path, true, 1, lookups), "Lazy load");
+		checkSame(eager, load(path, true, 2, lookups), "Parallel lazy load");
+	}
+
+	private static void writeStructLog(Path path, String pose2dSchema, int fieldCount, int count) throws IOException {
+		try (var writer = new WpiLogWriter(path, "")) {
+			writer.startEntry(1, "/.schema/struct:Pose2d", "structschema", "", 0);
+			writer.appendRecord(1, 0, pose2dSchema.getBytes(StandardCharsets.UTF_8));
+			writer.startEntry(2, "/pose", "struct:Pose2d", "", 0);
+			for (int i = 0; i < count; ++i) {
+				double[] values = new double[fieldCount];
+				for (int j = 0; j < fieldCount; ++j) {
+					values[j] = 10 * i + j;
+				}
+				writer.appendRecord(2, 10 + 10L * i, doubles(values));
+			}
+		}
+	}
+
+	private static List<String> expectedStruct(String name, String fieldNames, int fieldCount, long[] timestamps, double[] firstValues) {
+		var lines = new ArrayList<String>();
+		lines.add(name + " " + fieldNames + ": " + timestamps.length + " records");
+		for (int i = 0; i < timestamps.length; ++i) {
+			double[] values = new double[fieldCount];
+			for (int j = 0; j < fieldCount; ++j) {
+				values[j] = firstValues[i] + j;
+			}
+			lines.add("  " + timestamps[i] + " STRUCT " + Arrays.toString(values));
+		}
+		return lines;
+	}
+
+	private static long[] timestamps(long first, long step, int count) {
+		long[] timestamps = new long[count];
+		for (int i = 0; i < count; ++i) {
+			timestamps[i] = first + step * i;
+		}
+		return timestamps;
+	}
+
+	private static double[] values(double first, double step, int count) {
+		double[] values = new double[count];
+		for (int i = 0; i < count; ++i) {
+			values[i] = first + step * i;
+		}
+		return values;
+	}
+
+	// Two logs that log different schemas under the same name must each decode with their own, however their loads and
+	// lazy decodes interleave
+	private static void checkStructSchemasPerLog(Path directory) throws IOException {
+		var firstPath = directory.resolve("pose-xy.wpilog");
+		var secondPath = directory.resolve("pose-yxz.wpilog");
+		int count = 2000;
+		writeStructLog(firstPath, "double x;double y", 2, count);
+		writeStructLog(secondPath, "double y;double x;double z", 3, count);
+		var firstExpected = expectedStruct("/pose", "[x, y]", 2, timestamps(10, 10, count), values(0, 10, count));
+		var secondExpected = expectedStruct("/pose", "[y, x, z]", 3, timestamps(10, 10, count), values(0, 10, count));
+		try (var first = new Loader(firstPath, Loader.Verbosity.SILENT); var second = new Loader(secondPath, Loader.Verbosity.SILENT)) {
+			first.setLazy(true);
+			first.load();
+			second.load();
+			// The first log's values are only decoded now, after the second log registered its schema
+			checkSame(firstExpected, describeStruct(first, "/pose"), "Lazy load of the first log");
+			checkSame(secondExpected, describeStruct(second, "/pose"), "Load of the second log");
+		}
+		try (var first = new Loader(firstPath, Loader.Verbosity.SILENT); var second = new Loader(secondPath, Loader.Verbosity.SILENT)) {
+			second.setLazy(true);
+			second.setParallelism(2);
+			second.load();
+			first.load();
+			checkSame(secondExpected, describeStruct(second, "/pose"), "Parallel lazy load of the second log");
+			checkSame(firstExpected, describeStruct(first, "/pose"), "Load of the first log after the second");
+		}
+	}
+
+	// A schema logged again with another layout only applies to entries that start after it, so the values stored
+	// before it keep their field names
+	private static void checkStructSchemaChanges(Path directory) throws IOException {
+		var path = directory.resolve("pose-change.wpilog");
+		int count = 1000;
+		try (var writer = new WpiLogWriter(path, "")) {
+			writer.startEntry(1, "/.schema/struct:Translation2d", "structschema", "", 0);
+			writer.appendRecord(1, 0, "double x;double y".getBytes(StandardCharsets.UTF_8));
+			// Starts before the schema of the struct it holds arrives
+			writer.startEntry(3, "/old", "struct:Pose2d", "", 1);
+			writer.startEntry(2, "/.schema/struct:Pose2d", "structschema", "", 2);
+			writer.appendRecord(2, 2, "Translation2d translation;double heading".getBytes(StandardCharsets.UTF_8));
+			for (int i = 0; i < count; ++i) {
+				long timestamp = 10 + 10L * i;
+				writer.appendRecord(3, timestamp, doubles(10 * i, 10 * i + 1, 10 * i + 2));
+				if (i == count / 2) {
+					writer.appendRecord(1, timestamp, "double x;double y;double z".getBytes(StandardCharsets.UTF_8));
+					writer.startEntry(4, "/new", "struct:Pose2d", "", timestamp);
+				}
+				if (i > count / 2) {
+					writer.appendRecord(4, timestamp, doubles(10 * i, 10 * i + 1, 10 * i + 2, 10 * i + 3));
+				}
+			}
+		}
+		var oldExpected = expectedStruct("/old", "[translation.x, translation.y, heading]", 3, timestamps(10, 10, count), values(0, 10, count));
+		int newCount = count - count / 2 - 1;
+		var newExpected = expectedStruct("/new", "[translation.x, translation.y, translation.z, heading]", 4, timestamps(10 + 10L * (count / 2 + 1), 10, newCount), values(10 * (count / 2 + 1), 10, newCount));
+		for (String mode : List.of("eager", "lazy", "parallel", "parallel lazy", "cache write", "cache read")) {
+			try (var loader = new Loader(path, Loader.Verbosity.SILENT)) {
+				loader.setLazy(mode.contains("lazy"));
+				loader.setParallelism(mode.contains("parallel") ? 2 : 1);
+				loader.setUseCache(mode.contains("cache"));
+				loader.load();
+				checkSame(oldExpected, describeStruct(loader, "/old"), mode + " load of the entry started before the change");
+				checkSame(newExpected, describeStruct(loader, "/new"), mode + " load of the entry started after the change");
+			}
+		}
+	}
+
+	private static final String[] OUTER_FIELDS = {"mode", "enabled", "flags", "level", "count", "big", "small", "inner.a", "inner.b", "f[0]", "f[1]"};
+	private static final String[] OUTER_TYPES = {"int64", "boolean", "int64", "int64", "int64", "int64", "int64", "double", "float", "float", "float"};
+
+	private static byte[] outer(int... samples) {
+		var buffer = ByteBuffer.allocate(41 * samples.length).order(ByteOrder.LITTLE_ENDIAN);
+		for (int i : samples) {
+			buffer.put((byte) (i % 2)).put((byte) (i % 3 == 0 ? 1 : 0)).put((byte) (i % 8 | i % 32 << 3));
+			buffer.putLong((1L << 60) + i).putLong(-1L - i).putShort((short) -i);
+			buffer.putDouble(i + 0.5).putFloat(i * 0.25f).putFloat(i).putFloat(-i);
+		}
+		return buffer.array();
+	}
+
+	// What field decodes to for sample i, as getRecord would format it
+	private static String outerValue(int field, int i) {
+		return switch (field) {
+			case 0 -> String.valueOf(i % 2);
+			case 1 -> String.valueOf(i % 3 == 0);
+			case 2 -> String.valueOf(i % 8);
+			case 3 -> String.valueOf(i % 32);
+			case 4 -> String.valueOf((1L << 60) + i);
+			case 5 -> String.valueOf(-1L - i);
+			case 6 -> String.valueOf((short) -i);
+			case 7 -> String.valueOf(i + 0.5);
+			case 8 -> String.valueOf(i * 0.25f);
+			case 9 -> String.valueOf((float) i);
+			default -> String.valueOf((float) -i);
+		};
+	}
+
+	// The records of each field of the struct entry with the name
+	private static List<String> describeFields(Loader loader, String name) {
+		for (long id : loader.getIds()) {
+			for (long startTimestamp : loader.getEntryStartTimestamps(id)) {
+				Entry entry = loader.getEntry(id, startTimestamp);
+				if (!entry.getName().equals(name)) {
+					continue;
+				}
+				var lines = new ArrayList<String>();
+				for (var field : entry.getFields()) {
+					describeRecords(field, new long[0], lines);
+				}
+				return lines;
+			}
+		}
+		throw new AssertionError("No entry " + name);
+	}
+
+	private static List<String> expectedFields(String name, boolean array, int count) {
+		var lines = new ArrayList<String>();
+		for (int field = 0; field < OUTER_FIELDS.length; ++field) {
+			String type = OUTER_TYPES[field] + (array ? "[]" : "");
+			lines.add(name + "/" + OUTER_FIELDS[field] + " " + type + ": " + count + " records");
+			String recordType = type.toUpperCase().replace("[]", "_ARRAY");
+			for (int i = 0; i < count; ++i) {
+				String value = array ? "[" + outerValue(field, i) + ", " + outerValue(field, i + 1) + "]" : outerValue(field, i);
+				lines.add("  " + (10 + 10L * i) + " " + recordType + " " + value);
+			}
+		}
+		return lines;
+	}
+
+	// Each primitive field of a struct is a series of its own type, so integers above 2^53 stay exact, bools and enums
+	// don't turn into doubles, and fields are numeric, whichever way the log is loaded
+	private static void checkStructFields(Path directory) throws IOException {
+		var path = directory.resolve("outer.wpilog");
+		int count = 3000;
+		try (var writer = new WpiLogWriter(path, "")) {
+			writer.startEntry(1, "/.schema/struct:Inner", "structschema", "", 0);
+			writer.appendRecord(1, 0, "double a;float b".getBytes(StandardCharsets.UTF_8));
+			writer.startEntry(2, "/.schema/struct:Outer", "structschema", "", 0);
+			writer.appendRecord(2, 0, "enum {off=0, on=1} int8 mode;bool enabled;uint8 flags:3;uint8 level:5;int64 count;uint64 big;int16 small;Inner inner;float f[2]".getBytes(StandardCharsets.UTF_8));
+			writer.startEntry(3, "/outer", "struct:Outer", "", 0);
+			writer.startEntry(4, "/outers", "struct:Outer[]", "", 0);
+			for (int i = 0; i < count; ++i) {
+				long timestamp = 10 + 10L * i;
+				writer.appendRecord(3, timestamp, outer(i));
+				writer.appendRecord(4, timestamp, outer(i, i + 1));
+			}
+		}
+		var outerExpected = expectedFields("/outer", false, count);
+		var outersExpected = expectedFields("/outers", true, count);
+		long[] lookups = {0, 10, 15, 10245, 10L * count + 100};
+		List<String> eager = null;
+		for (String mode : List.of("eager", "lazy", "parallel", "parallel lazy", "cache write", "cache read", "off heap", "lazy off heap", "aggregates", "lazy aggregates")) {
+			try (var loader = new Loader(path, Loader.Verbosity.SILENT)) {
+				loader.setLazy(mode.contains("lazy"));
+				loader.setParallelism(mode.contains("parallel") ? 2 : 1);
+				loader.setUseCache(mode.contains("cache"));
+				loader.setOffHeap(mode.contains("off heap"));
+				loader.setBuildAggregates(mode.contains("aggregates"));
+				loader.load();
+				checkSame(outerExpected, describeFields(loader, "/outer"), mode + " load of the struct fields");
+				checkSame(outersExpected, describeFields(loader, "/outers"), mode + " load of the struct array fields");
+				var all = describe(loader, lookups);
+				if (eager == null) {
+					eager = all;
+				} else {
+					checkSame(eager, all, mode + " load");
+				}
+				var outer = loader.getEntry(3, 0);
+				var aggregate = outer.getField("count").getAggregate(0, Long.MAX_VALUE);
+				check(aggregate.getCount() == count && aggregate.getMax() == (double) ((1L << 60) + count - 1), mode + " load got aggregate of " + aggregate.getCount() + " counts up to " + aggregate.getMax());
+				var series = outer.getField("inner.b").getSeries(0, Long.MAX_VALUE, 100, Decimation.MIN_MAX);
+				check(series.size() > 0 && series.size() <= 100, mode + " load got " + series.size() + " points of inner.b");
+				check(outer.getField("translation.x") == null, mode + " load found a field that isn't in the struct");
+			}
+		}
+	}
+}
@@ -0,0 +1,260 @@
+package wpilogviewer.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import wpilogviewer.WpiLogWriter;
+
+// Generates wpilogs with the same contents for the same settings, for benchmarks
+public class SyntheticLog {
+	private static final String USAGE = "SyntheticLog [-seed <seed>] [-duration <seconds>] [-payload <array or string length>] [-distinct <distinct strings>] [-topics <type>:<count>:<rate in Hz>]... <output file>";
+	private static final String EXTRA_HEADER = "synthetic";
+	static final String[] TYPES = { "raw", "boolean", "int64", "float", "double", "string", "json", "boolean[]", "int64[]", "float[]", "double[]", "string[]" };
+	// Struct types can be asked for too, and get these schemas logged before any topic starts
+	private static final String[][] STRUCT_SCHEMAS = {
+		{ "Translation2d", "double x;double y" },
+		{ "Rotation2d", "double value" },
+		{ "Pose2d", "Translation2d translation;Rotation2d rotation" },
+		{ "SwerveModuleState", "double speed;Rotation2d angle" },
+	};
+
+	private static class Topic {
+		private final int id;
+		private final String type;
+		// In microseconds
+		private final long period;
+		private long nextTimestamp;
+
+		public Topic(int id, String type, long period, long nextTimestamp) {
+			this.id = id;
+			this.type = type;
+			this.period = period;
+			this.nextTimestamp = nextTimestamp;
+		}
+	}
+
+	private static class TopicGroup {
+		private final String type;
+		private final int count;
+		private final double rate;
+
+		public TopicGroup(String type, int count, double rate) {
+			this.type = type;
+			this.count = count;
+			this.rate = rate;
+		}
+	}
+
+	private long seed = 1;
+	private double duration = 60;
+	private int payloadSize = 4;
+	private int distinctStrings = 16;
+	private final List<TopicGroup> topicGroups = new ArrayList<>();
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public void setDuration(double duration) {
+		this.duration = duration;
+	}
+
+	// Number of elements in arrays and characters in strings
+	public void setPayloadSize(int payloadSize) {
+		this.payloadSize = payloadSize;
+	}
+
+	// Strings and string arrays pick from this many values
+	public void setDistinctStrings(int distinctStrings) {
+		this.distinctStrings = distinctStrings;
+	}
+
+	public void addTopics(String type, int count, double rate) {
+		topicGroups.add(new TopicGroup(type, count, rate));
+	}
+
+	// One 50 Hz topic of every type, if no topics were added
+	private List<TopicGroup> getTopicGroups() {
+		if (!topicGroups.isEmpty()) {
+			return topicGroups;
+		}
+		List<TopicGroup> groups = new ArrayList<>();
+		for (var type : TYPES) {
+			groups.add(new TopicGroup(type, 1, 50));
+		}
+		return groups;
+	}
+
+	private static void writeLittleEndian(ByteArrayOutputStream output, long value, int length) {
+		for (int i = 0; i < length; ++i) {
+			output.write((int) (value >>> (8 * i)));
+		}
+	}
+
+	private static void writeString(ByteArrayOutputStream output, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeLittleEndian(output, bytes.length, 4);
+		output.write(bytes, 0, bytes.length);
+	}
+
+	private String randomString(SplittableRandom random) {
+		int index = random.nextInt(distinctStrings);
+		var builder = new StringBuilder(payloadSize);
+		builder.append(index);
+		while (builder.length() < payloadSize) {
+			builder.append((char) ('a' + (index + builder.length()) % 26));
+		}
+		return builder.toString();
+	}
+
+	private byte[] payloadFor(String type, SplittableRandom random) {
+		var payload = new ByteArrayOutputStream();
+		switch (type) {
+			case "boolean" -> payload.write(random.nextInt(2));
+			case "int64" -> writeLittleEndian(payload, random.nextLong(1000), 8);
+			case "float" -> writeLittleEndian(payload, Float.floatToIntBits((float) random.nextDouble()), 4);
+			case "double" -> writeLittleEndian(payload, Double.doubleToLongBits(random.nextDouble()), 8);
+			case "string" -> payload.writeBytes(randomString(random).getBytes(StandardCharsets.UTF_8));
+			case "json" -> payload.writeBytes(("{\"value\":\"" + randomString(random) + "\"}").getBytes(StandardCharsets.UTF_8));
+			case "boolean[]" -> {
+				for (int i = 0; i < payloadSize; ++i) {
+					payload.write(random.nextInt(2));
+				}
+			}
+			case "int64[]" -> {
+				for (int i = 0; i < payloadSize; ++i) {
+					writeLittleEndian(payload, random.nextLong(1000), 8);
+				}
+			}
+			case "float[]" -> {
+				for (int i = 0; i < payloadSize; ++i) {
+					writeLittleEndian(payload, Float.floatToIntBits((float) random.nextDouble()), 4);
+				}
+			}
+			case "double[]" -> {
+				for (int i = 0; i < payloadSize; ++i) {
+					writeLittleEndian(payload, Double.doubleToLongBits(random.nextDouble()), 8);
+				}
+			}
+			case "string[]" -> {
+				writeLittleEndian(payload, payloadSize, 4);
+				for (int i = 0; i < payloadSize; ++i) {
+					writeString(payload, randomString(random));
+				}
+			}
+			case "struct:Pose2d" -> {
+				for (int i = 0; i < 3; ++i) {
+					writeLittleEndian(payload, Double.doubleToLongBits(random.nextDouble()), 8);
+				}
+			}
+			case "struct:SwerveModuleState[]" -> {
+				for (int i = 0; i < 2 * payloadSize; ++i) {
+					writeLittleEndian(payload, Double.doubleToLongBits(random.nextDouble()), 8);
+				}
+			}
+			// Raw and anything unknown
+			default -> {
+				for (int i = 0; i < payloadSize; ++i) {
+					payload.write(random.nextInt(256));
+				}
+			}
+		}
+		return payload.toByteArray();
+	}
+
+	public void write(WpiLogWriter writer) throws IOException {
+		var random = new SplittableRandom(seed);
+		var topics = new PriorityQueue<Topic>((a, b) -> a.nextTimestamp != b.nextTimestamp ? Long.compare(a.nextTimestamp, b.nextTimestamp) : Integer.compare(a.id, b.id));
+		int id = 1;
+		if (getTopicGroups().stream().anyMatch(group -> group.type.startsWith("struct:"))) {
+			for (var schema : STRUCT_SCHEMAS) {
+				writer.startEntry(id, "/.schema/struct:" + schema[0], "structschema", "", 0);
+				writer.appendRecord(id, 0, schema[1].getBytes(StandardCharsets.UTF_8));
+				++id;
+			}
+		}
+		for (var group : getTopicGroups()) {
+			long period = Math.max(1, Math.round(1e6 / group.rate));
+			for (int i = 0; i < group.count; ++i) {
+				writer.startEntry(id, "/" + group.type + "/" + i, group.type, "", 0);
+				// Spread topics out over their period so they don't all land on the same timestamps
+				topics.add(new Topic(id, group.type, period, random.nextLong(period)));
+				++id;
+			}
+		}
+		long end = (long) (duration * 1e6);
+		while (!topics.isEmpty() && topics.peek().nextTimestamp < end) {
+			var topic = topics.poll();
+			writer.appendRecord(topic.id, topic.nextTimestamp, payloadFor(topic.type, random));
+			topic.nextTimestamp += topic.period;
+			topics.add(topic);
+		}
+	}
+
+	public byte[] toBytes() {
+		var output = new ByteArrayOutputStream();
+		try (var writer = new WpiLogWriter(Channels.newChannel(output), EXTRA_HEADER)) {
+			write(writer);
+		} catch (IOException e) {
+			// Writing to memory doesn't fail
+			throw new UncheckedIOException(e);
+		}
+		return output.toByteArray();
+	}
+
+	public void write(Path path) throws IOException {
+		try (var writer = new WpiLogWriter(path, EXTRA_HEADER)) {
+			write(writer);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		var log = new SyntheticLog();
+		String output = null;
+		for (int i = 0; i < args.length; ++i) {
+			String arg = args[i];
+			if (arg.equals("-h")) {
+				System.out.println(USAGE);
+				return;
+			}
+			if (arg.startsWith("-") && i + 1 == args.length) {
+				System.err.println("Missing value for " + arg + "!");
+				return;
+			}
+			switch (arg) {
+				case "-seed" -> log.setSeed(Long.parseLong(args[++i]));
+				case "-duration" -> log.setDuration(Double.parseDouble(args[++i]));
+				case "-payload" -> log.setPayloadSize(Integer.parseInt(args[++i]));
+				case "-distinct" -> log.setDistinctStrings(Integer.parseInt(args[++i]));
+				case "-topics" -> {
+					// Types like struct:Pose2d have colons of their own, so only the last two split
+					String[] parts = args[++i].split(":(?=[^:]*(?::[^:]*)?$)");
+					if (parts.length != 3) {
+						System.err.println("Topics must look like <type>:<count>:<rate in Hz>!");
+						return;
+					}
+					log.addTopics(parts[0], Integer.parseInt(parts[1]), Double.parseDouble(parts[2]));
+				}
+				default -> {
+					if (output != null) {
+						System.err.println("Cannot specify multiple output files!");
+						return;
+					}
+					output = arg;
+				}
+			}
+		}
+		if (output == null) {
+			System.err.println("Must specify an output file!");
+			return;
+		}
+		log.write(Path.of(output));
+	}
+}
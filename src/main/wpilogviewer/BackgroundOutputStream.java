@@ -0,0 +1,161 @@
+package wpilogviewer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Buffers writes into a fixed ring of chunks that a background thread writes out, so the caller only blocks when
+// every chunk is still waiting to be written
+class BackgroundOutputStream extends OutputStream {
+	private static class Chunk {
+		private final byte[] bytes;
+		private int size = 0;
+		private boolean flush = false;
+
+		public Chunk(int capacity) {
+			bytes = new byte[capacity];
+		}
+	}
+
+	// Tells the writer thread to stop
+	private static final Chunk END = new Chunk(0);
+
+	private final OutputStream output;
+	private final BlockingQueue<Chunk> freeChunks;
+	private final BlockingQueue<Chunk> fullChunks;
+	// Gets back the chunk that asked for a flush once everything before it is written
+	private final BlockingQueue<Chunk> flushedChunks = new ArrayBlockingQueue<>(1);
+	private final Thread writer;
+	private Chunk current;
+	// First error the writer thread got; later chunks get dropped
+	private volatile IOException error = null;
+	private boolean closed = false;
+
+	public BackgroundOutputStream(OutputStream output, int chunkSize, int chunkCount) {
+		if (chunkCount < 2) {
+			throw new IllegalArgumentException("Need at least 2 chunks, but got " + chunkCount);
+		}
+		this.output = output;
+		freeChunks = new ArrayBlockingQueue<>(chunkCount);
+		fullChunks = new ArrayBlockingQueue<>(chunkCount + 1);
+		for (int i = 1; i < chunkCount; ++i) {
+			freeChunks.add(new Chunk(chunkSize));
+		}
+		current = new Chunk(chunkSize);
+		writer = new Thread(this::writeChunks, "wpilogviewer output");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	private void writeChunks() {
+		try {
+			while (true) {
+				var chunk = fullChunks.take();
+				if (chunk == END) {
+					return;
+				}
+				if (error == null) {
+					try {
+						output.write(chunk.bytes, 0, chunk.size);
+						if (chunk.flush) {
+							output.flush();
+						}
+					} catch (IOException e) {
+						error = e;
+					}
+				}
+				chunk.size = 0;
+				if (chunk.flush) {
+					chunk.flush = false;
+					flushedChunks.put(chunk);
+				} else {
+					freeChunks.put(chunk);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void checkError() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	private static InterruptedIOException interrupted() {
+		Thread.currentThread().interrupt();
+		return new InterruptedIOException("Interrupted while waiting for output to be written");
+	}
+
+	private void handOff() throws IOException {
+		try {
+			fullChunks.put(current);
+			current = freeChunks.take();
+		} catch (InterruptedException e) {
+			throw interrupted();
+		}
+	}
+
+	@Override
+	public void write(int value) throws IOException {
+		checkError();
+		if (current.size == current.bytes.length) {
+			handOff();
+		}
+		current.bytes[current.size++] = (byte) value;
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) throws IOException {
+		checkError();
+		while (length > 0) {
+			if (current.size == current.bytes.length) {
+				handOff();
+			}
+			int copied = Math.min(length, current.bytes.length - current.size);
+			System.arraycopy(bytes, offset, current.bytes, current.size, copied);
+			current.size += copied;
+			offset += copied;
+			length -= copied;
+		}
+	}
+
+	// Waits until everything written so far reached the underlying stream
+	@Override
+	public void flush() throws IOException {
+		checkError();
+		current.flush = true;
+		try {
+			fullChunks.put(current);
+			current = flushedChunks.take();
+		} catch (InterruptedException e) {
+			throw interrupted();
+		}
+		checkError();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		try {
+			flush();
+		} finally {
+			closed = true;
+			try {
+				fullChunks.put(END);
+				writer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			output.close();
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package wpilogviewer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Summarizes many logs at once, each on its own thread from a pool
+public class Batch {
+	private static class MergedTopic {
+		private final String type;
+		private int logCount = 0;
+		private long recordCount = 0;
+		private double duration = 0;
+
+		public MergedTopic(String type) {
+			this.type = type;
+		}
+	}
+
+	private final List<Path> paths;
+	private final int threadCount;
+
+	public Batch(List<Path> paths, int threadCount) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("Thread count must be at least 1, but was " + threadCount);
+		}
+		this.paths = paths;
+		this.threadCount = threadCount;
+	}
+
+	// Expands a file, a directory (searched recursively) or a glob like "logs/**/*.wpilog" into the logs it names
+	public static List<Path> findLogs(String pattern) throws IOException {
+		int globStart = -1;
+		for (int i = 0; i < pattern.length(); ++i) {
+			if ("*?[{".indexOf(pattern.charAt(i)) >= 0) {
+				globStart = i;
+				break;
+			}
+		}
+		if (globStart < 0) {
+			var path = Path.of(pattern);
+			if (!Files.isDirectory(path)) {
+				return List.of(path);
+			}
+			try (Stream<Path> files = Files.walk(path)) {
+				return files.filter(file -> Files.isRegularFile(file) && file.getFileName().toString().endsWith(".wpilog")).sorted().collect(Collectors.toList());
+			}
+		}
+		// Walk from the deepest directory that comes before the glob
+		int separator = Math.max(pattern.lastIndexOf('/', globStart), pattern.lastIndexOf('\\', globStart));
+		var root = Path.of(separator < 0 ? "." : pattern.substring(0, separator + 1));
+		if (!Files.isDirectory(root)) {
+			return List.of();
+		}
+		var matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+		try (Stream<Path> files = Files.walk(root)) {
+			// A glob without a directory matches paths relative to the working directory, without the "./"
+			return files.map(file -> separator < 0 ? root.relativize(file) : file).filter(file -> Files.isRegularFile(file) && matcher.matches(file)).sorted().collect(Collectors.toList());
+		}
+	}
+
+	private static SummaryLogger summarize(Path path) throws IOException {
+		long firstRecordOffset = WpiLogProcessor.findFirstRecordOffset(path);
+		if (firstRecordOffset < 0) {
+			return null;
+		}
+		var summary = new SummaryLogger();
+		WpiLogProcessor.process(path, summary, firstRecordOffset, Long.MAX_VALUE);
+		return summary;
+	}
+
+	private static String format(double value) {
+		return String.format("%.1f", value);
+	}
+
+	public void run() {
+		long startTime = System.nanoTime();
+		var executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threadCount, paths.size())));
+		var futures = new ArrayList<Future<SummaryLogger>>();
+		for (var path : paths) {
+			futures.add(executor.submit(() -> summarize(path)));
+		}
+		executor.shutdown();
+		Map<String, MergedTopic> nameToMergedTopic = new TreeMap<>();
+		int logCount = 0;
+		long totalBytes = 0;
+		// Report in input order; later logs keep loading while earlier ones are printed
+		for (int i = 0; i < paths.size(); ++i) {
+			var path = paths.get(i);
+			final SummaryLogger summary;
+			try {
+				summary = futures.get(i).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				executor.shutdownNow();
+				return;
+			} catch (ExecutionException e) {
+				var cause = e.getCause();
+				System.err.println("Could not read " + path + ": " + (cause instanceof UncheckedIOException ? cause.getCause() : cause));
+				continue;
+			}
+			if (summary == null) {
+				System.err.println(path + " is not a valid log!");
+				continue;
+			}
+			++logCount;
+			try {
+				totalBytes += Files.size(path);
+			} catch (IOException e) {
+				// It was readable a moment ago; the throughput is just a bit off then
+			}
+			var topics = summary.getTopics();
+			System.out.println(path + ": " + topics.size() + " topics, " + summary.getRecordCount() + " records, " + format(summary.getDuration()) + " s");
+			for (var topicEntry : topics.entrySet()) {
+				var topic = topicEntry.getValue();
+				System.out.println("\t" + topicEntry.getKey() + " (" + topic.getType() + "): " + topic.getRecordCount() + " records, " + format(topic.getRate()) + " Hz");
+				var mergedTopic = nameToMergedTopic.computeIfAbsent(topicEntry.getKey(), key -> new MergedTopic(topic.getType()));
+				++mergedTopic.logCount;
+				mergedTopic.recordCount += topic.getRecordCount();
+				mergedTopic.duration += topic.getDuration();
+			}
+		}
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		System.out.println("Summary of " + logCount + " logs (" + format(totalBytes / 1e6) + " MB in " + format(seconds) + " s, " + format(totalBytes / 1e6 / seconds) + " MB/s):");
+		for (var mergedEntry : nameToMergedTopic.entrySet()) {
+			var mergedTopic = mergedEntry.getValue();
+			// Rates are over the time each log had the topic, so gaps between logs don't count
+			double rate = mergedTopic.duration > 0 ? mergedTopic.recordCount / mergedTopic.duration : 0;
+			System.out.println("\t" + mergedEntry.getKey() + " (" + mergedTopic.type + "): " + mergedTopic.logCount + " logs, " + mergedTopic.recordCount + " records, " + format(rate) + " Hz");
+		}
+	}
+}
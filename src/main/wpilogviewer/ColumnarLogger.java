@@ -0,0 +1,229 @@
+package wpilogviewer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Writes values into a simple columnar file, buffering at most CHUNK_SIZE values per topic. Everything is little
+// endian, and strings are an int32 byte length followed by UTF-8.
+//
+// File: "WLVCOLUM", int32 version, then sections, each starting with a tag byte:
+//   1 topic: int32 topic index, string name, string type
+//   2 chunk: int32 topic index, int32 count, count int64 timestamps, then the values: count bytes for boolean,
+//            count int64/float32/float64 for int64/float/double, and for every other type count int32 payload
+//            lengths followed by the payloads as they are in the wpilog
+//   0 end
+public class ColumnarLogger implements Logger, Closeable {
+	private static final byte[] MAGIC = "WLVCOLUM".getBytes(StandardCharsets.US_ASCII);
+	private static final int VERSION = 1;
+	private static final int CHUNK_SIZE = 4096;
+	// Variable size values also end a chunk once they take up this much
+	private static final int MAX_CHUNK_BYTES = 1 << 20;
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private static class Topic {
+		private final int index;
+		private final String type;
+		// Payload size of every value, or -1 if it varies
+		private final int valueSize;
+		private final long[] timestamps = new long[CHUNK_SIZE];
+		private int[] lengths = null;
+		private byte[] values;
+		private int count = 0;
+		private int valuesSize = 0;
+
+		public Topic(int index, String type) {
+			this.index = index;
+			this.type = type;
+			valueSize = switch (type) {
+				case "boolean" -> 1;
+				case "float" -> 4;
+				case "int64", "double" -> 8;
+				default -> -1;
+			};
+			if (valueSize < 0) {
+				lengths = new int[CHUNK_SIZE];
+				values = new byte[1 << 12];
+			} else {
+				values = new byte[CHUNK_SIZE * valueSize];
+			}
+		}
+
+		boolean isValid(byte[] payload) {
+			if (valueSize < 0) {
+				return true;
+			}
+			if (payload.length != valueSize) {
+				return false;
+			}
+			return !type.equals("boolean") || payload[0] == 0 || payload[0] == 1;
+		}
+
+		// Returns whether the chunk is full
+		boolean add(long timestamp, byte[] payload) {
+			timestamps[count] = timestamp;
+			if (lengths != null) {
+				lengths[count] = payload.length;
+				if (valuesSize + payload.length > values.length) {
+					values = Arrays.copyOf(values, Math.max(valuesSize + payload.length, 2 * values.length));
+				}
+			}
+			System.arraycopy(payload, 0, values, valuesSize, payload.length);
+			valuesSize += payload.length;
+			++count;
+			return count == CHUNK_SIZE || valuesSize >= MAX_CHUNK_BYTES;
+		}
+	}
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	private final TopicFilter topicFilter;
+	private final Map<String, Topic> nameToTopic = new HashMap<>();
+	private final Map<Long, Topic> idToTopic = new HashMap<>();
+	private int topicCount = 0;
+	private long bytesWritten = 0;
+
+	public ColumnarLogger(WritableByteChannel channel, TopicFilter topicFilter) {
+		this.channel = channel;
+		this.topicFilter = topicFilter;
+		buffer.put(MAGIC);
+		buffer.putInt(VERSION);
+	}
+
+	public long getBytesWritten() {
+		return bytesWritten + buffer.position();
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			bytesWritten += channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private void ensureRemaining(int length) throws IOException {
+		if (buffer.remaining() < length) {
+			flush();
+		}
+	}
+
+	private void putString(String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		ensureRemaining(4);
+		buffer.putInt(bytes.length);
+		putBytes(bytes, 0, bytes.length);
+	}
+
+	private void putBytes(byte[] bytes, int start, int length) throws IOException {
+		while (length > 0) {
+			ensureRemaining(1);
+			int written = Math.min(length, buffer.remaining());
+			buffer.put(bytes, start, written);
+			start += written;
+			length -= written;
+		}
+	}
+
+	private void writeChunk(Topic topic) throws IOException {
+		if (topic.count == 0) {
+			return;
+		}
+		ensureRemaining(9);
+		buffer.put((byte) 2);
+		buffer.putInt(topic.index);
+		buffer.putInt(topic.count);
+		// A full chunk's timestamps and lengths are much smaller than the buffer
+		ensureRemaining(8 * topic.count);
+		for (int i = 0; i < topic.count; ++i) {
+			buffer.putLong(topic.timestamps[i]);
+		}
+		if (topic.lengths != null) {
+			ensureRemaining(4 * topic.count);
+			for (int i = 0; i < topic.count; ++i) {
+				buffer.putInt(topic.lengths[i]);
+			}
+		}
+		putBytes(topic.values, 0, topic.valuesSize);
+		topic.count = 0;
+		topic.valuesSize = 0;
+	}
+
+	@Override
+	public void logStart(long entryId, String entryName, String entryType, String entryMetadata, long timestamp) {
+		if (topicFilter != null && !topicFilter.matches(entryName)) {
+			idToTopic.remove(entryId);
+			return;
+		}
+		// Topics that restart with the same type keep adding to the same columns
+		var topic = nameToTopic.get(entryName);
+		if (topic == null || !topic.type.equals(entryType)) {
+			try {
+				if (topic != null) {
+					writeChunk(topic);
+				}
+				topic = new Topic(topicCount++, entryType);
+				nameToTopic.put(entryName, topic);
+				ensureRemaining(5);
+				buffer.put((byte) 1);
+				buffer.putInt(topic.index);
+				putString(entryName);
+				putString(entryType);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		idToTopic.put(entryId, topic);
+	}
+
+	@Override
+	public void logFinish(long entryId, long timestamp) {
+		idToTopic.remove(entryId);
+	}
+
+	@Override
+	public void logSetMetadata(long entryId, long timestamp, String newMetadata) {
+	}
+
+	@Override
+	public boolean wantsValues(long entryId) {
+		return idToTopic.containsKey(entryId);
+	}
+
+	@Override
+	public void logValue(long entryId, long timestamp, Supplier<byte[]> payloadSupplier) {
+		var topic = idToTopic.get(entryId);
+		if (topic == null) {
+			return;
+		}
+		byte[] payload = payloadSupplier.get();
+		if (!topic.isValid(payload)) {
+			return;
+		}
+		if (topic.add(timestamp, payload)) {
+			try {
+				writeChunk(topic);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (var topic : nameToTopic.values()) {
+			writeChunk(topic);
+		}
+		ensureRemaining(1);
+		buffer.put((byte) 0);
+		flush();
+	}
+}
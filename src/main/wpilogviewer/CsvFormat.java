@@ -0,0 +1,172 @@
+package wpilogviewer;
+
+// Writes wpilog values as CSV fields
+class CsvFormat implements PayloadSink<TextBuffer> {
+	// Flush output once this much has been built up
+	static final int FLUSH_SIZE = 1 << 20;
+
+	// Quotes value if it has anything that would break the field up
+	static void appendField(TextBuffer output, String value) {
+		boolean needsQuotes = false;
+		for (int i = 0; i < value.length(); ++i) {
+			char c = value.charAt(i);
+			if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+				needsQuotes = true;
+				break;
+			}
+		}
+		if (!needsQuotes) {
+			output.append(value);
+			return;
+		}
+		output.append((byte) '"');
+		for (int i = 0; i < value.length(); ++i) {
+			char c = value.charAt(i);
+			if (c == '"') {
+				output.append((byte) '"');
+			}
+			output.append(c);
+		}
+		output.append((byte) '"');
+	}
+
+	// Always quoted, with quotes doubled, so arrays and strings can hold commas
+	private static void appendQuotedUtf8(TextBuffer output, byte[] payload, int start, int length) {
+		for (int i = start; i < start + length; ++i) {
+			if (payload[i] == '"') {
+				output.append((byte) '"');
+			}
+			output.append(payload[i]);
+		}
+	}
+
+	// Whether the last payload given to appendValue fit its type
+	private boolean valid;
+
+	// Appends the value in payload as a field, or nothing if the payload doesn't fit the type. Numbers and booleans
+	// are written plainly, strings are quoted, arrays are written as a quoted JSON-style list, and raw bytes as hex.
+	boolean appendValue(TextBuffer output, PayloadDecoder decoder, byte[] payload) {
+		valid = true;
+		decoder.decode(0, payload, this, output, 0);
+		return valid;
+	}
+
+	@Override
+	public void rawValue(TextBuffer output, long timestamp, byte[] payload) {
+		output.appendHex(payload, 0, payload.length);
+	}
+
+	@Override
+	public void booleanValue(TextBuffer output, long timestamp, boolean value) {
+		output.append(value);
+	}
+
+	@Override
+	public void int64Value(TextBuffer output, long timestamp, long value) {
+		output.append(value);
+	}
+
+	@Override
+	public void floatValue(TextBuffer output, long timestamp, float value) {
+		output.append(value);
+	}
+
+	@Override
+	public void doubleValue(TextBuffer output, long timestamp, double value) {
+		output.append(value);
+	}
+
+	@Override
+	public void stringValue(TextBuffer output, long timestamp, byte[] payload) {
+		output.append((byte) '"');
+		appendQuotedUtf8(output, payload, 0, payload.length);
+		output.append((byte) '"');
+	}
+
+	@Override
+	public void booleanArrayValue(TextBuffer output, long timestamp, byte[] payload) {
+		output.append("\"[");
+		for (int i = 0; i < payload.length; ++i) {
+			if (i > 0) {
+				output.append((byte) ',');
+			}
+			output.append(payload[i] == 1);
+		}
+		output.append("]\"");
+	}
+
+	@Override
+	public void int64ArrayValue(TextBuffer output, long timestamp, byte[] payload) {
+		output.append("\"[");
+		for (int i = 0; i < payload.length / 8; ++i) {
+			if (i > 0) {
+				output.append((byte) ',');
+			}
+			output.append(Util.longAt(payload, 8 * i));
+		}
+		output.append("]\"");
+	}
+
+	@Override
+	public void floatArrayValue(TextBuffer output, long timestamp, byte[] payload) {
+		output.append("\"[");
+		for (int i = 0; i < payload.length / 4; ++i) {
+			if (i > 0) {
+				output.append((byte) ',');
+			}
+			output.append(Float.intBitsToFloat(Util.intAt(payload, 4 * i)));
+		}
+		output.append("]\"");
+	}
+
+	@Override
+	public void doubleArrayValue(TextBuffer output, long timestamp, byte[] payload) {
+		output.append("\"[");
+		for (int i = 0; i < payload.length / 8; ++i) {
+			if (i > 0) {
+				output.append((byte) ',');
+			}
+			output.append(Double.longBitsToDouble(Util.longAt(payload, 8 * i)));
+		}
+		output.append("]\"");
+	}
+
+	@Override
+	public void stringArrayValue(TextBuffer output, long timestamp, byte[] payload) {
+		output.append("\"[");
+		int arrayLength = Util.intFromBytes(payload, 0, 4);
+		int payloadIndex = 4;
+		for (int i = 0; i < arrayLength; ++i) {
+			if (i > 0) {
+				output.append((byte) ',');
+			}
+			int stringLength = Util.intFromBytes(payload, payloadIndex, 4);
+			payloadIndex += 4;
+			output.append("\"\"");
+			appendQuotedUtf8(output, payload, payloadIndex, stringLength);
+			output.append("\"\"");
+			payloadIndex += stringLength;
+		}
+		output.append("]\"");
+	}
+
+	// CSV output doesn't read the struct schemas of the log, so structs are only ever unknown values there
+	@Override
+	public void structValue(TextBuffer output, long timestamp, byte[] payload) {
+		output.appendHex(payload, 0, payload.length);
+	}
+
+	@Override
+	public void unknownValue(TextBuffer output, long timestamp, byte[] payload) {
+		output.appendHex(payload, 0, payload.length);
+	}
+
+	@Override
+	public void invalid(TextBuffer output, long timestamp, String message) {
+		valid = false;
+	}
+
+	@Override
+	public void warn(TextBuffer output, long timestamp, String message) {
+	}
+}
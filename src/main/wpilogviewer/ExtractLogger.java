@@ -0,0 +1,169 @@
+package wpilogviewer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+// Copies the records of the matching topics inside a time window to a new log; ids get renumbered in the order
+// entries first get a value, and an entry is only started once it does, so topics without values get left out
+public class ExtractLogger implements Logger {
+	private static class PendingStart {
+		private final String name;
+		private final String type;
+		private String metadata;
+		private final long timestamp;
+
+		public PendingStart(String name, String type, String metadata, long timestamp) {
+			this.name = name;
+			this.type = type;
+			this.metadata = metadata;
+			this.timestamp = timestamp;
+		}
+	}
+
+	private final WpiLogWriter writer;
+	// Non-null when payloads can be copied straight from the log being processed
+	private final FileChannel source;
+	// Null to keep every topic
+	private final TopicFilter topicFilter;
+	private final long startTimestamp;
+	private final long endTimestamp;
+	private final Map<Long, Long> idToNewId = new HashMap<>();
+	private final Map<Long, PendingStart> idToPendingStart = new HashMap<>();
+	// Ids whose start got written and that haven't been finished since
+	private final Set<Long> startedIds = new HashSet<>();
+	private final Set<Long> ignoredIds = new HashSet<>();
+	private long nextId = 1;
+
+	public ExtractLogger(WpiLogWriter writer, FileChannel source, TopicFilter topicFilter, long startTimestamp, long endTimestamp) {
+		this.writer = writer;
+		this.source = source;
+		this.topicFilter = topicFilter;
+		this.startTimestamp = startTimestamp;
+		this.endTimestamp = endTimestamp;
+	}
+
+	public ExtractLogger(WpiLogWriter writer, FileChannel source, TopicFilter topicFilter) {
+		this(writer, source, topicFilter, 0, -1);
+	}
+
+	// Number of entries that got written
+	public int getEntryCount() {
+		return idToNewId.size();
+	}
+
+	private boolean beforeEnd(long timestamp) {
+		return Long.compareUnsigned(timestamp, endTimestamp) <= 0;
+	}
+
+	private boolean inWindow(long timestamp) {
+		return Long.compareUnsigned(timestamp, startTimestamp) >= 0 && beforeEnd(timestamp);
+	}
+
+	// Finishes the written entry for this id, if there is one
+	private void finishStarted(long entryId, long timestamp) throws IOException {
+		if (startedIds.remove(entryId) && beforeEnd(timestamp)) {
+			writer.finishEntry(idToNewId.get(entryId), timestamp);
+		}
+	}
+
+	@Override
+	public void logStart(long entryId, String entryName, String entryType, String entryMetadata, long timestamp) {
+		try {
+			// A start replaces whatever entry had the id before
+			idToPendingStart.remove(entryId);
+			finishStarted(entryId, timestamp);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (topicFilter != null && !topicFilter.matches(entryName)) {
+			ignoredIds.add(entryId);
+			return;
+		}
+		ignoredIds.remove(entryId);
+		idToPendingStart.put(entryId, new PendingStart(entryName, entryType, entryMetadata, timestamp));
+	}
+
+	@Override
+	public void logFinish(long entryId, long timestamp) {
+		idToPendingStart.remove(entryId);
+		try {
+			finishStarted(entryId, timestamp);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void logSetMetadata(long entryId, long timestamp, String newMetadata) {
+		var pendingStart = idToPendingStart.get(entryId);
+		if (pendingStart != null) {
+			// Nothing was written for the entry yet, so it can just start out with this metadata
+			pendingStart.metadata = newMetadata;
+			return;
+		}
+		if (startedIds.contains(entryId) && beforeEnd(timestamp)) {
+			try {
+				writer.setMetadata(idToNewId.get(entryId), timestamp, newMetadata);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	@Override
+	public boolean wantsValues(long entryId) {
+		return !ignoredIds.contains(entryId);
+	}
+
+	// Returns the id to write a value for this id with, or -1 if it doesn't belong to a kept entry
+	private long startIfPending(long entryId) throws IOException {
+		var pendingStart = idToPendingStart.remove(entryId);
+		if (pendingStart == null) {
+			return startedIds.contains(entryId) ? idToNewId.get(entryId) : -1;
+		}
+		long newId = idToNewId.computeIfAbsent(entryId, key -> nextId++);
+		writer.startEntry(newId, pendingStart.name, pendingStart.type, pendingStart.metadata, pendingStart.timestamp);
+		startedIds.add(entryId);
+		return newId;
+	}
+
+	@Override
+	public void logValue(long entryId, long timestamp, Supplier<byte[]> payloadSupplier) {
+		if (!inWindow(timestamp)) {
+			return;
+		}
+		try {
+			long newId = startIfPending(entryId);
+			if (newId >= 0) {
+				writer.appendRecord(newId, timestamp, payloadSupplier.get());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void logValue(long entryId, long timestamp, long payloadOffset, int payloadSize, Supplier<byte[]> payloadSupplier) {
+		if (source == null) {
+			logValue(entryId, timestamp, payloadSupplier);
+			return;
+		}
+		if (!inWindow(timestamp)) {
+			return;
+		}
+		try {
+			long newId = startIfPending(entryId);
+			if (newId >= 0) {
+				writer.appendRecord(newId, timestamp, source, payloadOffset, payloadSize);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
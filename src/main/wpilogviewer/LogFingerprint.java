@@ -0,0 +1,62 @@
+package wpilogviewer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+// Identifies a version of a log file, so files derived from it can tell when they're out of date
+public class LogFingerprint {
+	// How much of the start of the log goes into the content hash
+	private static final int HASHED_HEADER_SIZE = 1 << 16;
+
+	private final long size;
+	private final long lastModified;
+	private final long headerHash;
+
+	public LogFingerprint(long size, long lastModified, long headerHash) {
+		this.size = size;
+		this.lastModified = lastModified;
+		this.headerHash = headerHash;
+	}
+
+	public static LogFingerprint of(Path path) throws IOException {
+		var crc = new CRC32C();
+		try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			var buffer = ByteBuffer.allocate((int) Math.min(HASHED_HEADER_SIZE, channel.size()));
+			while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+			}
+			crc.update(buffer.flip());
+		}
+		return new LogFingerprint(Files.size(path), Files.getLastModifiedTime(path).toMillis(), crc.getValue());
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	public long getHeaderHash() {
+		return headerHash;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof LogFingerprint)) {
+			return false;
+		}
+		var otherFingerprint = (LogFingerprint) other;
+		return size == otherFingerprint.size && lastModified == otherFingerprint.lastModified && headerHash == otherFingerprint.headerHash;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(size) * 31 * 31 + Long.hashCode(lastModified) * 31 + Long.hashCode(headerHash);
+	}
+}
@@ -0,0 +1,92 @@
+package wpilogviewer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+// Processes a log that is still being written, picking up new records as they're added. A record that is cut off at
+// the end of the file is left for the next update, once the rest of it has been written.
+public class LogFollower implements Closeable {
+	// WatchService isn't backed by file system events everywhere, so also check this often
+	private static final long POLL_INTERVAL_MILLIS = 100;
+
+	private final Path path;
+	private final Logger logger;
+	private final FileChannel channel;
+	private final BitSet skippedIds = new BitSet();
+	// Where the next record starts, or 0 before the header was processed
+	private long offset = 0;
+	private boolean failed = false;
+
+	public LogFollower(Path path, Logger logger) throws IOException {
+		this.path = path;
+		this.logger = logger;
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+	}
+
+	// Processes the records written since the last update, and returns whether there were any. Throws an
+	// IllegalStateException once the log turned out to be invalid or was replaced.
+	public boolean update() throws IOException {
+		if (failed) {
+			throw new IllegalStateException("Cannot follow " + path + " anymore");
+		}
+		long size = channel.size();
+		if (size < offset) {
+			failed = true;
+			throw new IllegalStateException(path + " shrank from " + offset + " to " + size + " bytes, so it was replaced");
+		}
+		if (offset == 0) {
+			long firstRecordOffset = WpiLogProcessor.processHeader(channel, size);
+			if (firstRecordOffset < 0) {
+				failed = true;
+				throw new IllegalStateException(path + " is not a valid log");
+			}
+			if (firstRecordOffset == 0) {
+				return false;
+			}
+			offset = firstRecordOffset;
+		}
+		long end = WpiLogProcessor.findCompleteRecordsEnd(channel, offset, size);
+		if (end == offset) {
+			return false;
+		}
+		if (!WpiLogProcessor.processRecords(channel, logger, offset, end, skippedIds)) {
+			failed = true;
+			throw new IllegalStateException(path + " has an invalid record");
+		}
+		offset = end;
+		return true;
+	}
+
+	// Offset just past the last processed record
+	public long getOffset() {
+		return offset;
+	}
+
+	// Updates whenever the file changes, until the thread is interrupted
+	public void follow() throws IOException, InterruptedException {
+		try (var watchService = FileSystems.getDefault().newWatchService()) {
+			path.toAbsolutePath().getParent().register(watchService, StandardWatchEventKinds.ENTRY_MODIFY);
+			while (true) {
+				update();
+				var key = watchService.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+				if (key != null) {
+					// Any change in the directory is worth a look, since checking the size is cheap
+					key.pollEvents();
+					key.reset();
+				}
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,25 @@
+package wpilogviewer;
+
+import java.io.IOException;
+
+abstract class LogInput {
+	// Offset of the next byte from the start of the log
+	abstract long position();
+
+	// Returns the next byte as an unsigned value, or -1 at the end of the log
+	abstract int read() throws IOException;
+
+	// Little-endian value of length bytes (at most 4)
+	abstract int readInt(int length) throws IOException;
+
+	// Little-endian value of length bytes (at most 8)
+	abstract long readLong(int length) throws IOException;
+
+	abstract byte[] readBytes(int length) throws IOException;
+
+	abstract void skip(long length) throws IOException;
+
+	String readUtf8String(int length) throws IOException {
+		return Util.utf8StringFromBytes(readBytes(length));
+	}
+}
@@ -0,0 +1,39 @@
+package wpilogviewer;
+
+import java.nio.file.Path;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR event for a phase of reading a log, like processing its records, a chunk of a parallel load or reading a cache
+@Name("wpilogviewer.LogPhase")
+@Label("Log Phase")
+@Category("WPILog Viewer")
+@Description("A phase of reading a log")
+public class LogPhaseEvent extends Event {
+	@Label("Phase")
+	private String phase;
+	@Label("Path")
+	private String path;
+	@Label("Bytes")
+	@DataAmount
+	private long bytes;
+
+	public LogPhaseEvent(String phase) {
+		this.phase = phase;
+		begin();
+	}
+
+	// The details are only filled in when the event gets recorded, so a phase costs next to nothing otherwise
+	public void end(Path path, long bytes) {
+		end();
+		if (shouldCommit()) {
+			this.path = path == null ? null : path.toString();
+			this.bytes = bytes;
+			commit();
+		}
+	}
+}
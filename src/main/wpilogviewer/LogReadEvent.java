@@ -0,0 +1,34 @@
+package wpilogviewer;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR event for mapping or reading one piece of a log file
+@Name("wpilogviewer.LogRead")
+@Label("Log Read")
+@Category("WPILog Viewer")
+@Description("Mapping or reading a piece of a log file")
+public class LogReadEvent extends Event {
+	@Label("Offset")
+	private long offset;
+	@Label("Length")
+	@DataAmount
+	private long length;
+
+	public LogReadEvent() {
+		begin();
+	}
+
+	public void end(long offset, long length) {
+		end();
+		if (shouldCommit()) {
+			this.offset = offset;
+			this.length = length;
+			commit();
+		}
+	}
+}
@@ -10,4 +10,14 @@ public interface Logger {
 	void logSetMetadata(long entryId, long timestamp, String newMetadata);
 
 	void logValue(long entryId, long timestamp, Supplier<byte[]> payloadSupplier);
+
+	// Asked right after logStart; if false, value records for the entry are skipped without calling logValue
+	default boolean wantsValues(long entryId) {
+		return true;
+	}
+
+	// Processors call this version, which also says where the payload starts in the log
+	default void logValue(long entryId, long timestamp, long payloadOffset, int payloadSize, Supplier<byte[]> payloadSupplier) {
+		logValue(entryId, timestamp, payloadSupplier);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+package wpilogviewer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Writes every value as a "timestamp,topic,value" CSV row
+public class LongCsvLogger implements Logger, Closeable {
+	private static class Topic {
+		private final PayloadDecoder decoder;
+		// The name as a CSV field, so it's only escaped once
+		private final TextBuffer field = new TextBuffer(32);
+
+		public Topic(String name, String type) {
+			this.decoder = PayloadDecoders.forType(type);
+			CsvFormat.appendField(field, name);
+		}
+	}
+
+	private final OutputStream output;
+	private final TopicFilter topicFilter;
+	private final TextBuffer buffer = new TextBuffer(CsvFormat.FLUSH_SIZE + (1 << 16));
+	private final Map<Long, Topic> idToTopic = new HashMap<>();
+	private final CsvFormat format = new CsvFormat();
+
+	public LongCsvLogger(OutputStream output, TopicFilter topicFilter) {
+		this.output = output;
+		this.topicFilter = topicFilter;
+		buffer.append("timestamp,topic,value\n");
+	}
+
+	private void flushIfFull() {
+		if (buffer.size() >= CsvFormat.FLUSH_SIZE) {
+			try {
+				buffer.writeTo(output);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			buffer.clear();
+		}
+	}
+
+	@Override
+	public void logStart(long entryId, String entryName, String entryType, String entryMetadata, long timestamp) {
+		if (topicFilter != null && !topicFilter.matches(entryName)) {
+			idToTopic.remove(entryId);
+			return;
+		}
+		idToTopic.put(entryId, new Topic(entryName, entryType));
+	}
+
+	@Override
+	public void logFinish(long entryId, long timestamp) {
+		idToTopic.remove(entryId);
+	}
+
+	@Override
+	public void logSetMetadata(long entryId, long timestamp, String newMetadata) {
+	}
+
+	@Override
+	public boolean wantsValues(long entryId) {
+		return idToTopic.containsKey(entryId);
+	}
+
+	@Override
+	public void logValue(long entryId, long timestamp, Supplier<byte[]> payloadSupplier) {
+		var topic = idToTopic.get(entryId);
+		if (topic == null) {
+			return;
+		}
+		int rowStart = buffer.size();
+		buffer.appendUnsigned(timestamp).append((byte) ',').append(topic.field).append((byte) ',');
+		if (!format.appendValue(buffer, topic.decoder, payloadSupplier.get())) {
+			// Leave out invalid values rather than writing half a row
+			buffer.truncate(rowStart);
+			return;
+		}
+		buffer.append((byte) '\n');
+		flushIfFull();
+	}
+
+	@Override
+	public void close() throws IOException {
+		buffer.writeTo(output);
+		buffer.clear();
+		output.flush();
+	}
+}
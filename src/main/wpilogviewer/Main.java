@@ -1,20 +1,35 @@
 package wpilogviewer;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import wpilogviewer.loading.Loader;
 
 public class Main {
 	private enum Subcommand {
-		PRINT, SHELL;
+		PRINT, SHELL, BATCH, EXPORT, EXTRACT;
 	}
 
-	private static final String PRINT_USAGE = "wpilogviewer print [-h] [-topic <topic>] [-control] [-nocontrol] [-value] [-novalue] <file>";
-	private static final String SHELL_USAGE = "wpilogviewer shell [-h] <file>";
-	private static final String USAGE = "Usage:\n\t" + PRINT_USAGE + "\n\t" + SHELL_USAGE;
+	private static final String PRINT_USAGE = "wpilogviewer print [-h] [-topic <topic or glob>]... [-control] [-nocontrol] [-value] [-novalue] [-start <timestamp>] [-end <timestamp>] [-f] [-stats] <file>";
+	private static final String SHELL_USAGE = "wpilogviewer shell [-h] [-cache] [-index] [-memory <megabytes>] [-offheap] [-j <threads>] [-topic <topic or glob>]... [-stats] <file>";
+	private static final String BATCH_USAGE = "wpilogviewer batch [-h] [-j <threads>] <file, directory or glob>...";
+	private static final String EXPORT_USAGE = "wpilogviewer export [-h] [-format long|wide|columnar] [-topic <topic or glob>]... [-o <output file>] [-stats] <file>";
+	private static final String EXTRACT_USAGE = "wpilogviewer extract [-h] [-topic <topic or glob>]... [-start <timestamp>] [-end <timestamp>] [-o <output file>] [-stats] <file>";
+	private static final String USAGE = "Usage:\n\t" + PRINT_USAGE + "\n\t" + SHELL_USAGE + "\n\t" + BATCH_USAGE + "\n\t" + EXPORT_USAGE + "\n\t" + EXTRACT_USAGE;
 
 	public static void main(String[] args) {
 		if (args.length == 0) {
@@ -36,6 +51,15 @@ public class Main {
 			} else if (arg.equals("shell")) {
 				subcommand = Subcommand.SHELL;
 				break;
+			} else if (arg.equals("batch")) {
+				subcommand = Subcommand.BATCH;
+				break;
+			} else if (arg.equals("export")) {
+				subcommand = Subcommand.EXPORT;
+				break;
+			} else if (arg.equals("extract")) {
+				subcommand = Subcommand.EXTRACT;
+				break;
 			} else {
 				System.err.println("Unknown subcommand " + arg + "!");
 				hasError = true;
@@ -55,15 +79,24 @@ public class Main {
 		switch (subcommand) {
 			case PRINT -> printMain(args, start + 1);
 			case SHELL -> shellMain(args, start + 1);
+			case BATCH -> batchMain(args, start + 1);
+			case EXPORT -> exportMain(args, start + 1);
+			case EXTRACT -> extractMain(args, start + 1);
 		}
 	}
 
 	private static void printMain(String[] args, int start) {
 		String fileName = null;
-		String topicFilter = null;
+		List<String> topics = new ArrayList<>();
 		boolean logControl = true;
 		boolean logValue = true;
+		String startTimestamp = null;
+		String endTimestamp = null;
+		boolean follow = false;
+		boolean printStats = false;
 		boolean argIsTopic = false;
+		boolean argIsStart = false;
+		boolean argIsEnd = false;
 		boolean help = false;
 		for (int i = start; i < args.length; ++i) {
 			String arg = args[i];
@@ -72,6 +105,20 @@ public class Main {
 				break;
 			} else if (arg.equals("-topic")) {
 				argIsTopic = true;
+			} else if (arg.equals("-f")) {
+				follow = true;
+			} else if (arg.equals("-stats")) {
+				printStats = true;
+			} else if (arg.equals("-start")) {
+				argIsStart = true;
+			} else if (arg.equals("-end")) {
+				argIsEnd = true;
+			} else if (argIsStart) {
+				startTimestamp = arg;
+				argIsStart = false;
+			} else if (argIsEnd) {
+				endTimestamp = arg;
+				argIsEnd = false;
 			} else if (arg.equals("-control")) {
 				logControl = true;
 			} else if (arg.equals("-nocontrol")) {
@@ -82,7 +129,7 @@ public class Main {
 				logValue = false;
 			} else {
 				if (argIsTopic) {
-					topicFilter = arg;
+					topics.add(arg);
 					argIsTopic = false;
 				} else {
 					if (fileName != null) {
@@ -102,38 +149,127 @@ public class Main {
 			System.err.println("Must specify an input file!");
 			return;
 		}
-		var logger = new PrintLogger(topicFilter, logControl, logValue);
-		if (fileName.equals("-")) {
-			try {
-				WpiLogProcessor.process(System.in, logger);
+		var topicFilter = topics.isEmpty() ? null : new TopicFilter(topics);
+		if (follow) {
+			if (fileName.equals("-") || startTimestamp != null || endTimestamp != null || printStats) {
+				System.err.println("Can only follow a file, and not with a time range or stats!");
+				return;
+			}
+			// Printed line by line, so records show up as soon as they're written
+			var logger = new PrintLogger(topicFilter, logControl, logValue);
+			try (var follower = new LogFollower(Path.of(fileName), logger)) {
+				follower.follow();
 			} catch (IOException e) {
 				throw new UncheckedIOException(e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (IllegalStateException e) {
+				System.err.println(e.getMessage() + "!");
+			}
+			return;
+		}
+		final long windowStart;
+		final long windowEnd;
+		boolean hasWindow = startTimestamp != null || endTimestamp != null;
+		if (hasWindow) {
+			if (fileName.equals("-")) {
+				System.err.println("Cannot print a time range of stdin!");
+				return;
 			}
-		} else {
 			try {
-				try (var inputStream = new FileInputStream(fileName)) {
-					try {
-						WpiLogProcessor.process(inputStream, logger);
-					} catch (IOException e) {
-						throw new UncheckedIOException(e);
-					}
-				}
-			} catch (FileNotFoundException e) {
-				throw new UncheckedIOException(e);
-			} catch (IOException e) {
-				throw new UncheckedIOException(e);
+				windowStart = startTimestamp == null ? 0 : Long.parseUnsignedLong(startTimestamp);
+				windowEnd = endTimestamp == null ? -1 : Long.parseUnsignedLong(endTimestamp);
+			} catch (NumberFormatException e) {
+				System.err.println("Invalid timestamp: " + e.getMessage());
+				return;
+			}
+		} else {
+			windowStart = 0;
+			windowEnd = -1;
+		}
+		// Everything printed to System.out goes through the same buffer as the records, so it stays in order; writing
+		// happens on another thread when there's a core to spare
+		var originalOut = System.out;
+		var output = new TextOutput(new FileOutputStream(FileDescriptor.out), TextOutput.stdoutCharset(), Runtime.getRuntime().availableProcessors() > 1);
+		System.setOut(output.asPrintStream());
+		var stats = printStats ? new ParseStats() : null;
+		Logger logger = new PrintLogger(topicFilter, logControl, logValue, output);
+		if (stats != null) {
+			logger = stats.wrap(logger);
+		}
+		try {
+			if (hasWindow) {
+				var path = Path.of(fileName);
+				SparseIndex.loadOrBuild(path).process(path, logger, windowStart, windowEnd);
+			} else if (fileName.equals("-")) {
+				WpiLogProcessor.process(System.in, logger);
+			} else {
+				WpiLogProcessor.process(Path.of(fileName), logger);
 			}
+			if (stats != null) {
+				// Only part of the file is read for a time range
+				stats.finish(hasWindow || fileName.equals("-") ? -1 : Files.size(Path.of(fileName)));
+				stats.print();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			output.flush();
+			System.setOut(originalOut);
 		}
 	}
 
 	private static void shellMain(String[] args, int start) {
 		String fileName = null;
+		List<String> topics = new ArrayList<>();
+		boolean useCache = false;
+		boolean index = false;
+		boolean printStats = false;
+		String memoryBudget = null;
+		boolean offHeap = false;
+		// Loading on several threads hasn't been measured to be faster yet, so it's only done when asked for
+		int threadCount = 1;
+		boolean argIsTopic = false;
+		boolean argIsMemory = false;
+		boolean argIsThreads = false;
 		boolean help = false;
 		for (int i = start; i < args.length; ++i) {
 			String arg = args[i];
 			if (arg.equals("-h")) {
 				help = true;
 				break;
+			} else if (arg.equals("-cache")) {
+				useCache = true;
+			} else if (arg.equals("-index")) {
+				index = true;
+			} else if (arg.equals("-stats")) {
+				printStats = true;
+			} else if (arg.equals("-memory")) {
+				argIsMemory = true;
+			} else if (arg.equals("-offheap")) {
+				offHeap = true;
+			} else if (arg.equals("-j")) {
+				argIsThreads = true;
+			} else if (arg.equals("-topic")) {
+				argIsTopic = true;
+			} else if (argIsTopic) {
+				topics.add(arg);
+				argIsTopic = false;
+			} else if (argIsThreads) {
+				try {
+					threadCount = Integer.parseInt(arg);
+				} catch (NumberFormatException e) {
+					System.err.println("Invalid thread count " + arg + "!");
+					return;
+				}
+				if (threadCount < 1) {
+					System.err.println("Thread count must be at least 1!");
+					return;
+				}
+				argIsThreads = false;
+			} else if (argIsMemory) {
+				memoryBudget = arg;
+				argIsMemory = false;
 			} else {
 				if (fileName != null) {
 					System.err.println("Cannot specify multiple files!");
@@ -150,39 +286,334 @@ public class Main {
 			System.err.println("Must specify an input file!");
 			return;
 		}
+		if (memoryBudget != null && (fileName.equals("-") || useCache)) {
+			System.err.println("A memory budget needs a file to decode records from again, and can't use a cache!");
+			return;
+		}
+		final Loader loader;
 		if (fileName.equals("-")) {
-			try {
-				shellProcessInputStream(System.in);
-			} catch (IOException e) {
-				throw new UncheckedIOException(e);
-			}
+			loader = new Loader(System.in, Loader.Verbosity.NORMAL);
 		} else {
+			loader = new Loader(Path.of(fileName), Loader.Verbosity.NORMAL);
+			if (memoryBudget != null) {
+				try {
+					loader.setMemoryBudget((long) (Double.parseDouble(memoryBudget) * 1e6));
+				} catch (IllegalArgumentException e) {
+					System.err.println("Invalid memory budget " + memoryBudget + "!");
+					return;
+				}
+			}
+			if (useCache) {
+				// A cache holds decoded values, so it has to be filled by an eager load
+				loader.setUseCache(true);
+			} else {
+				// Payloads can be read back from the file, so only decode the ones that get used
+				loader.setLazy(true);
+			}
+			loader.setParallelism(threadCount);
+			// Saves an index next to the log for later print -start/-end windows
+			loader.setIndex(index);
+		}
+		if (!topics.isEmpty()) {
+			loader.setTopicFilter(topics);
+		}
+		// Aggregates over any range are then answered without a scan
+		loader.setBuildAggregates(true);
+		loader.setOffHeap(offHeap);
+		var stats = printStats ? new ParseStats() : null;
+		loader.setStats(stats);
+		try (loader) {
+			shellProcess(loader, fileName, stats);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void batchMain(String[] args, int start) {
+		List<String> patterns = new ArrayList<>();
+		int threadCount = Runtime.getRuntime().availableProcessors();
+		boolean argIsThreads = false;
+		boolean help = false;
+		for (int i = start; i < args.length; ++i) {
+			String arg = args[i];
+			if (arg.equals("-h")) {
+				help = true;
+				break;
+			} else if (arg.equals("-j")) {
+				argIsThreads = true;
+			} else if (argIsThreads) {
+				try {
+					threadCount = Integer.parseInt(arg);
+				} catch (NumberFormatException e) {
+					System.err.println("Invalid thread count " + arg + "!");
+					return;
+				}
+				if (threadCount < 1) {
+					System.err.println("Thread count must be at least 1!");
+					return;
+				}
+				argIsThreads = false;
+			} else {
+				patterns.add(arg);
+			}
+		}
+		if (help) {
+			System.out.println(BATCH_USAGE);
+			return;
+		}
+		if (patterns.isEmpty()) {
+			System.err.println("Must specify at least one input file, directory or glob!");
+			return;
+		}
+		// The same log can match more than one pattern
+		Set<Path> paths = new LinkedHashSet<>();
+		for (var pattern : patterns) {
 			try {
-				try (var inputStream = new FileInputStream(fileName)) {
-					try {
-						shellProcessInputStream(inputStream);
-					} catch (IOException e) {
-						throw new UncheckedIOException(e);
-					}
+				var found = Batch.findLogs(pattern);
+				if (found.isEmpty()) {
+					System.err.println("No logs found for " + pattern + "!");
 				}
-			} catch (FileNotFoundException e) {
-				throw new UncheckedIOException(e);
+				paths.addAll(found);
 			} catch (IOException e) {
-				throw new UncheckedIOException(e);
+				System.err.println("Could not search " + pattern + ": " + e.getMessage());
+			}
+		}
+		new Batch(new ArrayList<>(paths), threadCount).run();
+	}
+
+	private static void exportMain(String[] args, int start) {
+		String fileName = null;
+		String outputName = "-";
+		String format = "long";
+		boolean printStats = false;
+		List<String> topics = new ArrayList<>();
+		boolean argIsTopic = false;
+		boolean argIsOutput = false;
+		boolean argIsFormat = false;
+		boolean help = false;
+		for (int i = start; i < args.length; ++i) {
+			String arg = args[i];
+			if (arg.equals("-h")) {
+				help = true;
+				break;
+			} else if (arg.equals("-topic")) {
+				argIsTopic = true;
+			} else if (arg.equals("-o")) {
+				argIsOutput = true;
+			} else if (arg.equals("-format")) {
+				argIsFormat = true;
+			} else if (arg.equals("-stats")) {
+				printStats = true;
+			} else if (argIsTopic) {
+				topics.add(arg);
+				argIsTopic = false;
+			} else if (argIsOutput) {
+				outputName = arg;
+				argIsOutput = false;
+			} else if (argIsFormat) {
+				format = arg;
+				argIsFormat = false;
+			} else {
+				if (fileName != null) {
+					System.err.println("Cannot specify multiple files!");
+					return;
+				}
+				fileName = arg;
+			}
+		}
+		if (help) {
+			System.out.println(EXPORT_USAGE);
+			return;
+		}
+		if (fileName == null) {
+			System.err.println("Must specify an input file!");
+			return;
+		}
+		if (!format.equals("long") && !format.equals("wide") && !format.equals("columnar")) {
+			System.err.println("Unknown format " + format + "!");
+			return;
+		}
+		if (format.equals("wide") && fileName.equals("-")) {
+			System.err.println("The wide format needs a file to find the topics in first!");
+			return;
+		}
+		var topicFilter = topics.isEmpty() ? null : new TopicFilter(topics);
+		long startTime = System.nanoTime();
+		// Standard output is used unbuffered since the loggers write in large blocks already
+		try (var output = outputName.equals("-") ? new FileOutputStream(FileDescriptor.out) : Files.newOutputStream(Path.of(outputName))) {
+			Logger logger;
+			final Closeable closeable;
+			switch (format) {
+				case "wide" -> {
+					var wideLogger = new WideCsvLogger(output, WideCsvLogger.findTopics(Path.of(fileName), topicFilter));
+					logger = wideLogger;
+					closeable = wideLogger;
+				}
+				case "columnar" -> {
+					var columnarLogger = new ColumnarLogger(Channels.newChannel(output), topicFilter);
+					logger = columnarLogger;
+					closeable = columnarLogger;
+				}
+				default -> {
+					var longLogger = new LongCsvLogger(output, topicFilter);
+					logger = longLogger;
+					closeable = longLogger;
+				}
+			}
+			var stats = printStats ? new ParseStats() : null;
+			if (stats != null) {
+				logger = stats.wrap(logger);
+			}
+			long inputSize;
+			if (fileName.equals("-")) {
+				inputSize = WpiLogProcessor.processRecords(System.in, logger);
+				if (inputSize < 0) {
+					return;
+				}
+			} else {
+				var path = Path.of(fileName);
+				long firstRecordOffset = WpiLogProcessor.findFirstRecordOffset(path);
+				if (firstRecordOffset < 0) {
+					System.err.println(fileName + " is not a valid log!");
+					return;
+				}
+				WpiLogProcessor.process(path, logger, firstRecordOffset, Long.MAX_VALUE);
+				inputSize = Files.size(path);
+			}
+			closeable.close();
+			double seconds = (System.nanoTime() - startTime) / 1e9;
+			String outputSize = outputName.equals("-") ? "" : " to " + String.format("%.1f", Files.size(Path.of(outputName)) / 1e6) + " MB";
+			// Goes to stderr so it doesn't end up in exported data on stdout
+			System.err.println("Exported " + String.format("%.1f", inputSize / 1e6) + " MB of log" + outputSize + " in " + String.format("%.2f", seconds) + " s (" + String.format("%.1f", inputSize / 1e6 / seconds) + " MB/s)");
+			if (stats != null) {
+				stats.finish(inputSize);
+				stats.print();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void extractMain(String[] args, int start) {
+		String fileName = null;
+		String outputName = "-";
+		List<String> topics = new ArrayList<>();
+		String startTimestamp = null;
+		String endTimestamp = null;
+		boolean printStats = false;
+		boolean argIsTopic = false;
+		boolean argIsOutput = false;
+		boolean argIsStart = false;
+		boolean argIsEnd = false;
+		boolean help = false;
+		for (int i = start; i < args.length; ++i) {
+			String arg = args[i];
+			if (arg.equals("-h")) {
+				help = true;
+				break;
+			} else if (arg.equals("-topic")) {
+				argIsTopic = true;
+			} else if (arg.equals("-o")) {
+				argIsOutput = true;
+			} else if (arg.equals("-stats")) {
+				printStats = true;
+			} else if (arg.equals("-start")) {
+				argIsStart = true;
+			} else if (arg.equals("-end")) {
+				argIsEnd = true;
+			} else if (argIsTopic) {
+				topics.add(arg);
+				argIsTopic = false;
+			} else if (argIsOutput) {
+				outputName = arg;
+				argIsOutput = false;
+			} else if (argIsStart) {
+				startTimestamp = arg;
+				argIsStart = false;
+			} else if (argIsEnd) {
+				endTimestamp = arg;
+				argIsEnd = false;
+			} else {
+				if (fileName != null) {
+					System.err.println("Cannot specify multiple files!");
+					return;
+				}
+				fileName = arg;
+			}
+		}
+		if (help) {
+			System.out.println(EXTRACT_USAGE);
+			return;
+		}
+		if (fileName == null) {
+			System.err.println("Must specify an input file!");
+			return;
+		}
+		if (fileName.equals("-")) {
+			System.err.println("Can only extract from a file!");
+			return;
+		}
+		final long windowStart;
+		final long windowEnd;
+		try {
+			windowStart = startTimestamp == null ? 0 : Long.parseUnsignedLong(startTimestamp);
+			windowEnd = endTimestamp == null ? -1 : Long.parseUnsignedLong(endTimestamp);
+		} catch (NumberFormatException e) {
+			System.err.println("Invalid timestamp: " + e.getMessage());
+			return;
+		}
+		var topicFilter = topics.isEmpty() ? null : new TopicFilter(topics);
+		var path = Path.of(fileName);
+		long startTime = System.nanoTime();
+		try (var source = FileChannel.open(path, StandardOpenOption.READ)) {
+			String extraHeader = WpiLogProcessor.findExtraHeader(path);
+			if (extraHeader == null) {
+				System.err.println(fileName + " is not a valid log!");
+				return;
+			}
+			var output = outputName.equals("-") ? Channels.newChannel(new FileOutputStream(FileDescriptor.out)) : FileChannel.open(Path.of(outputName), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			var writer = new WpiLogWriter(output, extraHeader);
+			var logger = new ExtractLogger(writer, source, topicFilter, windowStart, windowEnd);
+			var stats = printStats ? new ParseStats() : null;
+			var processLogger = stats == null ? logger : stats.wrap(logger);
+			try (writer) {
+				if (startTimestamp != null || endTimestamp != null) {
+					SparseIndex.loadOrBuild(path).process(path, processLogger, windowStart, windowEnd);
+				} else {
+					WpiLogProcessor.process(path, processLogger, WpiLogProcessor.findFirstRecordOffset(path), Long.MAX_VALUE);
+				}
 			}
+			long inputSize = Files.size(path);
+			double seconds = (System.nanoTime() - startTime) / 1e9;
+			// Goes to stderr so it doesn't end up in the extracted log on stdout
+			if (stats != null) {
+				stats.finish(startTimestamp != null || endTimestamp != null ? -1 : inputSize);
+				stats.print();
+			}
+			System.err.println("Extracted " + writer.getRecordCount() + " records of " + logger.getEntryCount() + " entries from " + String.format("%.1f", inputSize / 1e6) + " MB of log to " + String.format("%.1f", writer.getSize() / 1e6) + " MB in " + String.format("%.2f", seconds) + " s (" + String.format("%.1f", inputSize / 1e6 / seconds) + " MB/s)");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
 
-	private static void shellProcessInputStream(InputStream inputStream) throws IOException {
-		var loader = new Loader(inputStream, Loader.Verbosity.NORMAL);
+	private static void shellProcess(Loader loader, String fileName, ParseStats stats) throws IOException {
+		boolean logFromStdin = fileName.equals("-");
 		System.out.println("Loading input...");
+		long startTime = System.nanoTime();
 		loader.load();
-		System.out.println("Listing " + loader.getIds().size() + " entries:");
-		for (long id : loader.getIds()) {
-			for (long timestamp : loader.getEntryStartTimestamps(id)) {
-				var entry = loader.getEntry(id, timestamp);
-				System.out.println("Id: " + id + ", timestamp: " + timestamp + ", entry name: " + entry.getName());
-			}
+		if (stats != null) {
+			stats.finish(logFromStdin ? -1 : Files.size(Path.of(fileName)));
+			stats.print();
+		}
+		var shell = new Shell(loader);
+		System.out.println("Loaded " + shell.getTopicCount() + " topics in " + String.format("%.2f", (System.nanoTime() - startTime) / 1e9) + " s");
+		if (logFromStdin) {
+			// Commands would come from stdin too, so the best we can do is list what's there
+			shell.execute("topics");
+			return;
 		}
+		// System.console() is only there when stdin and stdout are both a terminal
+		var input = new BufferedReader(new InputStreamReader(System.in, Charset.defaultCharset()));
+		shell.run(input, System.console() != null);
 	}
-}
\ No newline at end of file
+}
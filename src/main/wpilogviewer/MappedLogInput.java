@@ -0,0 +1,110 @@
+package wpilogviewer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+class MappedLogInput extends LogInput {
+	// A single mapping can't exceed 2 GiB, so bigger files are walked through a sliding window
+	private static final long WINDOW_SIZE = 1L << 30;
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	private final FileChannel channel;
+	// Bytes at or after this offset are treated as past the end of the log
+	private final long size;
+	private ByteBuffer buffer = EMPTY;
+	// File offset of the start of the current window
+	private long bufferStart;
+
+	public MappedLogInput(FileChannel channel, long start, long end) {
+		this.channel = channel;
+		this.size = end;
+		this.bufferStart = start;
+	}
+
+	@Override
+	long position() {
+		return bufferStart + buffer.position();
+	}
+
+	private void map(long start, long minLength) throws IOException {
+		long length = Math.min(size - start, Math.max(WINDOW_SIZE, minLength));
+		var event = new LogReadEvent();
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length).order(ByteOrder.LITTLE_ENDIAN);
+		bufferStart = start;
+		event.end(start, length);
+	}
+
+	private void ensure(int length) throws IOException {
+		if (buffer.remaining() >= length) {
+			return;
+		}
+		long position = position();
+		if (size - position < length) {
+			throw new EOFException("Expected " + length + " bytes, but only " + (size - position) + " remain");
+		}
+		map(position, length);
+	}
+
+	@Override
+	int read() throws IOException {
+		if (!buffer.hasRemaining()) {
+			if (position() >= size) {
+				return -1;
+			}
+			map(position(), 1);
+		}
+		return buffer.get() & 0xFF;
+	}
+
+	@Override
+	int readInt(int length) throws IOException {
+		ensure(length);
+		if (length == 4) {
+			return buffer.getInt();
+		}
+		int value = 0;
+		for (int i = 0; i < length; ++i) {
+			value |= (buffer.get() & 0xFF) << (8 * i);
+		}
+		return value;
+	}
+
+	@Override
+	long readLong(int length) throws IOException {
+		ensure(length);
+		if (length == 8) {
+			return buffer.getLong();
+		}
+		long value = 0;
+		for (int i = 0; i < length; ++i) {
+			value |= (buffer.get() & 0xFFL) << (8 * i);
+		}
+		return value;
+	}
+
+	@Override
+	byte[] readBytes(int length) throws IOException {
+		ensure(length);
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	@Override
+	void skip(long length) throws IOException {
+		if (length <= buffer.remaining()) {
+			buffer.position(buffer.position() + (int) length);
+			return;
+		}
+		long target = position() + length;
+		if (target > size) {
+			throw new EOFException("Cannot skip " + length + " bytes, only " + (size - position()) + " remain");
+		}
+		// Remap lazily on the next read
+		buffer = EMPTY;
+		bufferStart = target;
+	}
+}
@@ -0,0 +1,58 @@
+package wpilogviewer;
+
+import java.util.function.Supplier;
+
+// Forwards everything to several Loggers, so one pass over a log can feed all of them
+public class MultiLogger implements Logger {
+	private final Logger[] loggers;
+
+	public MultiLogger(Logger... loggers) {
+		this.loggers = loggers;
+	}
+
+	@Override
+	public void logStart(long entryId, String entryName, String entryType, String entryMetadata, long timestamp) {
+		for (var logger : loggers) {
+			logger.logStart(entryId, entryName, entryType, entryMetadata, timestamp);
+		}
+	}
+
+	@Override
+	public void logFinish(long entryId, long timestamp) {
+		for (var logger : loggers) {
+			logger.logFinish(entryId, timestamp);
+		}
+	}
+
+	@Override
+	public void logSetMetadata(long entryId, long timestamp, String newMetadata) {
+		for (var logger : loggers) {
+			logger.logSetMetadata(entryId, timestamp, newMetadata);
+		}
+	}
+
+	@Override
+	public boolean wantsValues(long entryId) {
+		for (var logger : loggers) {
+			if (logger.wantsValues(entryId)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void logValue(long entryId, long timestamp, Supplier<byte[]> payloadSupplier) {
+		for (var logger : loggers) {
+			logger.logValue(entryId, timestamp, payloadSupplier);
+		}
+	}
+
+	// The payload supplier only reads the payload once, so every logger can ask for it
+	@Override
+	public void logValue(long entryId, long timestamp, long payloadOffset, int payloadSize, Supplier<byte[]> payloadSupplier) {
+		for (var logger : loggers) {
+			logger.logValue(entryId, timestamp, payloadOffset, payloadSize, payloadSupplier);
+		}
+	}
+}
@@ -0,0 +1,297 @@
+package wpilogviewer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+// Counts what a pass over a log went through and how long the Loggers took with it. Loggers handed out by wrap
+// do the counting, each on its own, so chunks of a parallel load don't contend; finish adds them up.
+public class ParseStats {
+	// Payload sizes are counted in power of two buckets: 0, 1, 2-3, 4-7 and so on
+	private static final int SIZE_BUCKETS = 33;
+
+	public static class EntryStats {
+		private String name = null;
+		private String type = null;
+		private long recordCount = 0;
+		private long payloadBytes = 0;
+		private long loggerNanos = 0;
+
+		private void add(EntryStats other) {
+			if (other.name != null) {
+				name = other.name;
+				type = other.type;
+			}
+			recordCount += other.recordCount;
+			payloadBytes += other.payloadBytes;
+			loggerNanos += other.loggerNanos;
+		}
+
+		// Name and type of the latest start of the id, or null if its start wasn't counted
+		public String getName() {
+			return name;
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		public long getRecordCount() {
+			return recordCount;
+		}
+
+		public long getPayloadBytes() {
+			return payloadBytes;
+		}
+
+		// Time the wrapped Logger spent on the values of the id, which is decoding and storing them for a load
+		public long getLoggerNanos() {
+			return loggerNanos;
+		}
+	}
+
+	private class CountingLogger implements Logger {
+		private final Logger logger;
+		private final boolean countControl;
+		private final boolean countValues;
+		private long controlRecordCount = 0;
+		private final long[] payloadSizeCounts = new long[SIZE_BUCKETS];
+		private final Map<Long, EntryStats> idToStats = new HashMap<>();
+
+		public CountingLogger(Logger logger, boolean countControl, boolean countValues) {
+			this.logger = logger;
+			this.countControl = countControl;
+			this.countValues = countValues;
+		}
+
+		private EntryStats getStats(long entryId) {
+			return idToStats.computeIfAbsent(entryId, key -> new EntryStats());
+		}
+
+		@Override
+		public void logStart(long entryId, String entryName, String entryType, String entryMetadata, long timestamp) {
+			logger.logStart(entryId, entryName, entryType, entryMetadata, timestamp);
+			if (countControl) {
+				++controlRecordCount;
+				var stats = getStats(entryId);
+				stats.name = entryName;
+				stats.type = entryType;
+			}
+		}
+
+		@Override
+		public void logFinish(long entryId, long timestamp) {
+			logger.logFinish(entryId, timestamp);
+			if (countControl) {
+				++controlRecordCount;
+			}
+		}
+
+		@Override
+		public void logSetMetadata(long entryId, long timestamp, String newMetadata) {
+			logger.logSetMetadata(entryId, timestamp, newMetadata);
+			if (countControl) {
+				++controlRecordCount;
+			}
+		}
+
+		@Override
+		public boolean wantsValues(long entryId) {
+			return logger.wantsValues(entryId);
+		}
+
+		// Processors call the other version; Loggers called with this one mostly read the payload anyway
+		@Override
+		public void logValue(long entryId, long timestamp, Supplier<byte[]> payloadSupplier) {
+			if (!countValues) {
+				logger.logValue(entryId, timestamp, payloadSupplier);
+				return;
+			}
+			long startTime = System.nanoTime();
+			logger.logValue(entryId, timestamp, payloadSupplier);
+			countValue(entryId, payloadSupplier.get().length, System.nanoTime() - startTime);
+		}
+
+		@Override
+		public void logValue(long entryId, long timestamp, long payloadOffset, int payloadSize, Supplier<byte[]> payloadSupplier) {
+			if (!countValues) {
+				logger.logValue(entryId, timestamp, payloadOffset, payloadSize, payloadSupplier);
+				return;
+			}
+			long startTime = System.nanoTime();
+			logger.logValue(entryId, timestamp, payloadOffset, payloadSize, payloadSupplier);
+			countValue(entryId, payloadSize, System.nanoTime() - startTime);
+		}
+
+		private void countValue(long entryId, int payloadSize, long nanos) {
+			var stats = getStats(entryId);
+			++stats.recordCount;
+			stats.payloadBytes += payloadSize;
+			stats.loggerNanos += nanos;
+			++payloadSizeCounts[32 - Integer.numberOfLeadingZeros(payloadSize)];
+		}
+	}
+
+	private final long startTime = System.nanoTime();
+	private final List<CountingLogger> loggers = new ArrayList<>();
+	private boolean finished = false;
+	private long elapsedNanos = 0;
+	private long inputBytes = -1;
+	private long controlRecordCount = 0;
+	private long valueCount = 0;
+	private long payloadBytes = 0;
+	private long loggerNanos = 0;
+	private final long[] payloadSizeCounts = new long[SIZE_BUCKETS];
+	private final Map<Long, EntryStats> idToStats = new TreeMap<>();
+
+	// Counts the control records and values that go through logger
+	public Logger wrap(Logger logger) {
+		return wrap(logger, true, true);
+	}
+
+	// Passes that only apply control records or only decode values can each count just their part, so nothing
+	// gets counted twice
+	public synchronized Logger wrap(Logger logger, boolean countControl, boolean countValues) {
+		if (finished) {
+			throw new IllegalStateException("Cannot count more records after finishing");
+		}
+		var countingLogger = new CountingLogger(logger, countControl, countValues);
+		loggers.add(countingLogger);
+		return countingLogger;
+	}
+
+	// Adds up what the wrapped loggers counted once they're done; inputBytes is the size of the log, or -1 if it
+	// isn't known
+	public synchronized void finish(long inputBytes) {
+		if (finished) {
+			throw new IllegalStateException("Already finished");
+		}
+		finished = true;
+		elapsedNanos = System.nanoTime() - startTime;
+		this.inputBytes = inputBytes;
+		for (var logger : loggers) {
+			controlRecordCount += logger.controlRecordCount;
+			for (int i = 0; i < SIZE_BUCKETS; ++i) {
+				payloadSizeCounts[i] += logger.payloadSizeCounts[i];
+			}
+			for (var mapEntry : logger.idToStats.entrySet()) {
+				idToStats.computeIfAbsent(mapEntry.getKey(), key -> new EntryStats()).add(mapEntry.getValue());
+			}
+		}
+		for (var stats : idToStats.values()) {
+			valueCount += stats.recordCount;
+			payloadBytes += stats.payloadBytes;
+			loggerNanos += stats.loggerNanos;
+		}
+		loggers.clear();
+	}
+
+	private void checkFinished() {
+		if (!finished) {
+			throw new IllegalStateException("Stats are only available after finishing");
+		}
+	}
+
+	public long getElapsedNanos() {
+		checkFinished();
+		return elapsedNanos;
+	}
+
+	// Falls back to the payload bytes when the size of the log isn't known
+	public long getInputBytes() {
+		checkFinished();
+		return inputBytes < 0 ? payloadBytes : inputBytes;
+	}
+
+	public long getRecordCount() {
+		checkFinished();
+		return controlRecordCount + valueCount;
+	}
+
+	public long getControlRecordCount() {
+		checkFinished();
+		return controlRecordCount;
+	}
+
+	public long getValueCount() {
+		checkFinished();
+		return valueCount;
+	}
+
+	public long getPayloadBytes() {
+		checkFinished();
+		return payloadBytes;
+	}
+
+	// Summed over threads, so it can be more than the elapsed time for a parallel load
+	public long getLoggerNanos() {
+		checkFinished();
+		return loggerNanos;
+	}
+
+	// Number of payloads of 0 bytes at index 0, and of [2^(i - 1), 2^i) bytes at index i after that
+	public long[] getPayloadSizeCounts() {
+		checkFinished();
+		return payloadSizeCounts.clone();
+	}
+
+	// Stats of every entry id that was started or got values, by id
+	public Map<Long, EntryStats> getEntryStats() {
+		checkFinished();
+		return Collections.unmodifiableMap(idToStats);
+	}
+
+	// Records and time the Logger spent on them by entry type
+	public Map<String, EntryStats> getTypeStats() {
+		checkFinished();
+		Map<String, EntryStats> typeToStats = new TreeMap<>();
+		for (var stats : idToStats.values()) {
+			var typeStats = typeToStats.computeIfAbsent(stats.type == null ? "unknown" : stats.type, key -> new EntryStats());
+			typeStats.recordCount += stats.recordCount;
+			typeStats.payloadBytes += stats.payloadBytes;
+			typeStats.loggerNanos += stats.loggerNanos;
+		}
+		return typeToStats;
+	}
+
+	private static String format(double value) {
+		return String.format("%.1f", value);
+	}
+
+	// Goes to stderr so it doesn't end up in output on stdout
+	public void print() {
+		checkFinished();
+		double seconds = elapsedNanos / 1e9;
+		double megabytes = getInputBytes() / 1e6;
+		System.err.println("Parsed " + format(megabytes) + " MB in " + String.format("%.3f", seconds) + " s (" + format(megabytes / seconds) + " MB/s), " + getRecordCount() + " records (" + format(getRecordCount() / seconds / 1e6) + " M records/s)");
+		System.err.println("\t" + controlRecordCount + " control records, " + valueCount + " values with " + format(payloadBytes / 1e6) + " MB of payloads");
+		System.err.println("\t" + String.format("%.3f", loggerNanos / 1e9) + " s in loggers (decoding and storing values), the rest in reading and record headers");
+		System.err.println("By type:");
+		for (var typeEntry : getTypeStats().entrySet()) {
+			var stats = typeEntry.getValue();
+			if (stats.recordCount == 0) {
+				continue;
+			}
+			System.err.println("\t" + typeEntry.getKey() + ": " + stats.recordCount + " values, " + format(stats.payloadBytes / 1e6) + " MB, " + format((double) stats.loggerNanos / stats.recordCount) + " ns/value");
+		}
+		System.err.println("Payload sizes:");
+		for (int i = 0; i < SIZE_BUCKETS; ++i) {
+			if (payloadSizeCounts[i] == 0) {
+				continue;
+			}
+			long low = i == 0 ? 0 : 1L << (i - 1);
+			long high = i == 0 ? 0 : (1L << i) - 1;
+			String range = low == high ? String.valueOf(low) : low + "-" + high;
+			System.err.println("\t" + range + " B: " + payloadSizeCounts[i]);
+		}
+		System.err.println("By entry:");
+		for (var mapEntry : idToStats.entrySet()) {
+			var stats = mapEntry.getValue();
+			System.err.println("\t" + mapEntry.getKey() + " " + stats.name + " (" + stats.type + "): " + stats.recordCount + " values, " + stats.payloadBytes + " B");
+		}
+	}
+}
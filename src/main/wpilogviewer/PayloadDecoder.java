@@ -0,0 +1,41 @@
+package wpilogviewer;
+
+// Turns the payloads of one entry type into calls on a PayloadSink, so the type only needs to be looked up once per
+// entry instead of once per value
+public interface PayloadDecoder {
+	// The type whose sink calls this decoder makes, which is how loaded entries pick how to store values. Decoders for
+	// custom types should return the built-in type they decode into, like "double[]"
+	String getValueType();
+
+	// Struct decoders hand their payloads to structValue, and each primitive field of them decodes into a value of
+	// its own with the decoder of the field, named by its path in the struct like translation.x. Others have none.
+	default int getFieldCount() {
+		return 0;
+	}
+
+	default String getFieldName(int field) {
+		return null;
+	}
+
+	default PayloadDecoder getFieldDecoder(int field) {
+		return null;
+	}
+
+	// Whether a payload of size bytes can decode into a value, so lazily loaded entries can leave out the ones that
+	// can't without reading them. Payloads of the right size can still be invalid if canHaveInvalidContent.
+	default boolean isValidSize(int size) {
+		return true;
+	}
+
+	// Whether payloads of a valid size can still fail to decode, so lazily loaded entries have to read them with
+	// isValid to leave out the same ones decoding does
+	default boolean canHaveInvalidContent() {
+		return false;
+	}
+
+	default boolean isValid(byte[] payload) {
+		return isValidSize(payload.length);
+	}
+
+	<T> void decode(long entryId, byte[] payload, PayloadSink<T> sink, T target, long timestamp);
+}
@@ -0,0 +1,269 @@
+package wpilogviewer;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Registry of the decoders for each entry type, with the WPILib types built in. Struct types need the schemas their log
+// logged as /.schema/struct:<name> entries, so their decoders come from the StructSchemas of the log.
+public class PayloadDecoders {
+	public static final String STRUCT_SCHEMA_TYPE = "structschema";
+	public static final String STRUCT_SCHEMA_PREFIX = "/.schema/struct:";
+	private static final String STRUCT_PREFIX = "struct:";
+
+	private enum Builtin implements PayloadDecoder {
+		RAW("raw") {
+			@Override
+			public <T> void decode(long entryId, byte[] payload, PayloadSink<T> sink, T target, long timestamp) {
+				sink.rawValue(target, timestamp, payload);
+			}
+		},
+		BOOLEAN("boolean", 1, false) {
+			@Override
+			public <T> void decode(long entryId, byte[] payload, PayloadSink<T> sink, T target, long timestamp) {
+				if (payload.length != 1) {
+					sink.invalid(target, timestamp, invalidSize("boolean", entryId, payload));
+					return;
+				}
+				if (payload[0] < 0 || payload[0] > 1) {
+					sink.invalid(target, timestamp, "Got invalid payload for boolean entry " + entryId + ": " + payload[0] + "!");
+					return;
+				}
+				sink.booleanValue(target, timestamp, payload[0] == 1);
+			}
+		},
+		INT64("int64", 8, false) {
+			@Override
+			public <T> void decode(long entryId, byte[] payload, PayloadSink<T> sink, T target, long timestamp) {
+				if (payload.length != 8) {
+					sink.invalid(target, timestamp, invalidSize("int64", entryId, payload));
+					return;
+				}
+				sink.int64Value(target, timestamp, Util.longAt(payload, 0));
+			}
+		},
+		FLOAT("float", 4, false) {
+			@Override
+			public <T> void decode(long entryId, byte[] payload, PayloadSink<T> sink, T target, long timestamp) {
+				if (payload.length != 4) {
+					sink.invalid(target, timestamp, invalidSize("float", entryId, payload));
+					return;
+				}
+				sink.floatValue(target, timestamp, Float.intBitsToFloat(Util.intAt(payload, 0)));
+			}
+		},
+		DOUBLE("double", 8, false) {
+			@Override
+			public <T> void decode(long entryId, byte[] payload, PayloadSink<T> sink, T target, long timestamp) {
+				if (payload.length != 8) {
+					sink.invalid(target, timestamp, invalidSize("double", entryId, payload));
+					return;
+				}
+				sink.doubleValue(target, timestamp, Double.longBitsToDouble(Util.longAt(payload, 0)));
+			}
+		},
+		STRING("string") {
+			@Override
+			public <T> void decode(long entryId, byte[] payload, PayloadSink<T> sink, T target, long timestamp) {
+				sink.stringValue(target, timestamp, payload);
+			}
+		},
+		BOOLEAN_ARRAY("boolean[]") {
+			@Override
+			public <T> void decode(long entryId, byte[] payload, PayloadSink<T> sink, T target, long timestamp) {
+				if (!Util.isBooleanArray(payload)) {
+					sink.invalid(target, timestamp, "Got invalid payload for boolean array entry " + entryId + ": " + Arrays.toString(payload));
+					return;
+				}
+				sink.booleanArrayValue(target, timestamp, payload);
+			}
+		},
+		INT64_ARRAY("int64[]", 8, true) {
+			@Override
+			public <T> void decode(long entryId, byte[] payload, PayloadSink<T> sink, T target, long timestamp) {
+				if (payload.length % 8 != 0) {
+					sink.invalid(target, timestamp, invalidSize("int64[]", entryId, payload));
+					return;
+				}
+				sink.int64ArrayValue(target, timestamp, payload);
+			}
+		},
+		FLOAT_ARRAY("float[]", 4, true) {
+			@Override
+			public <T> void decode(long entryId, byte[] payload, PayloadSink<T> sink, T target, long timestamp) {
+				if (payload.length % 4 != 0) {
+					sink.invalid(target, timestamp, invalidSize("float[]", entryId, payload));
+					return;
+				}
+				sink.floatArrayValue(target, timestamp, payload);
+			}
+		},
+		DOUBLE_ARRAY("double[]", 8, true) {
+			@Override
+			public <T> void decode(long entryId, byte[] payload, PayloadSink<T> sink, T target, long timestamp) {
+				if (payload.length % 8 != 0) {
+					sink.invalid(target, timestamp, invalidSize("double[]", entryId, payload));
+					return;
+				}
+				sink.doubleArrayValue(target, timestamp, payload);
+			}
+		},
+		STRING_ARRAY("string[]") {
+			@Override
+			public <T> void decode(long entryId, byte[] payload, PayloadSink<T> sink, T target, long timestamp) {
+				int end = stringArrayEnd(payload);
+				if (end < 0) {
+					sink.invalid(target, timestamp, invalidSize("string[]", entryId, payload));
+					return;
+				}
+				if (end != payload.length) {
+					sink.warn(target, timestamp, "Warning: string array did not consume last " + (payload.length - end) + " bytes of the payload");
+				}
+				sink.stringArrayValue(target, timestamp, payload);
+			}
+		};
+
+		private final String valueType;
+		// Size of the value or of each element of an array value, or 0 if payloads can have any size
+		private final int elementSize;
+		private final boolean array;
+
+		private Builtin(String valueType) {
+			this(valueType, 0, false);
+		}
+
+		private Builtin(String valueType, int elementSize, boolean array) {
+			this.valueType = valueType;
+			this.elementSize = elementSize;
+			this.array = array;
+		}
+
+		@Override
+		public String getValueType() {
+			return valueType;
+		}
+
+		@Override
+		public boolean isValidSize(int size) {
+			if (elementSize == 0) {
+				return true;
+			}
+			return array ? size % elementSize == 0 : size == elementSize;
+		}
+
+		@Override
+		public boolean canHaveInvalidContent() {
+			return switch (this) {
+				case BOOLEAN, BOOLEAN_ARRAY, STRING_ARRAY -> true;
+				default -> false;
+			};
+		}
+
+		@Override
+		public boolean isValid(byte[] payload) {
+			return switch (this) {
+				case BOOLEAN -> payload.length == 1 && payload[0] >= 0 && payload[0] <= 1;
+				case BOOLEAN_ARRAY -> Util.isBooleanArray(payload);
+				case STRING_ARRAY -> stringArrayEnd(payload) >= 0;
+				default -> isValidSize(payload.length);
+			};
+		}
+	}
+
+	private static class Unknown implements PayloadDecoder {
+		private final String type;
+
+		public Unknown(String type) {
+			this.type = type;
+		}
+
+		@Override
+		public String getValueType() {
+			return type;
+		}
+
+		@Override
+		public <T> void decode(long entryId, byte[] payload, PayloadSink<T> sink, T target, long timestamp) {
+			sink.unknownValue(target, timestamp, payload);
+		}
+	}
+
+	private static final Map<String, PayloadDecoder> typeToDecoder = new ConcurrentHashMap<>();
+
+	static {
+		typeToDecoder.put("raw", Builtin.RAW);
+		typeToDecoder.put("rawBytes", Builtin.RAW);
+		typeToDecoder.put("boolean", Builtin.BOOLEAN);
+		typeToDecoder.put("int64", Builtin.INT64);
+		typeToDecoder.put("float", Builtin.FLOAT);
+		typeToDecoder.put("double", Builtin.DOUBLE);
+		typeToDecoder.put("json", Builtin.STRING);
+		typeToDecoder.put("string", Builtin.STRING);
+		typeToDecoder.put("boolean[]", Builtin.BOOLEAN_ARRAY);
+		typeToDecoder.put("int64[]", Builtin.INT64_ARRAY);
+		typeToDecoder.put("float[]", Builtin.FLOAT_ARRAY);
+		typeToDecoder.put("double[]", Builtin.DOUBLE_ARRAY);
+		typeToDecoder.put("string[]", Builtin.STRING_ARRAY);
+	}
+
+	// Returns where the last string of a string[] payload ends, or -1 if the strings don't fit in the payload
+	private static int stringArrayEnd(byte[] payload) {
+		if (payload.length < 4) {
+			return -1;
+		}
+		int arrayLength = Util.intFromBytes(payload, 0, 4);
+		if (arrayLength < 0) {
+			return -1;
+		}
+		int payloadIndex = 4;
+		for (int i = 0; i < arrayLength; ++i) {
+			if (payload.length - payloadIndex < 4) {
+				return -1;
+			}
+			int stringLength = Util.intFromBytes(payload, payloadIndex, 4);
+			payloadIndex += 4;
+			if (stringLength < 0 || payload.length - payloadIndex < stringLength) {
+				return -1;
+			}
+			payloadIndex += stringLength;
+		}
+		return payloadIndex;
+	}
+
+	private static String invalidSize(String typeName, long entryId, byte[] payload) {
+		return "Got invalid payload for " + typeName + " entry " + entryId + " of size " + payload.length + "! (" + Arrays.toString(payload) + ")";
+	}
+
+	// Entries of this type that start from now on decode with decoder, which replaces any earlier one
+	public static void register(String type, PayloadDecoder decoder) {
+		typeToDecoder.put(type, decoder);
+	}
+
+	// Never null; types without a decoder get one that passes payloads on as unknown values
+	public static PayloadDecoder forType(String type) {
+		var decoder = typeToDecoder.get(type);
+		return decoder == null ? new Unknown(type) : decoder;
+	}
+
+	// Like forType, but also knows that struct schema entries hold strings
+	public static PayloadDecoder forEntry(String name, String type) {
+		return isStructSchema(name, type) ? Builtin.STRING : forType(type);
+	}
+
+	// Null if no decoder was registered for the type
+	static PayloadDecoder registered(String type) {
+		return typeToDecoder.get(type);
+	}
+
+	public static boolean isStructSchema(String name, String type) {
+		return type.equals(STRUCT_SCHEMA_TYPE) && name.startsWith(STRUCT_SCHEMA_PREFIX);
+	}
+
+	static boolean isStructType(String type) {
+		return type.startsWith(STRUCT_PREFIX);
+	}
+
+	static String structName(String type) {
+		return type.substring(STRUCT_PREFIX.length(), type.length() - (type.endsWith("[]") ? 2 : 0));
+	}
+}
@@ -0,0 +1,46 @@
+package wpilogviewer;
+
+// Receives the values a PayloadDecoder finds in payloads. Numeric arrays come as their little-endian payload so sinks
+// that only print them don't have to make an array; target and timestamp are passed through from the decode call
+public interface PayloadSink<T> {
+	void rawValue(T target, long timestamp, byte[] payload);
+
+	void booleanValue(T target, long timestamp, boolean value);
+
+	void int64Value(T target, long timestamp, long value);
+
+	void floatValue(T target, long timestamp, float value);
+
+	void doubleValue(T target, long timestamp, double value);
+
+	// UTF-8 text of a string or json value
+	void stringValue(T target, long timestamp, byte[] payload);
+
+	// One byte per element, each 0 or 1
+	void booleanArrayValue(T target, long timestamp, byte[] payload);
+
+	// 8 bytes per element
+	void int64ArrayValue(T target, long timestamp, byte[] payload);
+
+	// 4 bytes per element
+	void floatArrayValue(T target, long timestamp, byte[] payload);
+
+	// 8 bytes per element
+	void doubleArrayValue(T target, long timestamp, byte[] payload);
+
+	// A 4-byte count, then that many strings as a 4-byte length and UTF-8 text, all of which fit in the payload
+	void stringArrayValue(T target, long timestamp, byte[] payload);
+
+	// A struct or struct array whose size fits the layout of the struct, with one value per field from the field
+	// decoders of the decoder
+	void structValue(T target, long timestamp, byte[] payload);
+
+	// Payload of a type without a decoder
+	void unknownValue(T target, long timestamp, byte[] payload);
+
+	// The payload didn't fit the type, and no value follows
+	void invalid(T target, long timestamp, String message);
+
+	// Something about the payload was off, but the value still follows
+	void warn(T target, long timestamp, String message);
+}
@@ -1,7 +1,7 @@
 package wpilogviewer;
 
-import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
 
@@ -10,25 +10,43 @@ public class PrintLogger implements Logger {
 		public final long id;
 		public final String name;
 		public final String type;
+		public final PayloadDecoder decoder;
 		public String metadata;
 
-		public Entry(long id, String name, String type, String metadata) {
+		public Entry(long id, String name, String type, String metadata, PayloadDecoder decoder) {
 			this.id = id;
 			this.name = name;
 			this.type = type;
+			this.decoder = decoder;
 			this.metadata = metadata;
 		}
 	}
 
-	private final String nameFilter;
+	private final TopicFilter topicFilter;
 	private final boolean logControl;
 	private final boolean logValue;
 	private final Map<Long, Entry> idToEntry = new HashMap<>();
+	private final StructSchemas structSchemas = new StructSchemas();
+	// Null to print each line to System.out
+	private final TextOutput output;
+	// Reused for every line when printing to System.out
+	private final StringBuilder line = new StringBuilder(256);
+	private final ValuePrinter valuePrinter = new ValuePrinter();
 
-	public PrintLogger(String nameFilter, boolean logControl, boolean logValue) {
-		this.nameFilter = nameFilter;
+	// Lines are formatted without going through Strings and written to output, in the same format as System.out gets
+	public PrintLogger(TopicFilter topicFilter, boolean logControl, boolean logValue, TextOutput output) {
+		this.topicFilter = topicFilter;
 		this.logControl = logControl;
 		this.logValue = logValue;
+		this.output = output;
+	}
+
+	public PrintLogger(TopicFilter topicFilter, boolean logControl, boolean logValue) {
+		this(topicFilter, logControl, logValue, null);
+	}
+
+	public PrintLogger(String nameFilter, boolean logControl, boolean logValue) {
+		this(nameFilter == null ? null : new TopicFilter(List.of(nameFilter)), logControl, logValue);
 	}
 
 	private boolean hasEntry(long id) {
@@ -47,18 +65,75 @@ public class PrintLogger implements Logger {
 		return idToEntry.get(id);
 	}
 
+	private StringBuilder startLine() {
+		if (output != null) {
+			return output.startLine();
+		}
+		line.setLength(0);
+		return line;
+	}
+
+	private void endLine(StringBuilder builder) {
+		if (output != null) {
+			output.endLine();
+		} else {
+			System.out.println(builder);
+		}
+	}
+
+	private void printLine(String text) {
+		var builder = startLine();
+		builder.append(text);
+		endLine(builder);
+	}
+
+	// Same as Long.toUnsignedString
+	private static StringBuilder appendUnsigned(StringBuilder builder, long value) {
+		return value >= 0 ? builder.append(value) : builder.append(Long.toUnsignedString(value));
+	}
+
+	// Same as Arrays.toString(bytes)
+	private static StringBuilder appendBytes(StringBuilder builder, byte[] bytes) {
+		builder.append('[');
+		for (int i = 0; i < bytes.length; ++i) {
+			if (i != 0) {
+				builder.append(", ");
+			}
+			builder.append(bytes[i]);
+		}
+		return builder.append(']');
+	}
+
+	// Same as appending new String(bytes, start, length, UTF_8), but ASCII doesn't need the String
+	private static StringBuilder appendUtf8(StringBuilder builder, byte[] bytes, int start, int length) {
+		int end = start + length;
+		for (int i = start; i < end; ++i) {
+			if (bytes[i] < 0) {
+				// UTF-8 decodes the same from any ASCII boundary
+				return builder.append(Util.utf8StringFromBytes(bytes, i, end - i));
+			}
+			builder.append((char) bytes[i]);
+		}
+		return builder;
+	}
+
 	@Override
 	public void logStart(long entryId, String entryName, String entryType, String entryMetadata, long timestamp) {
 		if (hasEntry(entryId)) {
 			var oldEntry = getEntry(entryId);
-			System.out.println("Note: Overriding existing entry with id " + entryId + " and name " + oldEntry.name + "!");
+			var builder = startLine();
+			builder.append("Note: Overriding existing entry with id ").append(entryId).append(" and name ").append(oldEntry.name).append('!');
+			endLine(builder);
 		}
-		var entry = new Entry(entryId, entryName, entryType, entryMetadata);
+		var entry = new Entry(entryId, entryName, entryType, entryMetadata, structSchemas.forEntry(entryName, entryType));
 		addEntry(entryId, entry);
 		if (!logControl) {
 			return;
 		}
-		System.out.println("Got Start record at " + Long.toUnsignedString(timestamp) + " for entry ID " + entry.id + ", name \"" + entry.name + "\", type \"" + entry.type + "\", and metadata \"" + entry.metadata + "\"");
+		var builder = startLine();
+		builder.append("Got Start record at ");
+		appendUnsigned(builder, timestamp).append(" for entry ID ").append(entry.id).append(", name \"").append(entry.name).append("\", type \"").append(entry.type).append("\", and metadata \"").append(entry.metadata).append('"');
+		endLine(builder);
 	}
 
 	@Override
@@ -71,7 +146,9 @@ public class PrintLogger implements Logger {
 		if (!logControl) {
 			return;
 		}
-		System.out.println("Got Finish record at " + timestamp + " for entry ID " + entry.id + " (name \"" + entry.name + "\")");
+		var builder = startLine();
+		builder.append("Got Finish record at ").append(timestamp).append(" for entry ID ").append(entry.id).append(" (name \"").append(entry.name).append("\")");
+		endLine(builder);
 	}
 
 	@Override
@@ -85,7 +162,23 @@ public class PrintLogger implements Logger {
 		if (!logControl) {
 			return;
 		}
-		System.out.println("Got Set Metadata record at " + Long.toUnsignedString(timestamp) + " for entry ID " + entry.id + " (name \"" + entry.name + "\") to \"" + newMetadata + "\"");
+		var builder = startLine();
+		builder.append("Got Set Metadata record at ");
+		appendUnsigned(builder, timestamp).append(" for entry ID ").append(entry.id).append(" (name \"").append(entry.name).append("\") to \"").append(newMetadata).append('"');
+		endLine(builder);
+	}
+
+	@Override
+	public boolean wantsValues(long entryId) {
+		// Lets the processor skip values we'd throw away without even reading them
+		if (!logValue) {
+			return false;
+		}
+		if (topicFilter == null) {
+			return true;
+		}
+		var entry = getEntry(entryId);
+		return topicFilter.matches(entry.name) || PayloadDecoders.isStructSchema(entry.name, entry.type);
 	}
 
 	@Override
@@ -99,124 +192,150 @@ public class PrintLogger implements Logger {
 			return;
 		}
 		var entry = getEntry(entryId);
-		if (nameFilter != null && !entry.name.equals(nameFilter)) {
+		// Topics that are printed may need the schema even if it isn't printed itself
+		if (PayloadDecoders.isStructSchema(entry.name, entry.type)) {
+			try {
+				structSchemas.register(entry.name, Util.utf8StringFromBytes(payloadSupplier.get()));
+			} catch (IllegalArgumentException e) {
+				System.err.println("Could not parse struct schema of entry " + entry.id + ": " + e.getMessage());
+			}
+		}
+		if (topicFilter != null && !topicFilter.matches(entry.name)) {
 			return;
 		}
-		byte[] payload = payloadSupplier.get();
-		boolean knownType = true;
-		final String valueString;
-		switch (entry.type) {
-			case "raw", "rawBytes" -> {
-				valueString = Arrays.toString(payload);
-			}
-			case "boolean" -> {
-				if (payload.length != 1) {
-					System.out.println("Got invalid payload for boolean entry " + entry.id + " of size " + payload.length + "! (" + Arrays.toString(payload) + ")");
-					return;
-				}
-				if (payload[0] < 0 || payload[0] > 1) {
-					System.out.println("Got invalid payload for boolean entry " + entry.id + ": " + payload[0] + "!");
-					return;
-				}
-				boolean value = payload[0] == 1;
-				valueString = String.valueOf(value);
-			}
-			case "int64" -> {
-				if (payload.length != 8) {
-					System.out.println("Got invalid payload for int64 entry " + entry.id + " of size " + payload.length + "! (" + Arrays.toString(payload) + ")");
-					return;
-				}
-				long value = Util.longFromBytes(payload);
-				valueString = String.valueOf(value);
-			}
-			case "float" -> {
-				if (payload.length != 4) {
-					System.out.println("Got invalid payload for float entry " + entry.id + " of size " + payload.length + "! (" + Arrays.toString(payload) + ")");
-					return;
-				}
-				float value = Float.intBitsToFloat(Util.intFromBytes(payload));
-				valueString = String.valueOf(value);
-			}
-			case "double" -> {
-				if (payload.length != 8) {
-					System.out.println("Got invalid payload for double entry " + entry.id + " of size " + payload.length + "! (" + Arrays.toString(payload) + ")");
-					return;
-				}
-				double value = Double.longBitsToDouble(Util.longFromBytes(payload));
-				valueString = String.valueOf(value);
-			}
-			case "json", "string" -> {
-				String value = Util.utf8StringFromBytes(payload);
-				valueString = "\"" + value + "\"";
-			}
-			case "boolean[]" -> {
-				boolean[] value = new boolean[payload.length];
-				for (int i = 0; i < payload.length; ++i) {
-					if (payload[i] < 0 || payload[i] > 1) {
-						System.out.println("Got invalid payload for boolean array entry " + entry.id + ": " + Arrays.toString(payload));
-						return;
-					}
-					value[i] = payload[i] == 1;
+		entry.decoder.decode(entry.id, payloadSupplier.get(), valuePrinter, entry, timestamp);
+	}
+
+	private StringBuilder startValueLine(Entry entry, long timestamp, boolean knownType) {
+		var builder = startLine();
+		builder.append("entry ").append(entry.id).append(knownType ? " (type " : " (unknown type ").append(entry.type).append(") at ");
+		return appendUnsigned(builder, timestamp).append(" got value ");
+	}
+
+	// Prints one line per value, formatted like Arrays.toString and String.valueOf would
+	private class ValuePrinter implements PayloadSink<Entry> {
+		@Override
+		public void rawValue(Entry entry, long timestamp, byte[] payload) {
+			var builder = startValueLine(entry, timestamp, true);
+			appendBytes(builder, payload);
+			endLine(builder);
+		}
+
+		@Override
+		public void booleanValue(Entry entry, long timestamp, boolean value) {
+			endLine(startValueLine(entry, timestamp, true).append(value));
+		}
+
+		@Override
+		public void int64Value(Entry entry, long timestamp, long value) {
+			endLine(startValueLine(entry, timestamp, true).append(value));
+		}
+
+		@Override
+		public void floatValue(Entry entry, long timestamp, float value) {
+			endLine(startValueLine(entry, timestamp, true).append(value));
+		}
+
+		@Override
+		public void doubleValue(Entry entry, long timestamp, double value) {
+			endLine(startValueLine(entry, timestamp, true).append(value));
+		}
+
+		@Override
+		public void stringValue(Entry entry, long timestamp, byte[] payload) {
+			var builder = startValueLine(entry, timestamp, true).append('"');
+			appendUtf8(builder, payload, 0, payload.length).append('"');
+			endLine(builder);
+		}
+
+		@Override
+		public void booleanArrayValue(Entry entry, long timestamp, byte[] payload) {
+			var builder = startValueLine(entry, timestamp, true).append('[');
+			for (int i = 0; i < payload.length; ++i) {
+				if (i != 0) {
+					builder.append(", ");
 				}
-				valueString = Arrays.toString(value);
+				builder.append(payload[i] == 1);
 			}
-			case "int64[]" -> {
-				if (payload.length % 8 != 0) {
-					System.out.println("Got invalid payload for int64[] entry " + entry.id + " of size " + payload.length + "! (" + Arrays.toString(payload) + ")");
-					return;
-				}
-				long[] value = new long[payload.length / 8];
-				for (int i = 0; i < value.length; ++i) {
-					value[i] = Util.longFromBytes(payload, 8 * i, 8);
+			endLine(builder.append(']'));
+		}
+
+		@Override
+		public void int64ArrayValue(Entry entry, long timestamp, byte[] payload) {
+			var builder = startValueLine(entry, timestamp, true).append('[');
+			for (int i = 0; i < payload.length / 8; ++i) {
+				if (i != 0) {
+					builder.append(", ");
 				}
-				valueString = Arrays.toString(value);
+				builder.append(Util.longAt(payload, 8 * i));
 			}
-			case "float[]" -> {
-				if (payload.length % 4 != 0) {
-					System.out.println("Got invalid payload for float[] entry " + entry.id + " of size " + payload.length + "! (" + Arrays.toString(payload) + ")");
-					return;
-				}
-				float[] value = new float[payload.length / 4];
-				for (int i = 0; i < value.length; ++i) {
-					value[i] = Float.intBitsToFloat(Util.intFromBytes(payload, 4 * i, 4));
+			endLine(builder.append(']'));
+		}
+
+		@Override
+		public void floatArrayValue(Entry entry, long timestamp, byte[] payload) {
+			var builder = startValueLine(entry, timestamp, true).append('[');
+			for (int i = 0; i < payload.length / 4; ++i) {
+				if (i != 0) {
+					builder.append(", ");
 				}
-				valueString = Arrays.toString(value);
+				builder.append(Float.intBitsToFloat(Util.intAt(payload, 4 * i)));
 			}
-			case "double[]" -> {
-				if (payload.length % 8 != 0) {
-					System.out.println("Got invalid payload for double[] entry " + entry.id + " of size " + payload.length + "! (" + Arrays.toString(payload) + ")");
-					return;
-				}
-				double[] value = new double[payload.length / 8];
-				for (int i = 0; i < value.length; ++i) {
-					value[i] = Double.longBitsToDouble(Util.longFromBytes(payload, 8 * i, 8));
+			endLine(builder.append(']'));
+		}
+
+		@Override
+		public void doubleArrayValue(Entry entry, long timestamp, byte[] payload) {
+			var builder = startValueLine(entry, timestamp, true).append('[');
+			for (int i = 0; i < payload.length / 8; ++i) {
+				if (i != 0) {
+					builder.append(", ");
 				}
-				valueString = Arrays.toString(value);
+				builder.append(Double.longBitsToDouble(Util.longAt(payload, 8 * i)));
 			}
-			case "string[]" -> {
-				int arrayLength = Util.intFromBytes(payload, 0, 4);
-				String[] value = new String[arrayLength];
-				int payloadIndex = 4;
-				for (int i = 0; i < value.length; ++i) {
-					int stringLength = Util.intFromBytes(payload, payloadIndex, 4);
-					payloadIndex += 4;
-					value[i] = Util.utf8StringFromBytes(payload, payloadIndex, stringLength);
-					payloadIndex += stringLength;
-				}
-				if (payloadIndex != payload.length) {
-					System.out.println("Warning: string array did not consume last " + (payload.length - payloadIndex) + " bytes of the payload");
+			endLine(builder.append(']'));
+		}
+
+		@Override
+		public void stringArrayValue(Entry entry, long timestamp, byte[] payload) {
+			var builder = startValueLine(entry, timestamp, true).append('[');
+			int arrayLength = Util.intFromBytes(payload, 0, 4);
+			int payloadIndex = 4;
+			for (int i = 0; i < arrayLength; ++i) {
+				if (i != 0) {
+					builder.append(", ");
 				}
-				valueString = Arrays.toString(value);
-			}
-			default -> {
-				knownType = false;
-				valueString = Arrays.toString(payload);
+				int stringLength = Util.intFromBytes(payload, payloadIndex, 4);
+				payloadIndex += 4;
+				appendUtf8(builder, payload, payloadIndex, stringLength);
+				payloadIndex += stringLength;
 			}
+			endLine(builder.append(']'));
 		}
-		if (knownType) {
-			System.out.println("entry " + entry.id + " (type " + entry.type + ") at " + Long.toUnsignedString(timestamp) + " got value " + valueString);
-		} else {
-			System.out.println("entry " + entry.id + " (unknown type " + entry.type + ") at " + Long.toUnsignedString(timestamp) + " got value " + valueString);
+
+		// Fields print with their names, like {translation.x=1.0, translation.y=2.0}
+		@Override
+		public void structValue(Entry entry, long timestamp, byte[] payload) {
+			var builder = startValueLine(entry, timestamp, true);
+			((StructDecoder) entry.decoder).appendTo(builder, payload);
+			endLine(builder);
+		}
+
+		@Override
+		public void unknownValue(Entry entry, long timestamp, byte[] payload) {
+			var builder = startValueLine(entry, timestamp, false);
+			appendBytes(builder, payload);
+			endLine(builder);
+		}
+
+		@Override
+		public void invalid(Entry entry, long timestamp, String message) {
+			printLine(message);
+		}
+
+		@Override
+		public void warn(Entry entry, long timestamp, String message) {
+			printLine(message);
 		}
 	}
 }
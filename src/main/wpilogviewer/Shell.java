@@ -0,0 +1,430 @@
+package wpilogviewer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import wpilogviewer.loading.Entry;
+import wpilogviewer.loading.Join;
+import wpilogviewer.loading.Loader;
+import wpilogviewer.loading.Record;
+
+// Answers queries about a loaded log, one command per line, until the input ends or it gets "exit"
+public class Shell {
+	private static final int DEFAULT_LIMIT = 100;
+	private static final String HELP = String.join("\n",
+			"Commands:",
+			"\ttopics [<topic or glob>]...            List topics, or just the ones that match",
+			"\tinfo <topic>                           List every start of a topic, with its id, type and records",
+			"\tget <topic> <timestamp>                Value of a topic at a timestamp",
+			"\trange <topic> <start> <end> [<limit>]  Values of a topic in [start, end], at most limit of them (default " + DEFAULT_LIMIT + ")",
+			"\tagg <topic> <start> <end>              Count, min, max and mean of a numeric topic in [start, end]",
+			"\tjoin <how> <start> <end> <topic>...    Topics side by side at every record of any of them (how is union), of the",
+			"\t                                       first one (asof), or every how microseconds, at most " + DEFAULT_LIMIT + " rows",
+			"\tmemory                                 Memory used by records, and how often decoded blocks were reused",
+			"\thistory                                List earlier commands; !<n> runs command n again and !! the last one",
+			"\ttiming on|off                          Whether to print how long each command took",
+			"\texit                                   Leave the shell",
+			"Timestamps are in microseconds. get, range and agg follow a topic across restarts, so they see every entry",
+			"that was started with its name. Names with spaces can be put in double quotes.");
+
+	private final Loader loader;
+	// Every entry that was started with each name, by start timestamp
+	private final Map<String, NavigableMap<Long, Entry>> nameToStartToEntry = new TreeMap<>();
+	private final List<String> history = new ArrayList<>();
+	private boolean timing = true;
+
+	public Shell(Loader loader) {
+		this.loader = loader;
+		for (long id : loader.getIds()) {
+			for (long timestamp : loader.getEntryStartTimestamps(id)) {
+				var entry = loader.getEntry(id, timestamp);
+				nameToStartToEntry.computeIfAbsent(entry.getName(), key -> new TreeMap<>()).put(timestamp, entry);
+				// Fields of structs are topics of their own, like /pose/translation.x
+				for (var field : entry.getFields()) {
+					nameToStartToEntry.computeIfAbsent(field.getName(), key -> new TreeMap<>()).put(timestamp, field);
+				}
+			}
+		}
+	}
+
+	public int getTopicCount() {
+		return nameToStartToEntry.size();
+	}
+
+	// Prompts before each command when interactive, which is pointless when commands come from a file or pipe
+	public void run(BufferedReader input, boolean interactive) throws IOException {
+		if (interactive) {
+			System.out.println("Type \"help\" for a list of commands");
+		}
+		while (true) {
+			if (interactive) {
+				System.out.print("> ");
+				System.out.flush();
+			}
+			String line = input.readLine();
+			if (line == null) {
+				return;
+			}
+			line = line.strip();
+			if (line.isEmpty()) {
+				continue;
+			}
+			if (line.startsWith("!")) {
+				line = recall(line);
+				if (line == null) {
+					continue;
+				}
+				System.out.println(line);
+			}
+			history.add(line);
+			long startTime = System.nanoTime();
+			if (!execute(line)) {
+				return;
+			}
+			if (timing) {
+				System.out.println("(" + String.format("%.3f", (System.nanoTime() - startTime) / 1e6) + " ms)");
+			}
+		}
+	}
+
+	// Returns the command that !! or !<n> refers to, or null if there is none
+	private String recall(String line) {
+		if (line.equals("!!")) {
+			if (history.isEmpty()) {
+				System.err.println("No commands yet!");
+				return null;
+			}
+			return history.get(history.size() - 1);
+		}
+		try {
+			int index = Integer.parseInt(line.substring(1));
+			if (index >= 1 && index <= history.size()) {
+				return history.get(index - 1);
+			}
+		} catch (NumberFormatException e) {
+			// Reported below like an index that's out of range
+		}
+		System.err.println("No command " + line.substring(1) + " in history!");
+		return null;
+	}
+
+	// Returns whether the shell should keep going
+	public boolean execute(String line) {
+		List<String> args = split(line);
+		if (args == null) {
+			System.err.println("Unterminated quote in " + line + "!");
+			return true;
+		}
+		try {
+			switch (args.get(0)) {
+				case "help", "?" -> System.out.println(HELP);
+				case "topics" -> topics(args.subList(1, args.size()));
+				case "info" -> {
+					if (checkArgCount(args, 2, 2)) {
+						info(args.get(1));
+					}
+				}
+				case "get" -> {
+					if (checkArgCount(args, 3, 3)) {
+						get(args.get(1), parseTimestamp(args.get(2)));
+					}
+				}
+				case "range" -> {
+					if (checkArgCount(args, 4, 5)) {
+						int limit = args.size() > 4 ? Integer.parseInt(args.get(4)) : DEFAULT_LIMIT;
+						range(args.get(1), parseTimestamp(args.get(2)), parseTimestamp(args.get(3)), limit);
+					}
+				}
+				case "agg" -> {
+					if (checkArgCount(args, 4, 4)) {
+						aggregate(args.get(1), parseTimestamp(args.get(2)), parseTimestamp(args.get(3)));
+					}
+				}
+				case "join" -> {
+					if (checkArgCount(args, 5, Integer.MAX_VALUE)) {
+						join(args.get(1), parseTimestamp(args.get(2)), parseTimestamp(args.get(3)), args.subList(4, args.size()));
+					}
+				}
+				case "memory" -> memory();
+				case "history" -> {
+					for (int i = 0; i < history.size(); ++i) {
+						System.out.println((i + 1) + "\t" + history.get(i));
+					}
+				}
+				case "timing" -> {
+					if (checkArgCount(args, 2, 2)) {
+						switch (args.get(1)) {
+							case "on" -> timing = true;
+							case "off" -> timing = false;
+							default -> System.err.println("Timing must be on or off, but was " + args.get(1) + "!");
+						}
+					}
+				}
+				case "exit", "quit" -> {
+					return false;
+				}
+				default -> System.err.println("Unknown command " + args.get(0) + "! Type \"help\" for a list of commands");
+			}
+		} catch (NumberFormatException e) {
+			System.err.println("Invalid number! (" + e.getMessage() + ")");
+		}
+		return true;
+	}
+
+	// Splits on whitespace, keeping double quoted parts together; returns null if a quote isn't closed
+	private static List<String> split(String line) {
+		var args = new ArrayList<String>();
+		var arg = new StringBuilder();
+		boolean inQuotes = false;
+		boolean hasArg = false;
+		for (int i = 0; i < line.length(); ++i) {
+			char c = line.charAt(i);
+			if (c == '"') {
+				inQuotes = !inQuotes;
+				hasArg = true;
+			} else if (Character.isWhitespace(c) && !inQuotes) {
+				if (hasArg) {
+					args.add(arg.toString());
+					arg.setLength(0);
+					hasArg = false;
+				}
+			} else {
+				arg.append(c);
+				hasArg = true;
+			}
+		}
+		if (inQuotes) {
+			return null;
+		}
+		if (hasArg) {
+			args.add(arg.toString());
+		}
+		return args;
+	}
+
+	private static boolean checkArgCount(List<String> args, int min, int max) {
+		if (args.size() < min || args.size() > max) {
+			System.err.println("Wrong number of arguments for " + args.get(0) + "! Type \"help\" for usage");
+			return false;
+		}
+		return true;
+	}
+
+	// Entries keep their records in signed timestamp order, so later timestamps than Long.MAX_VALUE, which logs don't
+	// get to, are taken as that
+	private static long parseTimestamp(String timestamp) {
+		long parsed = Long.parseUnsignedLong(timestamp);
+		return parsed < 0 ? Long.MAX_VALUE : parsed;
+	}
+
+	private static String formatTimestamp(long timestamp) {
+		return Long.toUnsignedString(timestamp);
+	}
+
+	private static boolean checkRange(long startTimestamp, long endTimestamp) {
+		if (Long.compareUnsigned(startTimestamp, endTimestamp) > 0) {
+			System.err.println("Start " + formatTimestamp(startTimestamp) + " is after end " + formatTimestamp(endTimestamp) + "!");
+			return false;
+		}
+		return true;
+	}
+
+	private NavigableMap<Long, Entry> findTopic(String name) {
+		var startToEntry = nameToStartToEntry.get(name);
+		if (startToEntry == null) {
+			System.err.println("No topic " + name + "!");
+		}
+		return startToEntry;
+	}
+
+	// Starts of the topic whose entries may have records in [startTimestamp, endTimestamp]
+	private static Iterable<Entry> entriesIn(NavigableMap<Long, Entry> startToEntry, long startTimestamp, long endTimestamp) {
+		Long firstStart = startToEntry.floorKey(startTimestamp);
+		return startToEntry.subMap(firstStart == null ? startTimestamp : firstStart, true, endTimestamp, true).values();
+	}
+
+	private void topics(List<String> patterns) {
+		var filter = patterns.isEmpty() ? null : new TopicFilter(patterns);
+		int count = 0;
+		for (var nameEntry : nameToStartToEntry.entrySet()) {
+			if (filter != null && !filter.matches(nameEntry.getKey())) {
+				continue;
+			}
+			var startToEntry = nameEntry.getValue();
+			var latest = startToEntry.lastEntry().getValue();
+			long recordCount = 0;
+			for (var entry : startToEntry.values()) {
+				recordCount += entry.getRecordCount();
+			}
+			String starts = startToEntry.size() > 1 ? ", " + startToEntry.size() + " starts" : "";
+			System.out.println(nameEntry.getKey() + " (" + latest.getType() + "): " + recordCount + " records" + starts);
+			++count;
+		}
+		System.out.println(count + " of " + nameToStartToEntry.size() + " topics");
+	}
+
+	private void info(String name) {
+		var startToEntry = findTopic(name);
+		if (startToEntry == null) {
+			return;
+		}
+		for (var entry : startToEntry.values()) {
+			String end = entry.hasEnded() ? formatTimestamp(entry.getEndTimestamp()) : "end of log";
+			System.out.println("Id " + entry.getId() + " (" + entry.getType() + ") from " + formatTimestamp(entry.getStartTimestamp()) + " to " + end + ": " + entry.getRecordCount() + " records, metadata \"" + entry.getMetadata(entry.getStartTimestamp()) + "\"");
+		}
+	}
+
+	private void get(String name, long timestamp) {
+		var startToEntry = findTopic(name);
+		if (startToEntry == null) {
+			return;
+		}
+		var floorEntry = startToEntry.floorEntry(timestamp);
+		var entry = floorEntry == null ? null : floorEntry.getValue();
+		var record = entry == null || entry.isExpiredAt(timestamp) ? null : entry.getRecord(timestamp);
+		if (record == null) {
+			System.out.println("No value at " + formatTimestamp(timestamp));
+			return;
+		}
+		System.out.println(formatTimestamp(record.getTimestamp()) + ": " + formatValue(entry, record));
+	}
+
+	private void range(String name, long startTimestamp, long endTimestamp, int limit) {
+		var startToEntry = findTopic(name);
+		if (startToEntry == null || !checkRange(startTimestamp, endTimestamp)) {
+			return;
+		}
+		long count = 0;
+		for (var entry : entriesIn(startToEntry, startTimestamp, endTimestamp)) {
+			for (var record : entry.getRecords(startTimestamp, endTimestamp)) {
+				if (count < limit) {
+					System.out.println(formatTimestamp(record.getTimestamp()) + ": " + formatValue(entry, record));
+				}
+				++count;
+			}
+		}
+		if (count > limit) {
+			System.out.println("... " + (count - limit) + " more");
+		}
+		System.out.println(count + " records");
+	}
+
+	private void aggregate(String name, long startTimestamp, long endTimestamp) {
+		var startToEntry = findTopic(name);
+		if (startToEntry == null || !checkRange(startTimestamp, endTimestamp)) {
+			return;
+		}
+		long count = 0;
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		double sum = 0;
+		for (var entry : entriesIn(startToEntry, startTimestamp, endTimestamp)) {
+			switch (entry.getRecordType()) {
+				case INT64, FLOAT, DOUBLE -> {
+				}
+				default -> {
+					System.err.println("Topic " + name + " with type " + entry.getType() + " is not numeric!");
+					return;
+				}
+			}
+			var aggregate = entry.getAggregate(startTimestamp, endTimestamp);
+			count += aggregate.getCount();
+			min = Math.min(min, aggregate.getMin());
+			max = Math.max(max, aggregate.getMax());
+			sum += aggregate.getSum();
+		}
+		if (count == 0) {
+			System.out.println("No records");
+			return;
+		}
+		System.out.println("count " + count + ", min " + min + ", max " + max + ", mean " + sum / count);
+	}
+
+	private void join(String how, long startTimestamp, long endTimestamp, List<String> names) {
+		if (!checkRange(startTimestamp, endTimestamp)) {
+			return;
+		}
+		long period = 0;
+		if (!how.equals("union") && !how.equals("asof")) {
+			period = Long.parseLong(how);
+			if (period <= 0) {
+				System.err.println("Period must be positive, but was " + how + "!");
+				return;
+			}
+		}
+		List<Entry> entries = new ArrayList<>();
+		for (var name : names) {
+			var startToEntry = findTopic(name);
+			if (startToEntry == null) {
+				return;
+			}
+			// The entry that's active when the join starts, or the first one if the topic starts later
+			var floorEntry = startToEntry.floorEntry(startTimestamp);
+			entries.add(floorEntry == null ? startToEntry.firstEntry().getValue() : floorEntry.getValue());
+		}
+		Join join = switch (how) {
+			case "union" -> loader.joinUnion(entries, startTimestamp, endTimestamp);
+			case "asof" -> loader.joinAsOf(entries, entries.get(0), startTimestamp, endTimestamp);
+			default -> loader.joinFixedRate(entries, startTimestamp, endTimestamp, period);
+		};
+		System.out.println("timestamp\t" + String.join("\t", names));
+		long count = 0;
+		var line = new StringBuilder();
+		while (join.next()) {
+			if (count < DEFAULT_LIMIT) {
+				line.setLength(0);
+				line.append(formatTimestamp(join.getTimestamp()));
+				for (int i = 0; i < join.getEntryCount(); ++i) {
+					var record = join.getRecord(i);
+					line.append('\t').append(record == null ? "-" : formatValue(join.getEntry(i), record));
+				}
+				System.out.println(line);
+			}
+			++count;
+		}
+		if (count > DEFAULT_LIMIT) {
+			System.out.println("... " + (count - DEFAULT_LIMIT) + " more");
+		}
+		System.out.println(count + " rows");
+	}
+
+	private void memory() {
+		System.out.println(String.format("%.1f", loader.getMemoryUsage() / 1e6) + " MB of records, " + String.format("%.1f", loader.getDecodedMemoryUsage() / 1e6) + " MB of it decoded blocks, and " + String.format("%.1f", loader.getOffHeapMemoryUsage() / 1e6) + " MB off the heap");
+		System.out.println("Decoded blocks: " + loader.getDecodedHitCount() + " hits, " + loader.getDecodedMissCount() + " misses, " + loader.getDecodedEvictionCount() + " evictions");
+	}
+
+	private static String formatValue(Entry entry, Record record) {
+		return switch (record.getType()) {
+			case RAW, UNKNOWN -> Arrays.toString(record.rawValue());
+			case BOOLEAN -> String.valueOf(record.booleanValue());
+			case INT64 -> String.valueOf(record.int64Value());
+			case FLOAT -> String.valueOf(record.floatValue());
+			case DOUBLE -> String.valueOf(record.doubleValue());
+			case STRING -> record.stringValue();
+			case BOOLEAN_ARRAY -> Arrays.toString(record.booleanArrayValue());
+			case INT64_ARRAY -> Arrays.toString(record.int64ArrayValue());
+			case FLOAT_ARRAY -> Arrays.toString(record.floatArrayValue());
+			case DOUBLE_ARRAY -> Arrays.toString(record.doubleArrayValue());
+			case STRING_ARRAY -> Arrays.toString(record.stringArrayValue());
+			case STRUCT -> formatStruct(entry, record.structValue());
+		};
+	}
+
+	// Fields by name, like {translation.x=1.0, translation.y=2.0}
+	private static String formatStruct(Entry entry, Record[] fieldRecords) {
+		var builder = new StringBuilder("{");
+		for (int i = 0; i < fieldRecords.length; ++i) {
+			if (i != 0) {
+				builder.append(", ");
+			}
+			var field = entry.getFields().get(i);
+			builder.append(field.getName().substring(entry.getName().length() + 1)).append('=').append(formatValue(field, fieldRecords[i]));
+		}
+		return builder.append('}').toString();
+	}
+}
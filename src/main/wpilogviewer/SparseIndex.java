@@ -0,0 +1,375 @@
+package wpilogviewer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Splits a log into blocks of value records and remembers where each block starts and which timestamps
+// it holds, along with every control record, so a time window can be processed without reading the
+// whole log
+public class SparseIndex {
+	private static final String SUFFIX = ".wlvidx";
+	private static final byte[] MAGIC = "WLVINDEX".getBytes(StandardCharsets.US_ASCII);
+	private static final int VERSION = 1;
+	public static final int DEFAULT_RECORDS_PER_BLOCK = 4096;
+
+	private static final int START = 0;
+	private static final int FINISH = 1;
+	private static final int SET_METADATA = 2;
+
+	private static class ControlRecord {
+		private final int kind;
+		private final long timestamp;
+		private final long entryId;
+		// Only used by some kinds
+		private final String name;
+		private final String type;
+		private final String metadata;
+
+		public ControlRecord(int kind, long timestamp, long entryId, String name, String type, String metadata) {
+			this.kind = kind;
+			this.timestamp = timestamp;
+			this.entryId = entryId;
+			this.name = name;
+			this.type = type;
+			this.metadata = metadata;
+		}
+
+		public void replay(Logger logger) {
+			switch (kind) {
+				case START -> logger.logStart(entryId, name, type, metadata, timestamp);
+				case FINISH -> logger.logFinish(entryId, timestamp);
+				default -> logger.logSetMetadata(entryId, timestamp, metadata);
+			}
+		}
+	}
+
+	// Logger that builds an index; can be combined with other loggers through a MultiLogger
+	public static class Builder implements Logger {
+		private final int recordsPerBlock;
+		private final List<ControlRecord> controlRecords = new ArrayList<>();
+		private int blockCount = 1;
+		private long[] blockStarts = new long[16];
+		private long[] blockMinTimestamps = new long[16];
+		private long[] blockMaxTimestamps = new long[16];
+		private int[] blockControlCounts = new int[16];
+		private int valuesInBlock = 0;
+
+		public Builder(long firstRecordOffset, int recordsPerBlock) {
+			this.recordsPerBlock = recordsPerBlock;
+			startBlock(0, firstRecordOffset);
+		}
+
+		private void startBlock(int block, long start) {
+			if (block == blockStarts.length) {
+				int capacity = 2 * blockStarts.length;
+				blockStarts = Arrays.copyOf(blockStarts, capacity);
+				blockMinTimestamps = Arrays.copyOf(blockMinTimestamps, capacity);
+				blockMaxTimestamps = Arrays.copyOf(blockMaxTimestamps, capacity);
+				blockControlCounts = Arrays.copyOf(blockControlCounts, capacity);
+			}
+			blockStarts[block] = start;
+			// Timestamps are unsigned, so these are the extremes
+			blockMinTimestamps[block] = -1;
+			blockMaxTimestamps[block] = 0;
+			blockControlCounts[block] = controlRecords.size();
+		}
+
+		@Override
+		public void logStart(long entryId, String entryName, String entryType, String entryMetadata, long timestamp) {
+			controlRecords.add(new ControlRecord(START, timestamp, entryId, entryName, entryType, entryMetadata));
+		}
+
+		@Override
+		public void logFinish(long entryId, long timestamp) {
+			controlRecords.add(new ControlRecord(FINISH, timestamp, entryId, null, null, null));
+		}
+
+		@Override
+		public void logSetMetadata(long entryId, long timestamp, String newMetadata) {
+			controlRecords.add(new ControlRecord(SET_METADATA, timestamp, entryId, null, null, newMetadata));
+		}
+
+		@Override
+		public void logValue(long entryId, long timestamp, Supplier<byte[]> payloadSupplier) {
+			throw new UnsupportedOperationException("Building an index needs payload offsets");
+		}
+
+		@Override
+		public void logValue(long entryId, long timestamp, long payloadOffset, int payloadSize, Supplier<byte[]> payloadSupplier) {
+			int block = blockCount - 1;
+			if (Long.compareUnsigned(timestamp, blockMinTimestamps[block]) < 0) {
+				blockMinTimestamps[block] = timestamp;
+			}
+			if (Long.compareUnsigned(timestamp, blockMaxTimestamps[block]) > 0) {
+				blockMaxTimestamps[block] = timestamp;
+			}
+			if (++valuesInBlock == recordsPerBlock) {
+				startBlock(blockCount++, payloadOffset + payloadSize);
+				valuesInBlock = 0;
+			}
+		}
+
+		public SparseIndex build(LogFingerprint fingerprint) {
+			return new SparseIndex(fingerprint, blockCount, Arrays.copyOf(blockStarts, blockCount), Arrays.copyOf(blockMinTimestamps, blockCount), Arrays.copyOf(blockMaxTimestamps, blockCount), Arrays.copyOf(blockControlCounts, blockCount), controlRecords);
+		}
+	}
+
+	// Only passes on values inside the window
+	private static class WindowLogger implements Logger {
+		private final Logger logger;
+		private final long startTimestamp;
+		private final long endTimestamp;
+
+		public WindowLogger(Logger logger, long startTimestamp, long endTimestamp) {
+			this.logger = logger;
+			this.startTimestamp = startTimestamp;
+			this.endTimestamp = endTimestamp;
+		}
+
+		private boolean inWindow(long timestamp) {
+			return Long.compareUnsigned(timestamp, startTimestamp) >= 0 && Long.compareUnsigned(timestamp, endTimestamp) <= 0;
+		}
+
+		@Override
+		public void logStart(long entryId, String entryName, String entryType, String entryMetadata, long timestamp) {
+			logger.logStart(entryId, entryName, entryType, entryMetadata, timestamp);
+		}
+
+		@Override
+		public void logFinish(long entryId, long timestamp) {
+			logger.logFinish(entryId, timestamp);
+		}
+
+		@Override
+		public void logSetMetadata(long entryId, long timestamp, String newMetadata) {
+			logger.logSetMetadata(entryId, timestamp, newMetadata);
+		}
+
+		@Override
+		public boolean wantsValues(long entryId) {
+			return logger.wantsValues(entryId);
+		}
+
+		@Override
+		public void logValue(long entryId, long timestamp, Supplier<byte[]> payloadSupplier) {
+			if (inWindow(timestamp)) {
+				logger.logValue(entryId, timestamp, payloadSupplier);
+			}
+		}
+
+		@Override
+		public void logValue(long entryId, long timestamp, long payloadOffset, int payloadSize, Supplier<byte[]> payloadSupplier) {
+			if (inWindow(timestamp)) {
+				logger.logValue(entryId, timestamp, payloadOffset, payloadSize, payloadSupplier);
+			}
+		}
+	}
+
+	private final LogFingerprint fingerprint;
+	private final int blockCount;
+	private final long[] blockStarts;
+	private final long[] blockMinTimestamps;
+	private final long[] blockMaxTimestamps;
+	// Number of control records before each block
+	private final int[] blockControlCounts;
+	private final List<ControlRecord> controlRecords;
+	// Running max of the block maxes and running min (from the end) of the block mins, which are
+	// monotonic and so can be binary searched
+	private final long[] prefixMaxTimestamps;
+	private final long[] suffixMinTimestamps;
+
+	private SparseIndex(LogFingerprint fingerprint, int blockCount, long[] blockStarts, long[] blockMinTimestamps, long[] blockMaxTimestamps, int[] blockControlCounts, List<ControlRecord> controlRecords) {
+		this.fingerprint = fingerprint;
+		this.blockCount = blockCount;
+		this.blockStarts = blockStarts;
+		this.blockMinTimestamps = blockMinTimestamps;
+		this.blockMaxTimestamps = blockMaxTimestamps;
+		this.blockControlCounts = blockControlCounts;
+		this.controlRecords = controlRecords;
+		prefixMaxTimestamps = new long[blockCount];
+		suffixMinTimestamps = new long[blockCount];
+		for (int i = 0; i < blockCount; ++i) {
+			prefixMaxTimestamps[i] = i == 0 ? blockMaxTimestamps[i] : maxUnsigned(prefixMaxTimestamps[i - 1], blockMaxTimestamps[i]);
+		}
+		for (int i = blockCount - 1; i >= 0; --i) {
+			suffixMinTimestamps[i] = i == blockCount - 1 ? blockMinTimestamps[i] : minUnsigned(suffixMinTimestamps[i + 1], blockMinTimestamps[i]);
+		}
+	}
+
+	private static long maxUnsigned(long a, long b) {
+		return Long.compareUnsigned(a, b) >= 0 ? a : b;
+	}
+
+	private static long minUnsigned(long a, long b) {
+		return Long.compareUnsigned(a, b) <= 0 ? a : b;
+	}
+
+	public static Path indexPathFor(Path logPath) {
+		return logPath.resolveSibling(logPath.getFileName() + SUFFIX);
+	}
+
+	// Indexes the log with a pass over just the record headers
+	public static SparseIndex build(Path logPath, int recordsPerBlock) throws IOException {
+		long firstRecordOffset = WpiLogProcessor.findFirstRecordOffset(logPath);
+		if (firstRecordOffset < 0) {
+			throw new IOException(logPath + " is not a valid log");
+		}
+		var fingerprint = LogFingerprint.of(logPath);
+		var builder = new Builder(firstRecordOffset, recordsPerBlock);
+		WpiLogProcessor.process(logPath, builder, firstRecordOffset, fingerprint.getSize());
+		return builder.build(fingerprint);
+	}
+
+	// Reads the index saved next to the log if it's up to date, and otherwise builds and saves a new one
+	public static SparseIndex loadOrBuild(Path logPath) throws IOException {
+		var fingerprint = LogFingerprint.of(logPath);
+		var indexPath = indexPathFor(logPath);
+		if (Files.isRegularFile(indexPath)) {
+			var index = read(indexPath);
+			if (index != null && index.fingerprint.equals(fingerprint)) {
+				return index;
+			}
+		}
+		var index = build(logPath, DEFAULT_RECORDS_PER_BLOCK);
+		try {
+			index.write(indexPath);
+		} catch (IOException e) {
+			System.err.println("Could not write index for " + logPath + ": " + e.getMessage());
+		}
+		return index;
+	}
+
+	private static void writeString(DataOutputStream output, String value) throws IOException {
+		if (value == null) {
+			output.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	private static String readString(DataInputStream input) throws IOException {
+		int length = input.readInt();
+		if (length < 0) {
+			return null;
+		}
+		return new String(input.readNBytes(length), StandardCharsets.UTF_8);
+	}
+
+	public void write(Path indexPath) throws IOException {
+		// Write to a temporary file first so readers never see a partially written index
+		var tempPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+		try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+			output.write(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(fingerprint.getSize());
+			output.writeLong(fingerprint.getLastModified());
+			output.writeLong(fingerprint.getHeaderHash());
+			output.writeInt(blockCount);
+			for (int i = 0; i < blockCount; ++i) {
+				output.writeLong(blockStarts[i]);
+				output.writeLong(blockMinTimestamps[i]);
+				output.writeLong(blockMaxTimestamps[i]);
+				output.writeInt(blockControlCounts[i]);
+			}
+			output.writeInt(controlRecords.size());
+			for (var controlRecord : controlRecords) {
+				output.writeByte(controlRecord.kind);
+				output.writeLong(controlRecord.timestamp);
+				output.writeLong(controlRecord.entryId);
+				writeString(output, controlRecord.name);
+				writeString(output, controlRecord.type);
+				writeString(output, controlRecord.metadata);
+			}
+		}
+		Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	// Returns null if the file isn't a readable index
+	public static SparseIndex read(Path indexPath) throws IOException {
+		try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+			if (!Arrays.equals(input.readNBytes(MAGIC.length), MAGIC) || input.readInt() != VERSION) {
+				return null;
+			}
+			var fingerprint = new LogFingerprint(input.readLong(), input.readLong(), input.readLong());
+			int blockCount = input.readInt();
+			long[] blockStarts = new long[blockCount];
+			long[] blockMinTimestamps = new long[blockCount];
+			long[] blockMaxTimestamps = new long[blockCount];
+			int[] blockControlCounts = new int[blockCount];
+			for (int i = 0; i < blockCount; ++i) {
+				blockStarts[i] = input.readLong();
+				blockMinTimestamps[i] = input.readLong();
+				blockMaxTimestamps[i] = input.readLong();
+				blockControlCounts[i] = input.readInt();
+			}
+			int controlRecordCount = input.readInt();
+			var controlRecords = new ArrayList<ControlRecord>(controlRecordCount);
+			for (int i = 0; i < controlRecordCount; ++i) {
+				int kind = input.readByte();
+				long timestamp = input.readLong();
+				long entryId = input.readLong();
+				controlRecords.add(new ControlRecord(kind, timestamp, entryId, readString(input), readString(input), readString(input)));
+			}
+			return new SparseIndex(fingerprint, blockCount, blockStarts, blockMinTimestamps, blockMaxTimestamps, blockControlCounts, controlRecords);
+		} catch (EOFException | NegativeArraySizeException e) {
+			return null;
+		}
+	}
+
+	public LogFingerprint getFingerprint() {
+		return fingerprint;
+	}
+
+	// Sends logger every control record, plus the value records with timestamps in [startTimestamp, endTimestamp],
+	// while only reading the blocks that can hold such values
+	public void process(Path logPath, Logger logger, long startTimestamp, long endTimestamp) throws IOException {
+		// First block holding a timestamp at or after the start
+		int low = 0;
+		int high = blockCount;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (Long.compareUnsigned(prefixMaxTimestamps[middle], startTimestamp) >= 0) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		int firstBlock = low;
+		// One past the last block holding a timestamp at or before the end
+		low = 0;
+		high = blockCount;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (Long.compareUnsigned(suffixMinTimestamps[middle], endTimestamp) > 0) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		int endBlock = low;
+		// Entries have to be set up as they were at the start of the first block, even when there's nothing to read
+		int replayedControlRecords = firstBlock < blockCount ? blockControlCounts[firstBlock] : controlRecords.size();
+		for (int i = 0; i < replayedControlRecords; ++i) {
+			controlRecords.get(i).replay(logger);
+		}
+		if (firstBlock >= endBlock) {
+			return;
+		}
+		long endOffset = endBlock < blockCount ? blockStarts[endBlock] : fingerprint.getSize();
+		WpiLogProcessor.process(logPath, new WindowLogger(logger, startTimestamp, endTimestamp), blockStarts[firstBlock], endOffset);
+	}
+}
@@ -0,0 +1,131 @@
+package wpilogviewer;
+
+import java.io.EOFException;
+import java.io.InputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+class StreamLogInput extends LogInput {
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final InputStream input;
+	// Reused for the whole log; only bytes in [position, limit) are valid
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position = 0;
+	private int limit = 0;
+	// Offset of buffer[0] from the start of the log
+	private long bufferOffset = 0;
+
+	public StreamLogInput(InputStream input) {
+		this.input = input;
+	}
+
+	@Override
+	long position() {
+		return bufferOffset + position;
+	}
+
+	private int available() {
+		return limit - position;
+	}
+
+	// Only used for fields that fit in the buffer, so length <= BUFFER_SIZE
+	private void ensure(int length) throws IOException {
+		if (available() >= length) {
+			return;
+		}
+		System.arraycopy(buffer, position, buffer, 0, available());
+		bufferOffset += position;
+		limit = available();
+		position = 0;
+		while (limit < length) {
+			// Don't wait for a full buffer, so piped logs are processed as they arrive
+			int numRead = input.read(buffer, limit, buffer.length - limit);
+			if (numRead == -1) {
+				throw new EOFException("Expected " + length + " bytes, but only got " + limit);
+			}
+			limit += numRead;
+		}
+	}
+
+	@Override
+	int read() throws IOException {
+		if (position == limit) {
+			int numRead = input.read(buffer, 0, buffer.length);
+			if (numRead == -1) {
+				return -1;
+			}
+			bufferOffset += limit;
+			position = 0;
+			limit = numRead;
+		}
+		return buffer[position++] & 0xFF;
+	}
+
+	@Override
+	int readInt(int length) throws IOException {
+		ensure(length);
+		int value = 0;
+		for (int i = 0; i < length; ++i) {
+			value |= (buffer[position + i] & 0xFF) << (8 * i);
+		}
+		position += length;
+		return value;
+	}
+
+	@Override
+	long readLong(int length) throws IOException {
+		ensure(length);
+		long value = 0;
+		for (int i = 0; i < length; ++i) {
+			value |= (buffer[position + i] & 0xFFL) << (8 * i);
+		}
+		position += length;
+		return value;
+	}
+
+	@Override
+	byte[] readBytes(int length) throws IOException {
+		byte[] bytes = new byte[length];
+		int buffered = Math.min(length, available());
+		System.arraycopy(buffer, position, bytes, 0, buffered);
+		position += buffered;
+		if (buffered < length) {
+			// Big payloads go straight into the result instead of through the buffer
+			int numRead = input.readNBytes(bytes, buffered, length - buffered);
+			if (buffered + numRead != length) {
+				throw new EOFException("Expected " + length + " bytes, but only got " + (buffered + numRead));
+			}
+			discardBuffer(numRead);
+		}
+		return bytes;
+	}
+
+	@Override
+	void skip(long length) throws IOException {
+		int buffered = (int) Math.min(length, available());
+		position += buffered;
+		if (buffered < length) {
+			input.skipNBytes(length - buffered);
+			discardBuffer(length - buffered);
+		}
+	}
+
+	// Called once the buffer is used up and unbufferedLength more bytes were consumed directly
+	private void discardBuffer(long unbufferedLength) {
+		bufferOffset += limit + unbufferedLength;
+		position = 0;
+		limit = 0;
+	}
+
+	@Override
+	String readUtf8String(int length) throws IOException {
+		if (length > BUFFER_SIZE) {
+			return super.readUtf8String(length);
+		}
+		ensure(length);
+		var value = new String(buffer, position, length, StandardCharsets.UTF_8);
+		position += length;
+		return value;
+	}
+}
@@ -0,0 +1,92 @@
+package wpilogviewer;
+
+// Decodes struct:<name> and struct:<name>[] payloads, checking them against the layout of the struct and handing them
+// to structValue, whose sinks decode each primitive field with its own field decoder, named by its path in the struct
+// like translation.x. Each entry gets its own, whose layout StructSchemas sets once the schema of the struct and of
+// every struct it holds are known.
+class StructDecoder implements PayloadDecoder {
+	private final String structName;
+	private final boolean array;
+	// Null until the schema of the struct and of every struct it holds have arrived, and then never changes
+	private volatile StructLayout layout = null;
+	// Set before the layout, so they're there once it is
+	private volatile StructFieldDecoder[] fieldDecoders = new StructFieldDecoder[0];
+
+	public StructDecoder(String structName, boolean array) {
+		this.structName = structName;
+		this.array = array;
+	}
+
+	String getStructName() {
+		return structName;
+	}
+
+	void setLayout(StructLayout layout) {
+		var fieldDecoders = new StructFieldDecoder[layout.getFieldCount()];
+		for (int i = 0; i < fieldDecoders.length; ++i) {
+			fieldDecoders[i] = new StructFieldDecoder(this, layout, i, array);
+		}
+		this.fieldDecoders = fieldDecoders;
+		this.layout = layout;
+	}
+
+	@Override
+	public String getValueType() {
+		return "struct";
+	}
+
+	@Override
+	public int getFieldCount() {
+		return fieldDecoders.length;
+	}
+
+	@Override
+	public String getFieldName(int field) {
+		return layout.getName(field);
+	}
+
+	@Override
+	public PayloadDecoder getFieldDecoder(int field) {
+		return fieldDecoders[field];
+	}
+
+	@Override
+	public boolean isValidSize(int size) {
+		var layout = this.layout;
+		if (layout == null) {
+			return false;
+		}
+		return array ? (layout.getSize() == 0 ? size == 0 : size % layout.getSize() == 0) : size == layout.getSize();
+	}
+
+	// Appends a payload that decodes like {translation.x=1.0, translation.y=2.0}, or a list of those for arrays
+	void appendTo(StringBuilder builder, byte[] payload) {
+		var layout = this.layout;
+		if (!array) {
+			layout.appendTo(builder, payload, 0);
+			return;
+		}
+		builder.append('[');
+		for (int start = 0; start < payload.length; start += layout.getSize()) {
+			if (start != 0) {
+				builder.append(", ");
+			}
+			layout.appendTo(builder, payload, start);
+		}
+		builder.append(']');
+	}
+
+	@Override
+	public <T> void decode(long entryId, byte[] payload, PayloadSink<T> sink, T target, long timestamp) {
+		var layout = this.layout;
+		if (layout == null) {
+			sink.invalid(target, timestamp, "Got payload for struct entry " + entryId + " before the schema of " + structName + " or a struct in it!");
+			return;
+		}
+		if (!isValidSize(payload.length)) {
+			sink.invalid(target, timestamp, "Got invalid payload for struct " + structName + (array ? "[]" : "") + " entry " + entryId + " of size " + payload.length + " for structs of size " + layout.getSize() + "!");
+			return;
+		}
+		sink.structValue(target, timestamp, payload);
+	}
+}
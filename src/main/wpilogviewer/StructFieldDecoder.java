@@ -0,0 +1,82 @@
+package wpilogviewer;
+
+// Decodes one primitive field of struct payloads, reading it straight from its offset: bools into booleans, integers
+// and enums into int64s, and floats and doubles into their own type, or arrays of those for struct arrays
+class StructFieldDecoder implements PayloadDecoder {
+	private final StructDecoder structDecoder;
+	private final StructLayout layout;
+	private final int field;
+	private final boolean array;
+
+	public StructFieldDecoder(StructDecoder structDecoder, StructLayout layout, int field, boolean array) {
+		this.structDecoder = structDecoder;
+		this.layout = layout;
+		this.field = field;
+		this.array = array;
+	}
+
+	@Override
+	public String getValueType() {
+		String type = switch (layout.getKind(field)) {
+			case StructLayout.BOOLEAN -> "boolean";
+			case StructLayout.FLOAT -> "float";
+			case StructLayout.DOUBLE -> "double";
+			default -> "int64";
+		};
+		return array ? type + "[]" : type;
+	}
+
+	@Override
+	public boolean isValidSize(int size) {
+		return structDecoder.isValidSize(size);
+	}
+
+	@Override
+	public <T> void decode(long entryId, byte[] payload, PayloadSink<T> sink, T target, long timestamp) {
+		if (!isValidSize(payload.length)) {
+			sink.invalid(target, timestamp, "Got invalid payload for struct " + structDecoder.getStructName() + (array ? "[]" : "") + " entry " + entryId + " of size " + payload.length + " for structs of size " + layout.getSize() + "!");
+			return;
+		}
+		byte kind = layout.getKind(field);
+		if (!array) {
+			switch (kind) {
+				case StructLayout.BOOLEAN -> sink.booleanValue(target, timestamp, layout.getBoolean(payload, 0, field));
+				case StructLayout.FLOAT -> sink.floatValue(target, timestamp, layout.getFloat(payload, 0, field));
+				case StructLayout.DOUBLE -> sink.doubleValue(target, timestamp, layout.getDouble(payload, 0, field));
+				default -> sink.int64Value(target, timestamp, layout.getLong(payload, 0, field));
+			}
+			return;
+		}
+		int count = layout.getSize() == 0 ? 0 : payload.length / layout.getSize();
+		switch (kind) {
+			case StructLayout.BOOLEAN -> {
+				byte[] values = new byte[count];
+				for (int i = 0; i < count; ++i) {
+					values[i] = (byte) (layout.getBoolean(payload, i * layout.getSize(), field) ? 1 : 0);
+				}
+				sink.booleanArrayValue(target, timestamp, values);
+			}
+			case StructLayout.FLOAT -> {
+				byte[] values = new byte[4 * count];
+				for (int i = 0; i < count; ++i) {
+					System.arraycopy(payload, i * layout.getSize() + layout.getOffset(field), values, 4 * i, 4);
+				}
+				sink.floatArrayValue(target, timestamp, values);
+			}
+			case StructLayout.DOUBLE -> {
+				byte[] values = new byte[8 * count];
+				for (int i = 0; i < count; ++i) {
+					System.arraycopy(payload, i * layout.getSize() + layout.getOffset(field), values, 8 * i, 8);
+				}
+				sink.doubleArrayValue(target, timestamp, values);
+			}
+			default -> {
+				byte[] values = new byte[8 * count];
+				for (int i = 0; i < count; ++i) {
+					Util.setLongAt(values, 8 * i, layout.getLong(payload, i * layout.getSize(), field));
+				}
+				sink.int64ArrayValue(target, timestamp, values);
+			}
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package wpilogviewer;
+
+import java.util.Arrays;
+
+// A struct compiled down to flat tables with every primitive field at a fixed offset, so each field is read straight
+// from the payload instead of walking the schema. Nested structs and arrays are unrolled into their fields.
+final class StructLayout {
+	static final byte BOOLEAN = 0;
+	static final byte SIGNED = 1;
+	static final byte UNSIGNED = 2;
+	static final byte FLOAT = 3;
+	static final byte DOUBLE = 4;
+
+	private int size = 0;
+	private int fieldCount = 0;
+	private String[] names = new String[8];
+	private byte[] kinds = new byte[8];
+	private int[] offsets = new int[8];
+	// Bytes read at the offset, which hold the field or, for a bit-field, the storage unit it's in
+	private int[] widths = new int[8];
+	private int[] shifts = new int[8];
+	// Less than 8 * width only for bit-fields
+	private int[] bits = new int[8];
+
+	int getSize() {
+		return size;
+	}
+
+	void setSize(int size) {
+		this.size = size;
+	}
+
+	int getFieldCount() {
+		return fieldCount;
+	}
+
+	String getName(int field) {
+		return names[field];
+	}
+
+	void addField(String name, byte kind, int offset, int width, int shift, int bits) {
+		if (fieldCount == names.length) {
+			int capacity = 2 * fieldCount;
+			names = Arrays.copyOf(names, capacity);
+			kinds = Arrays.copyOf(kinds, capacity);
+			offsets = Arrays.copyOf(offsets, capacity);
+			widths = Arrays.copyOf(widths, capacity);
+			shifts = Arrays.copyOf(shifts, capacity);
+			this.bits = Arrays.copyOf(this.bits, capacity);
+		}
+		names[fieldCount] = name;
+		kinds[fieldCount] = kind;
+		offsets[fieldCount] = offset;
+		widths[fieldCount] = width;
+		shifts[fieldCount] = shift;
+		this.bits[fieldCount] = bits;
+		++fieldCount;
+	}
+
+	// Adds every field of a struct held at offset, with prefix in front of their names
+	void addFields(StructLayout struct, String prefix, int offset) {
+		for (int i = 0; i < struct.fieldCount; ++i) {
+			addField(prefix + struct.names[i], struct.kinds[i], offset + struct.offsets[i], struct.widths[i], struct.shifts[i], struct.bits[i]);
+		}
+	}
+
+	int getOffset(int field) {
+		return offsets[field];
+	}
+
+	byte getKind(int field) {
+		return kinds[field];
+	}
+
+	// The bool or integer field of the struct at start in payload, sign-extended if it's signed. uint64 values above
+	// Long.MAX_VALUE keep their bits, so they come out negative.
+	long getLong(byte[] payload, int start, int field) {
+		int offset = start + offsets[field];
+		long raw = switch (widths[field]) {
+			case 1 -> payload[offset] & 0xFFL;
+			case 2 -> (payload[offset] & 0xFFL) | (payload[offset + 1] & 0xFFL) << 8;
+			case 4 -> Util.intAt(payload, offset) & 0xFFFFFFFFL;
+			default -> Util.longAt(payload, offset);
+		};
+		raw >>>= shifts[field];
+		int unused = 64 - bits[field];
+		return kinds[field] == SIGNED ? raw << unused >> unused : raw << unused >>> unused;
+	}
+
+	boolean getBoolean(byte[] payload, int start, int field) {
+		return getLong(payload, start, field) != 0;
+	}
+
+	float getFloat(byte[] payload, int start, int field) {
+		return Float.intBitsToFloat(Util.intAt(payload, start + offsets[field]));
+	}
+
+	double getDouble(byte[] payload, int start, int field) {
+		return Double.longBitsToDouble(Util.longAt(payload, start + offsets[field]));
+	}
+
+	// Appends the fields of the struct at start in payload like {translation.x=1.0, translation.y=2.0}
+	void appendTo(StringBuilder builder, byte[] payload, int start) {
+		builder.append('{');
+		for (int i = 0; i < fieldCount; ++i) {
+			if (i != 0) {
+				builder.append(", ");
+			}
+			builder.append(names[i]).append('=');
+			switch (kinds[i]) {
+				case BOOLEAN -> builder.append(getBoolean(payload, start, i));
+				case SIGNED -> builder.append(getLong(payload, start, i));
+				case UNSIGNED -> builder.append(Long.toUnsignedString(getLong(payload, start, i)));
+				case FLOAT -> builder.append(getFloat(payload, start, i));
+				default -> builder.append(getDouble(payload, start, i));
+			}
+		}
+		builder.append('}');
+	}
+}
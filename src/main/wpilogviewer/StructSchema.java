@@ -0,0 +1,159 @@
+package wpilogviewer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// A WPILib struct schema, which declares packed little-endian fields like "double x;double y" or
+// "enum {a=1, b=2} int8 mode;uint8 flags:3", each a primitive or another struct, optionally a fixed size array or
+// a bit-field. Parsed once when the schema arrives and compiled into a StructLayout once the structs it holds are known.
+final class StructSchema {
+	private static final Pattern DECLARATION = Pattern.compile("([A-Za-z_]\\w*)\\s+([A-Za-z_]\\w*)\\s*(?:\\[\\s*(\\d+)\\s*\\]|:\\s*(\\d+))?");
+	// Kind of char fields, which are text and take up space but don't decode into values
+	private static final byte CHAR = -1;
+
+	private static class Declaration {
+		private final String type;
+		private final String name;
+		// -1 if it isn't an array
+		private final int arrayLength;
+		// 0 if it isn't a bit-field
+		private final int bits;
+
+		public Declaration(String type, String name, int arrayLength, int bits) {
+			this.type = type;
+			this.name = name;
+			this.arrayLength = arrayLength;
+			this.bits = bits;
+		}
+	}
+
+	private final List<Declaration> declarations;
+
+	private StructSchema(List<Declaration> declarations) {
+		this.declarations = declarations;
+	}
+
+	// Kind of a primitive type, or 0 for other structs, which primitiveSize tells apart
+	private static byte primitiveKind(String type) {
+		return switch (type) {
+			case "bool" -> StructLayout.BOOLEAN;
+			case "char" -> CHAR;
+			case "int8", "int16", "int32", "int64" -> StructLayout.SIGNED;
+			case "uint8", "uint16", "uint32", "uint64" -> StructLayout.UNSIGNED;
+			case "float", "float32" -> StructLayout.FLOAT;
+			case "double", "float64" -> StructLayout.DOUBLE;
+			default -> 0;
+		};
+	}
+
+	// Size in bytes of a primitive type, or 0 if it's a struct
+	private static int primitiveSize(String type) {
+		return switch (type) {
+			case "bool", "char", "int8", "uint8" -> 1;
+			case "int16", "uint16" -> 2;
+			case "int32", "uint32", "float", "float32" -> 4;
+			case "int64", "uint64", "double", "float64" -> 8;
+			default -> 0;
+		};
+	}
+
+	public static StructSchema parse(String text) {
+		List<Declaration> declarations = new ArrayList<>();
+		var names = new HashSet<String>();
+		for (String part : text.split(";")) {
+			String declaration = part.strip();
+			if (declaration.isEmpty()) {
+				continue;
+			}
+			// Enum values only name integers, which decode the same without them
+			if (declaration.startsWith("enum") && (declaration.length() == 4 || declaration.charAt(4) == '{' || Character.isWhitespace(declaration.charAt(4)))) {
+				declaration = declaration.substring(4).strip();
+				if (!declaration.startsWith("{")) {
+					throw new IllegalArgumentException("Expected { after enum in \"" + part.strip() + "\"");
+				}
+			}
+			if (declaration.startsWith("{")) {
+				int end = declaration.indexOf('}');
+				if (end < 0) {
+					throw new IllegalArgumentException("Unclosed enum in \"" + part.strip() + "\"");
+				}
+				declaration = declaration.substring(end + 1).strip();
+			}
+			var matcher = DECLARATION.matcher(declaration);
+			if (!matcher.matches()) {
+				throw new IllegalArgumentException("Invalid declaration \"" + part.strip() + "\"");
+			}
+			String type = matcher.group(1);
+			String name = matcher.group(2);
+			int arrayLength = matcher.group(3) == null ? -1 : Integer.parseInt(matcher.group(3));
+			int bits = matcher.group(4) == null ? 0 : Integer.parseInt(matcher.group(4));
+			if (!names.add(name)) {
+				throw new IllegalArgumentException("Duplicate field " + name);
+			}
+			if (matcher.group(4) != null) {
+				byte kind = primitiveKind(type);
+				int size = primitiveSize(type);
+				if (size == 0 || (kind != StructLayout.BOOLEAN && kind != StructLayout.SIGNED && kind != StructLayout.UNSIGNED)) {
+					throw new IllegalArgumentException("Bit-field " + name + " must be a bool or an integer, but is " + type);
+				}
+				if (bits < 1 || bits > 8 * size || (kind == StructLayout.BOOLEAN && bits != 1)) {
+					throw new IllegalArgumentException("Bit-field " + name + " of type " + type + " can't be " + bits + " bits");
+				}
+			}
+			declarations.add(new Declaration(type, name, arrayLength, bits));
+		}
+		return new StructSchema(declarations);
+	}
+
+	// Lays out the fields with the layouts of the structs they hold from nameToLayout, or returns null if one of them
+	// isn't in it yet. Consecutive bit-fields share a storage unit of their type's size, from the lowest bit up, until
+	// one doesn't fit or has a different size; bool bit-fields join whatever unit is open.
+	public StructLayout compile(Map<String, StructLayout> nameToLayout) {
+		var layout = new StructLayout();
+		int offset = 0;
+		// Storage unit of the latest bit-field, with 0 width when there's none to add to
+		int unitOffset = 0;
+		int unitWidth = 0;
+		int unitBits = 0;
+		for (var declaration : declarations) {
+			byte kind = primitiveKind(declaration.type);
+			int size = primitiveSize(declaration.type);
+			if (declaration.bits > 0) {
+				int width = kind == StructLayout.BOOLEAN && unitWidth > 0 ? unitWidth : size;
+				if (width != unitWidth || unitBits + declaration.bits > 8 * unitWidth) {
+					unitOffset = offset;
+					unitWidth = width;
+					unitBits = 0;
+					offset += width;
+				}
+				layout.addField(declaration.name, kind, unitOffset, unitWidth, unitBits, declaration.bits);
+				unitBits += declaration.bits;
+				continue;
+			}
+			unitWidth = 0;
+			StructLayout struct = null;
+			if (size == 0) {
+				struct = nameToLayout.get(declaration.type);
+				if (struct == null) {
+					return null;
+				}
+				size = struct.getSize();
+			}
+			int count = declaration.arrayLength < 0 ? 1 : declaration.arrayLength;
+			for (int i = 0; i < count; ++i) {
+				String name = declaration.arrayLength < 0 ? declaration.name : declaration.name + "[" + i + "]";
+				if (struct != null) {
+					layout.addFields(struct, name + ".", offset);
+				} else if (kind != CHAR) {
+					layout.addField(name, kind, offset, size, 0, 8 * size);
+				}
+				offset += size;
+			}
+		}
+		layout.setSize(offset);
+		return layout;
+	}
+}
@@ -0,0 +1,74 @@
+package wpilogviewer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The struct schemas one log logged so far, which make the decoders of its struct entries. Each log needs its own,
+// since logs can log different schemas under the same name. A decoder keeps the layout its struct had when the entry
+// started, or when the schemas it needs first arrived if it started before them, so a schema logged again with
+// changes only applies to entries that start after it. Schemas have to be registered in the order they were logged.
+public class StructSchemas {
+	private final Map<String, String> structNameToSchemaText = new HashMap<>();
+	private final Map<String, StructSchema> structNameToSchema = new HashMap<>();
+	private Map<String, StructLayout> structNameToLayout = new HashMap<>();
+	// Decoders of entries that started before the schema of their struct or of a struct in it arrived
+	private final List<StructDecoder> waitingDecoders = new ArrayList<>();
+
+	// Never null; like PayloadDecoders.forEntry, but struct types without a registered decoder decode with the schemas
+	// registered so far, or the ones registered next if theirs isn't known yet
+	public synchronized PayloadDecoder forEntry(String name, String type) {
+		if (!PayloadDecoders.isStructType(type) || PayloadDecoders.registered(type) != null) {
+			return PayloadDecoders.forEntry(name, type);
+		}
+		var decoder = new StructDecoder(PayloadDecoders.structName(type), type.endsWith("[]"));
+		var layout = structNameToLayout.get(decoder.getStructName());
+		if (layout == null) {
+			waitingDecoders.add(decoder);
+		} else {
+			decoder.setLayout(layout);
+		}
+		return decoder;
+	}
+
+	// Parses the schema logged by the struct schema entry entryName and compiles the layouts of the structs it
+	// changes, which the decoders of entries that start from now on use. Logs repeat the same schemas, which are only
+	// compiled the first time. Throws IllegalArgumentException if the schema doesn't parse.
+	public synchronized void register(String entryName, String schema) {
+		String structName = entryName.substring(PayloadDecoders.STRUCT_SCHEMA_PREFIX.length());
+		if (schema.equals(structNameToSchemaText.get(structName))) {
+			return;
+		}
+		var parsed = StructSchema.parse(schema);
+		structNameToSchemaText.put(structName, schema);
+		structNameToSchema.put(structName, parsed);
+		// A changed schema changes the layout of every struct that holds it, so they all get compiled again, each once
+		// the structs it holds are. Decoders keep the layouts they already have.
+		Map<String, StructLayout> layouts = new HashMap<>();
+		boolean compiledAny = true;
+		while (compiledAny) {
+			compiledAny = false;
+			for (var schemaEntry : structNameToSchema.entrySet()) {
+				if (layouts.containsKey(schemaEntry.getKey())) {
+					continue;
+				}
+				var layout = schemaEntry.getValue().compile(layouts);
+				if (layout != null) {
+					layouts.put(schemaEntry.getKey(), layout);
+					compiledAny = true;
+				}
+			}
+		}
+		structNameToLayout = layouts;
+		var iterator = waitingDecoders.iterator();
+		while (iterator.hasNext()) {
+			var decoder = iterator.next();
+			var layout = layouts.get(decoder.getStructName());
+			if (layout != null) {
+				decoder.setLayout(layout);
+				iterator.remove();
+			}
+		}
+	}
+}
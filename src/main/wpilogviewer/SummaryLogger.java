@@ -0,0 +1,113 @@
+package wpilogviewer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+// Counts records per topic without decoding any payloads
+public class SummaryLogger implements Logger {
+	public static class TopicSummary {
+		private final String type;
+		private long recordCount = 0;
+		private long firstTimestamp = -1;
+		private long lastTimestamp = 0;
+
+		public TopicSummary(String type) {
+			this.type = type;
+		}
+
+		void addRecord(long timestamp) {
+			++recordCount;
+			if (Long.compareUnsigned(timestamp, firstTimestamp) < 0) {
+				firstTimestamp = timestamp;
+			}
+			if (Long.compareUnsigned(timestamp, lastTimestamp) > 0) {
+				lastTimestamp = timestamp;
+			}
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		public long getRecordCount() {
+			return recordCount;
+		}
+
+		// In seconds, from the first to the last record
+		public double getDuration() {
+			if (recordCount == 0) {
+				return 0;
+			}
+			return (lastTimestamp - firstTimestamp) / 1e6;
+		}
+
+		// Records per second between the first and last record
+		public double getRate() {
+			if (recordCount < 2) {
+				return 0;
+			}
+			return (recordCount - 1) / getDuration();
+		}
+	}
+
+	private final Map<Long, TopicSummary> idToTopic = new HashMap<>();
+	// Ids can be reused for other topics, so topics are kept by name
+	private final Map<String, TopicSummary> nameToTopic = new TreeMap<>();
+	private long recordCount = 0;
+	private long firstTimestamp = -1;
+	private long lastTimestamp = 0;
+
+	private void addTimestamp(long timestamp) {
+		++recordCount;
+		if (Long.compareUnsigned(timestamp, firstTimestamp) < 0) {
+			firstTimestamp = timestamp;
+		}
+		if (Long.compareUnsigned(timestamp, lastTimestamp) > 0) {
+			lastTimestamp = timestamp;
+		}
+	}
+
+	@Override
+	public void logStart(long entryId, String entryName, String entryType, String entryMetadata, long timestamp) {
+		addTimestamp(timestamp);
+		idToTopic.put(entryId, nameToTopic.computeIfAbsent(entryName, key -> new TopicSummary(entryType)));
+	}
+
+	@Override
+	public void logFinish(long entryId, long timestamp) {
+		addTimestamp(timestamp);
+	}
+
+	@Override
+	public void logSetMetadata(long entryId, long timestamp, String newMetadata) {
+		addTimestamp(timestamp);
+	}
+
+	@Override
+	public void logValue(long entryId, long timestamp, Supplier<byte[]> payloadSupplier) {
+		addTimestamp(timestamp);
+		var topic = idToTopic.get(entryId);
+		if (topic != null) {
+			topic.addRecord(timestamp);
+		}
+	}
+
+	public Map<String, TopicSummary> getTopics() {
+		return nameToTopic;
+	}
+
+	// Includes control records
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	// In seconds, from the first to the last record
+	public double getDuration() {
+		if (recordCount == 0) {
+			return 0;
+		}
+		return (lastTimestamp - firstTimestamp) / 1e6;
+	}
+}
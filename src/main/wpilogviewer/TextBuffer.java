@@ -0,0 +1,204 @@
+package wpilogviewer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Growable byte buffer for building text output without making Strings along the way
+public class TextBuffer {
+	private static final byte[] DIGITS = "0123456789".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17 };
+
+	private byte[] bytes;
+	private int size = 0;
+
+	public TextBuffer(int initialCapacity) {
+		bytes = new byte[initialCapacity];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	// Drops everything after the first size bytes
+	public void truncate(int size) {
+		this.size = size;
+	}
+
+	public void writeTo(OutputStream output) throws IOException {
+		output.write(bytes, 0, size);
+	}
+
+	private void ensureCapacity(int extra) {
+		if (size + extra > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(size + extra, 2 * bytes.length));
+		}
+	}
+
+	public TextBuffer append(byte value) {
+		ensureCapacity(1);
+		bytes[size++] = value;
+		return this;
+	}
+
+	public TextBuffer append(char value) {
+		if (value < 0x80) {
+			return append((byte) value);
+		}
+		return append(String.valueOf(value));
+	}
+
+	public TextBuffer append(TextBuffer other) {
+		ensureCapacity(other.size);
+		System.arraycopy(other.bytes, 0, bytes, size, other.size);
+		size += other.size;
+		return this;
+	}
+
+	public TextBuffer append(byte[] value, int start, int length) {
+		ensureCapacity(length);
+		System.arraycopy(value, start, bytes, size, length);
+		size += length;
+		return this;
+	}
+
+	// Encodes as UTF-8
+	public TextBuffer append(CharSequence value) {
+		int length = value.length();
+		ensureCapacity(length);
+		for (int i = 0; i < length; ++i) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				bytes[size++] = (byte) c;
+			} else {
+				// Rare enough to go through the slow path
+				appendUtf8(value, i);
+				return this;
+			}
+		}
+		return this;
+	}
+
+	private void appendUtf8(CharSequence value, int start) {
+		byte[] encoded = value.subSequence(start, value.length()).toString().getBytes(StandardCharsets.UTF_8);
+		append(encoded, 0, encoded.length);
+	}
+
+	public TextBuffer append(boolean value) {
+		return append(value ? "true" : "false");
+	}
+
+	public TextBuffer append(long value) {
+		if (value < 0) {
+			if (value == Long.MIN_VALUE) {
+				return append("-9223372036854775808");
+			}
+			append((byte) '-');
+			value = -value;
+		}
+		return appendUnsigned(value);
+	}
+
+	// Treats value as unsigned, like Long.toUnsignedString
+	public TextBuffer appendUnsigned(long value) {
+		ensureCapacity(20);
+		int digitCount = 1;
+		// Unsigned values over Long.MAX_VALUE have 19 or 20 digits, so start with the first digit
+		if (value < 0) {
+			long quotient = Long.divideUnsigned(value, 10);
+			appendUnsigned(quotient);
+			bytes[size++] = DIGITS[(int) (value - quotient * 10)];
+			return this;
+		}
+		for (long rest = value / 10; rest != 0; rest /= 10) {
+			++digitCount;
+		}
+		int end = size + digitCount;
+		for (int i = end - 1; i >= size; --i) {
+			bytes[i] = DIGITS[(int) (value % 10)];
+			value /= 10;
+		}
+		size = end;
+		return this;
+	}
+
+	// Writes the shortest plain decimal of up to 17 significant digits that reads back as the same double, falling
+	// back to Double.toString for values that are huge, tiny or need every digit
+	public TextBuffer append(double value) {
+		if (!appendPlain(value, 17)) {
+			append(Double.toString(value));
+		}
+		return this;
+	}
+
+	// Like append(double), but a decimal only needs to read back as the same float
+	public TextBuffer append(float value) {
+		if (!appendPlain(value, 9)) {
+			append(Float.toString(value));
+		}
+		return this;
+	}
+
+	// Returns false if value needs scientific notation or more digits than allowed
+	private boolean appendPlain(double value, int maxDigits) {
+		double magnitude = Math.abs(value);
+		if (!(magnitude >= 1e-3 && magnitude < 1e15)) {
+			if (value == 0) {
+				append(1 / value < 0 ? "-0.0" : "0.0");
+				return true;
+			}
+			return false;
+		}
+		int integerDigits = magnitude < 1 ? 0 : (int) Math.floor(Math.log10(magnitude)) + 1;
+		boolean isFloat = maxDigits == 9;
+		for (int decimals = 0; decimals < POWERS_OF_TEN.length && integerDigits + decimals <= maxDigits; ++decimals) {
+			double scaled = Math.rint(magnitude * POWERS_OF_TEN[decimals]);
+			// Exact division of two exact values, so this is the double nearest to the decimal
+			double candidate = scaled / POWERS_OF_TEN[decimals];
+			if (isFloat ? (float) candidate == (float) magnitude : candidate == magnitude) {
+				if (value < 0) {
+					append((byte) '-');
+				}
+				appendScaled((long) scaled, decimals);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Writes scaled / 10^decimals with at least one digit on both sides of the point
+	private void appendScaled(long scaled, int decimals) {
+		long power = 1;
+		for (int i = 0; i < decimals; ++i) {
+			power *= 10;
+		}
+		appendUnsigned(scaled / power);
+		append((byte) '.');
+		if (decimals == 0) {
+			append((byte) '0');
+			return;
+		}
+		long fraction = scaled % power;
+		ensureCapacity(decimals);
+		for (int i = size + decimals - 1; i >= size; --i) {
+			bytes[i] = DIGITS[(int) (fraction % 10)];
+			fraction /= 10;
+		}
+		size += decimals;
+	}
+
+	public TextBuffer appendHex(byte[] value, int start, int length) {
+		ensureCapacity(2 * length);
+		for (int i = start; i < start + length; ++i) {
+			bytes[size++] = HEX_DIGITS[(value[i] >> 4) & 0xF];
+			bytes[size++] = HEX_DIGITS[value[i] & 0xF];
+		}
+		return this;
+	}
+}
@@ -0,0 +1,116 @@
+package wpilogviewer;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+// Formats lines into one reusable builder and writes them out in large blocks, optionally from a background thread.
+// Like PrintStream, errors don't throw, but make checkError return true
+public class TextOutput implements Closeable, Flushable {
+	private static final int BUFFER_SIZE = 1 << 20;
+	private static final int BACKGROUND_CHUNK_COUNT = 4;
+
+	private final OutputStream stream;
+	private final Charset charset;
+	// Whether chars below 0x80 are encoded as themselves, which lets most lines skip the encoder
+	private final boolean asciiCompatible;
+	private final byte[] lineSeparator;
+	private final StringBuilder line = new StringBuilder(256);
+	private byte[] lineBytes = new byte[256];
+	private PrintStream printStream = null;
+	private boolean hasError = false;
+
+	public TextOutput(OutputStream output, Charset charset, boolean background) {
+		this.stream = background ? new BackgroundOutputStream(output, BUFFER_SIZE, BACKGROUND_CHUNK_COUNT) : new BufferedOutputStream(output, BUFFER_SIZE);
+		this.charset = charset;
+		this.asciiCompatible = charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII) || charset.equals(StandardCharsets.ISO_8859_1);
+		this.lineSeparator = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+	}
+
+	// The charset System.out encodes with
+	public static Charset stdoutCharset() {
+		for (var property : new String[] { "stdout.encoding", "sun.stdout.encoding" }) {
+			String name = System.getProperty(property);
+			if (name != null && Charset.isSupported(name)) {
+				return Charset.forName(name);
+			}
+		}
+		return Charset.defaultCharset();
+	}
+
+	// Writes into the same stream as the lines, so it can stand in for System.out without reordering anything
+	public PrintStream asPrintStream() {
+		if (printStream == null) {
+			printStream = new PrintStream(stream, false, charset);
+		}
+		return printStream;
+	}
+
+	// Returns the cleared builder for the next line, which endLine writes
+	public StringBuilder startLine() {
+		line.setLength(0);
+		return line;
+	}
+
+	public void endLine() {
+		if (!asciiCompatible) {
+			// Encoders for these can keep state between writes, so they need the one PrintStream has
+			asPrintStream().println(line);
+			return;
+		}
+		int length = line.length();
+		if (lineBytes.length < length + lineSeparator.length) {
+			lineBytes = new byte[Math.max(length + lineSeparator.length, 2 * lineBytes.length)];
+		}
+		int i = 0;
+		for (; i < length; ++i) {
+			char c = line.charAt(i);
+			if (c >= 0x80) {
+				break;
+			}
+			lineBytes[i] = (byte) c;
+		}
+		try {
+			if (i < length) {
+				stream.write(line.toString().getBytes(charset));
+				stream.write(lineSeparator);
+			} else {
+				System.arraycopy(lineSeparator, 0, lineBytes, length, lineSeparator.length);
+				stream.write(lineBytes, 0, length + lineSeparator.length);
+			}
+		} catch (IOException e) {
+			hasError = true;
+		}
+	}
+
+	public boolean checkError() {
+		return hasError || (printStream != null && printStream.checkError());
+	}
+
+	@Override
+	public void flush() {
+		if (printStream != null) {
+			printStream.flush();
+		}
+		try {
+			stream.flush();
+		} catch (IOException e) {
+			hasError = true;
+		}
+	}
+
+	@Override
+	public void close() {
+		flush();
+		try {
+			stream.close();
+		} catch (IOException e) {
+			hasError = true;
+		}
+	}
+}
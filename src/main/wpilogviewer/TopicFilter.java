@@ -0,0 +1,67 @@
+package wpilogviewer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Matches entry names against exact names and globs, where * and ? don't match across /, and ** does
+public class TopicFilter {
+	private final Set<String> names = new HashSet<>();
+	private final List<Pattern> globs = new ArrayList<>();
+
+	public TopicFilter(Collection<String> topics) {
+		for (String topic : topics) {
+			if (isGlob(topic)) {
+				globs.add(globToPattern(topic));
+			} else {
+				names.add(topic);
+			}
+		}
+	}
+
+	private static boolean isGlob(String topic) {
+		return topic.indexOf('*') >= 0 || topic.indexOf('?') >= 0;
+	}
+
+	private static Pattern globToPattern(String glob) {
+		var regex = new StringBuilder();
+		int literalStart = 0;
+		for (int i = 0; i < glob.length(); ++i) {
+			char c = glob.charAt(i);
+			if (c != '*' && c != '?') {
+				continue;
+			}
+			if (literalStart < i) {
+				regex.append(Pattern.quote(glob.substring(literalStart, i)));
+			}
+			if (c == '?') {
+				regex.append("[^/]");
+			} else if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+				regex.append(".*");
+				++i;
+			} else {
+				regex.append("[^/]*");
+			}
+			literalStart = i + 1;
+		}
+		if (literalStart < glob.length()) {
+			regex.append(Pattern.quote(glob.substring(literalStart)));
+		}
+		return Pattern.compile(regex.toString());
+	}
+
+	public boolean matches(String name) {
+		if (names.contains(name)) {
+			return true;
+		}
+		for (var glob : globs) {
+			if (glob.matcher(name).matches()) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -1,8 +1,19 @@
 package wpilogviewer;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 
 public class Util {
+	private static final VarHandle INT_VIEW = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final VarHandle FLOAT_VIEW = MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final VarHandle DOUBLE_VIEW = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.LITTLE_ENDIAN);
+	// Below this many bytes, reading elements one by one beats setting up a buffer view to copy them in bulk
+	private static final int BULK_ARRAY_BYTES = 1024;
+
 	public static int intFromBytes(byte[] bytes) {
 		int value = 0;
 		if (bytes.length > 4) {
@@ -61,6 +72,74 @@ public class Util {
 		return value;
 	}
 
+	// Little-endian int at start, which must have all 4 bytes in the array
+	public static int intAt(byte[] bytes, int start) {
+		return (int) INT_VIEW.get(bytes, start);
+	}
+
+	// Little-endian long at start, which must have all 8 bytes in the array
+	public static long longAt(byte[] bytes, int start) {
+		return (long) LONG_VIEW.get(bytes, start);
+	}
+
+	// Writes value as a little-endian long at start, which must have room for all 8 bytes
+	public static void setLongAt(byte[] bytes, int start, long value) {
+		LONG_VIEW.set(bytes, start, value);
+	}
+
+	// The array decoders read whole little-endian payloads, whose lengths must be multiples of the element size
+	public static long[] longsFromBytes(byte[] bytes) {
+		long[] value = new long[bytes.length / 8];
+		if (bytes.length >= BULK_ARRAY_BYTES) {
+			ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(value);
+			return value;
+		}
+		for (int i = 0; i < value.length; ++i) {
+			value[i] = (long) LONG_VIEW.get(bytes, 8 * i);
+		}
+		return value;
+	}
+
+	public static float[] floatsFromBytes(byte[] bytes) {
+		float[] value = new float[bytes.length / 4];
+		if (bytes.length >= BULK_ARRAY_BYTES) {
+			ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(value);
+			return value;
+		}
+		for (int i = 0; i < value.length; ++i) {
+			value[i] = (float) FLOAT_VIEW.get(bytes, 4 * i);
+		}
+		return value;
+	}
+
+	public static double[] doublesFromBytes(byte[] bytes) {
+		double[] value = new double[bytes.length / 8];
+		if (bytes.length >= BULK_ARRAY_BYTES) {
+			ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(value);
+			return value;
+		}
+		for (int i = 0; i < value.length; ++i) {
+			value[i] = (double) DOUBLE_VIEW.get(bytes, 8 * i);
+		}
+		return value;
+	}
+
+	// Whether every byte is 0 or 1, checking 8 bytes at a time
+	public static boolean isBooleanArray(byte[] bytes) {
+		int i = 0;
+		for (; i + 8 <= bytes.length; i += 8) {
+			if ((longAt(bytes, i) & 0xFEFEFEFEFEFEFEFEL) != 0) {
+				return false;
+			}
+		}
+		for (; i < bytes.length; ++i) {
+			if ((bytes[i] & 0xFE) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	public static String utf8StringFromBytes(byte[] bytes) {
 		return new String(bytes, StandardCharsets.UTF_8);
 	}
@@ -68,4 +147,26 @@ public class Util {
 	public static String utf8StringFromBytes(byte[] bytes, int start, int length) {
 		return new String(bytes, start, length, StandardCharsets.UTF_8);
 	}
+
+	public static byte[] stringArrayToBytes(String[] strings) {
+		byte[][] encoded = new byte[strings.length][];
+		int length = 4;
+		for (int i = 0; i < strings.length; ++i) {
+			encoded[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+			length += 4 + encoded[i].length;
+		}
+		byte[] bytes = new byte[length];
+		int index = 0;
+		for (int i = -1; i < encoded.length; ++i) {
+			int value = i < 0 ? encoded.length : encoded[i].length;
+			for (int j = 0; j < 4; ++j) {
+				bytes[index++] = (byte) (value >>> (8 * j));
+			}
+			if (i >= 0) {
+				System.arraycopy(encoded[i], 0, bytes, index, encoded[i].length);
+				index += encoded[i].length;
+			}
+		}
+		return bytes;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+package wpilogviewer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Writes one CSV row per distinct timestamp with a column per topic, where each cell holds the latest value of its
+// topic at that time. Memory only depends on the number of topics, not on the size of the log.
+public class WideCsvLogger implements Logger, Closeable {
+	private static class Column {
+		private final String type;
+		private final PayloadDecoder decoder;
+		private final TextBuffer cell = new TextBuffer(16);
+
+		public Column(String type) {
+			this.type = type;
+			this.decoder = PayloadDecoders.forType(type);
+		}
+	}
+
+	private final OutputStream output;
+	private final Map<String, Column> nameToColumn = new LinkedHashMap<>();
+	private final List<Column> columns;
+	private final Map<Long, Column> idToColumn = new HashMap<>();
+	private final TextBuffer buffer = new TextBuffer(CsvFormat.FLUSH_SIZE + (1 << 16));
+	private final CsvFormat format = new CsvFormat();
+	private boolean hasRow = false;
+	private long rowTimestamp;
+
+	// Columns are fixed before the first row, so they come from topicNameToType, which findTopics can fill in
+	public WideCsvLogger(OutputStream output, Map<String, String> topicNameToType) {
+		this.output = output;
+		buffer.append("timestamp");
+		for (var topic : topicNameToType.entrySet()) {
+			nameToColumn.put(topic.getKey(), new Column(topic.getValue()));
+			buffer.append((byte) ',');
+			CsvFormat.appendField(buffer, topic.getKey());
+		}
+		buffer.append((byte) '\n');
+		columns = new ArrayList<>(nameToColumn.values());
+	}
+
+	// Reads just the control records of a log to find the topics that pass topicFilter, in the order they start
+	public static Map<String, String> findTopics(Path path, TopicFilter topicFilter) throws IOException {
+		Map<String, String> topicNameToType = new LinkedHashMap<>();
+		long firstRecordOffset = WpiLogProcessor.findFirstRecordOffset(path);
+		if (firstRecordOffset < 0) {
+			return topicNameToType;
+		}
+		WpiLogProcessor.process(path, new Logger() {
+			@Override
+			public void logStart(long entryId, String entryName, String entryType, String entryMetadata, long timestamp) {
+				if (topicFilter == null || topicFilter.matches(entryName)) {
+					topicNameToType.putIfAbsent(entryName, entryType);
+				}
+			}
+
+			@Override
+			public void logFinish(long entryId, long timestamp) {
+			}
+
+			@Override
+			public void logSetMetadata(long entryId, long timestamp, String newMetadata) {
+			}
+
+			@Override
+			public boolean wantsValues(long entryId) {
+				return false;
+			}
+
+			@Override
+			public void logValue(long entryId, long timestamp, Supplier<byte[]> payloadSupplier) {
+			}
+		}, firstRecordOffset, Long.MAX_VALUE);
+		return topicNameToType;
+	}
+
+	private void writeRow() {
+		buffer.appendUnsigned(rowTimestamp);
+		for (var column : columns) {
+			buffer.append((byte) ',').append(column.cell);
+		}
+		buffer.append((byte) '\n');
+		if (buffer.size() >= CsvFormat.FLUSH_SIZE) {
+			try {
+				buffer.writeTo(output);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			buffer.clear();
+		}
+	}
+
+	@Override
+	public void logStart(long entryId, String entryName, String entryType, String entryMetadata, long timestamp) {
+		var column = nameToColumn.get(entryName);
+		// A topic that comes back with another type can't share its column
+		if (column == null || !column.type.equals(entryType)) {
+			idToColumn.remove(entryId);
+			return;
+		}
+		idToColumn.put(entryId, column);
+	}
+
+	@Override
+	public void logFinish(long entryId, long timestamp) {
+		idToColumn.remove(entryId);
+	}
+
+	@Override
+	public void logSetMetadata(long entryId, long timestamp, String newMetadata) {
+	}
+
+	@Override
+	public boolean wantsValues(long entryId) {
+		return idToColumn.containsKey(entryId);
+	}
+
+	@Override
+	public void logValue(long entryId, long timestamp, Supplier<byte[]> payloadSupplier) {
+		var column = idToColumn.get(entryId);
+		if (column == null) {
+			return;
+		}
+		if (hasRow && timestamp != rowTimestamp) {
+			writeRow();
+		}
+		hasRow = true;
+		rowTimestamp = timestamp;
+		column.cell.clear();
+		if (!format.appendValue(column.cell, column.decoder, payloadSupplier.get())) {
+			// Invalid values leave the cell empty
+			column.cell.clear();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (hasRow) {
+			writeRow();
+			hasRow = false;
+		}
+		buffer.writeTo(output);
+		buffer.clear();
+		output.flush();
+	}
+}
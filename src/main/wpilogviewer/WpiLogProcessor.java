@@ -1,48 +1,225 @@
 package wpilogviewer;
 
+import java.io.EOFException;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.Supplier;
 
 public class WpiLogProcessor {
-	private static int readInt(InputStream input, int length) throws IOException {
-		return Util.intFromBytes(input.readNBytes(length));
+	// Ids above this aren't tracked for skipping, so their values always reach the Logger
+	public static final long MAX_SKIPPABLE_ID = 1 << 24;
+
+	public static void process(InputStream data, Logger logger) throws IOException {
+		var event = new LogPhaseEvent("process stream");
+		var input = new StreamLogInput(data);
+		process(input, logger);
+		event.end(null, input.position());
 	}
 
-	private static long readLong(InputStream input, int length) throws IOException {
-		return Util.longFromBytes(input.readNBytes(length));
+	public static void process(Path path, Logger logger) throws IOException {
+		process(path, logger, Long.MAX_VALUE);
 	}
 
-	private static String readUtf8String(InputStream input, int length) throws IOException {
-		return Util.utf8StringFromBytes(input.readNBytes(length));
+	// Like process(Path, Logger), but only processes the first endOffset bytes, for logs that can grow while they're
+	// processed
+	public static void process(Path path, Logger logger, long endOffset) throws IOException {
+		var event = new LogPhaseEvent("process");
+		try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long end = Math.min(endOffset, channel.size());
+			process(new MappedLogInput(channel, 0, end), logger);
+			event.end(path, end);
+		}
 	}
 
-	public static void process(InputStream data, Logger logger) throws IOException {
-		final var input = data;
+	// Returns the offset of the first record, or -1 if the file doesn't start with a valid header
+	public static long findFirstRecordOffset(Path path) throws IOException {
+		try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			var input = new MappedLogInput(channel, 0, channel.size());
+			try {
+				return skipHeader(input) ? input.position() : -1;
+			} catch (EOFException e) {
+				return -1;
+			}
+		}
+	}
+
+	// Returns the extra header, or null if the file doesn't start with a valid header
+	public static String findExtraHeader(Path path) throws IOException {
+		try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			var input = new MappedLogInput(channel, 0, channel.size());
+			try {
+				byte[] wpilogHeaderBytes = input.readBytes(6);
+				if (!new String(wpilogHeaderBytes, StandardCharsets.US_ASCII).equals("WPILOG")) {
+					return null;
+				}
+				input.skip(2);
+				int extraHeaderLength = input.readInt(4);
+				return input.readUtf8String(extraHeaderLength);
+			} catch (EOFException e) {
+				return null;
+			}
+		}
+	}
+
+	// Returns whether the header was valid, without printing anything
+	private static boolean skipHeader(LogInput input) throws IOException {
+		byte[] wpilogHeaderBytes = input.readBytes(6);
+		if (!new String(wpilogHeaderBytes, StandardCharsets.US_ASCII).equals("WPILOG")) {
+			return false;
+		}
+		input.skip(2);
+		int extraHeaderLength = input.readInt(4);
+		input.skip(extraHeaderLength);
+		return true;
+	}
+
+	// Processes the records of a log from a stream without printing the header or "<DONE>", and returns how many
+	// bytes were read, or -1 if the header was invalid
+	public static long processRecords(InputStream data, Logger logger) throws IOException {
+		var input = new StreamLogInput(data);
+		try {
+			if (!skipHeader(input)) {
+				System.err.println("Input did not start with \"WPILOG\"!");
+				return -1;
+			}
+			processRecords(input, logger);
+		} catch (EOFException e) {
+			System.err.println("Log ended in the middle of a record! (" + e.getMessage() + ")");
+		} catch (UncheckedIOException e) {
+			if (!(e.getCause() instanceof EOFException)) {
+				throw e;
+			}
+			System.err.println("Log ended in the middle of a record! (" + e.getCause().getMessage() + ")");
+		}
+		return input.position();
+	}
+
+	// Processes just the records in [startOffset, endOffset), which must start and end on record boundaries
+	public static void process(Path path, Logger logger, long startOffset, long endOffset) throws IOException {
+		process(path, logger, startOffset, endOffset, new BitSet());
+	}
+
+	// Like process(Path, Logger, long, long), but starts out skipping the values of the ids in skippedIds, for ranges
+	// after records whose start records the Logger didn't see
+	public static void process(Path path, Logger logger, long startOffset, long endOffset, BitSet skippedIds) throws IOException {
+		var event = new LogPhaseEvent("process range");
+		try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			var input = new MappedLogInput(channel, startOffset, Math.min(endOffset, channel.size()));
+			try {
+				processRecords(input, logger, skippedIds);
+			} catch (EOFException e) {
+				System.err.println("Log range ended in the middle of a record! (" + e.getMessage() + ")");
+			}
+			event.end(path, input.position() - startOffset);
+		}
+	}
+
+	// Processes the header if the file holds all of it, and returns the offset of the first record, 0 if the header
+	// isn't fully written yet, or -1 if it's invalid
+	static long processHeader(FileChannel channel, long endOffset) throws IOException {
+		var input = new MappedLogInput(channel, 0, endOffset);
+		try {
+			input.skip(8);
+			int extraHeaderLength = input.readInt(4);
+			if (input.position() + extraHeaderLength > endOffset) {
+				return 0;
+			}
+		} catch (EOFException e) {
+			return 0;
+		}
+		input = new MappedLogInput(channel, 0, endOffset);
+		return processHeader(input) ? input.position() : -1;
+	}
+
+	// Returns the offset just past the last record in [startOffset, endOffset) that is fully written
+	static long findCompleteRecordsEnd(FileChannel channel, long startOffset, long endOffset) throws IOException {
+		var input = new MappedLogInput(channel, startOffset, endOffset);
+		long recordEnd = startOffset;
+		try {
+			while (true) {
+				int headerLengthBitfield = input.read();
+				if (headerLengthBitfield == -1) {
+					return recordEnd;
+				}
+				input.skip(1 + (headerLengthBitfield & 0b11));
+				int payloadSize = input.readInt(1 + ((headerLengthBitfield >> 2) & 0b11));
+				input.skip(1 + ((headerLengthBitfield >> 4) & 0b111));
+				if (input.position() + payloadSize > endOffset) {
+					return recordEnd;
+				}
+				input.skip(payloadSize);
+				recordEnd = input.position();
+			}
+		} catch (EOFException e) {
+			return recordEnd;
+		}
+	}
+
+	// Like process(Path, Logger, long, long), but keeps which ids are skipped in skippedIds between calls, and returns
+	// whether the records were valid
+	static boolean processRecords(FileChannel channel, Logger logger, long startOffset, long endOffset, BitSet skippedIds) throws IOException {
+		return processRecords(new MappedLogInput(channel, startOffset, endOffset), logger, skippedIds);
+	}
+
+	private static void process(LogInput input, Logger logger) throws IOException {
+		try {
+			if (processHeader(input) && processRecords(input, logger)) {
+				System.out.println("<DONE>");
+			}
+		} catch (EOFException e) {
+			System.err.println("Log ended in the middle of a record! (" + e.getMessage() + ")");
+		} catch (UncheckedIOException e) {
+			// Payloads are read through a Supplier, so truncation can also surface unchecked
+			if (!(e.getCause() instanceof EOFException)) {
+				throw e;
+			}
+			System.err.println("Log ended in the middle of a record! (" + e.getCause().getMessage() + ")");
+		}
+	}
+
+	// Returns whether the header was valid
+	private static boolean processHeader(LogInput input) throws IOException {
 		// Process header
 		// Expect WPILOG
-		byte[] wpilogHeaderBytes = data.readNBytes(6);
+		byte[] wpilogHeaderBytes = input.readBytes(6);
 		var wpilogHeader = new String(wpilogHeaderBytes, StandardCharsets.US_ASCII);
 		if (!wpilogHeader.equals("WPILOG")) {
 			System.err.println("First 6 bytes " + Arrays.toString(wpilogHeaderBytes) + " (\"" + wpilogHeader + "\") did not match \"WPILOG\"!");
-			return;
+			return false;
 		}
 		// Check version
-		int versionMinor = readInt(input, 1);
-		int versionMajor = readInt(input, 1);
+		int versionMinor = input.readInt(1);
+		int versionMajor = input.readInt(1);
 		System.out.println("Version number " + versionMajor + "." + versionMinor);
 		// Handle extra header (just ignore it)
-		int extraHeaderLength = readInt(input, 4);
-		byte[] extraHeaderBytes = data.readNBytes(extraHeaderLength);
-		System.out.println("Extra header: \"" + new String(extraHeaderBytes, StandardCharsets.UTF_8) + "\"");
+		int extraHeaderLength = input.readInt(4);
+		String extraHeader = input.readUtf8String(extraHeaderLength);
+		System.out.println("Extra header: \"" + extraHeader + "\"");
+		return true;
+	}
+
+	// Returns whether the end of the input was reached without errors
+	private static boolean processRecords(LogInput input, Logger logger) throws IOException {
+		return processRecords(input, logger, new BitSet());
+	}
+
+	// skippedIds holds the ids whose Logger said it doesn't want their values when they were started, and is
+	// updated as records are processed
+	private static boolean processRecords(LogInput input, Logger logger, BitSet skippedIds) throws IOException {
+		// Reused for every value record
+		var payloadSupplier = new ByteReader(input);
 		// Process data
 		while (true) {
-			int headerLengthBitfield = data.read();
+			int headerLengthBitfield = input.read();
 			if (headerLengthBitfield == -1) {
-				System.out.println("<DONE>");
-				return;
+				return true;
 			}
 
 			int entryIdLength = 1 + (headerLengthBitfield & 0b11);
@@ -50,58 +227,74 @@ public class WpiLogProcessor {
 			int timestampLength = 1 + ((headerLengthBitfield >> 4) & 0b111);
 			if ((headerLengthBitfield >> 7) != 0) {
 				System.out.println("Invalid header length bitfield " + headerLengthBitfield);
-				return;
+				return false;
 			}
 
-			long entryId = readLong(input, entryIdLength);
-			int payloadSize = readInt(input, payloadSizeLength);
-			long timestamp = readLong(input, timestampLength);
+			long entryId = input.readLong(entryIdLength);
+			int payloadSize = input.readInt(payloadSizeLength);
+			long timestamp = input.readLong(timestampLength);
 
 			if (entryId == 0) {
 				// Control record
-				int type = data.read();
+				int type = input.read();
 				if (type == 0) {
 					// Start record
-					long newEntryId = readLong(input, 4);
-					int newEntryNameLength = readInt(input, 4);
-					var newEntryName = readUtf8String(input, newEntryNameLength);
-					int newEntryTypeLength = readInt(input, 4);
-					var newEntryType = readUtf8String(input, newEntryTypeLength);
-					int newEntryMetadataLength = readInt(input, 4);
-					var newEntryMetadata = readUtf8String(input, newEntryMetadataLength);
+					long newEntryId = input.readLong(4);
+					int newEntryNameLength = input.readInt(4);
+					var newEntryName = input.readUtf8String(newEntryNameLength);
+					int newEntryTypeLength = input.readInt(4);
+					var newEntryType = input.readUtf8String(newEntryTypeLength);
+					int newEntryMetadataLength = input.readInt(4);
+					var newEntryMetadata = input.readUtf8String(newEntryMetadataLength);
 					logger.logStart(newEntryId, newEntryName, newEntryType, newEntryMetadata, timestamp);
+					if (newEntryId < MAX_SKIPPABLE_ID) {
+						skippedIds.set((int) newEntryId, !logger.wantsValues(newEntryId));
+					}
 				} else if (type == 1) {
 					// Finish record
-					long finishedEntryId = readLong(input, 4);
+					long finishedEntryId = input.readLong(4);
 					logger.logFinish(finishedEntryId, timestamp);
+					// Values for the id are invalid until it's started again, and the Logger should get to report them
+					if (finishedEntryId < MAX_SKIPPABLE_ID) {
+						skippedIds.clear((int) finishedEntryId);
+					}
 				} else if (type == 2) {
 					// Set metadata record
-					long updateEntryId = readLong(input, 4);
-					int updateEntryMetadataLength = readInt(input, 4);
-					String updateEntryMetadata = readUtf8String(input, updateEntryMetadataLength);
+					long updateEntryId = input.readLong(4);
+					int updateEntryMetadataLength = input.readInt(4);
+					String updateEntryMetadata = input.readUtf8String(updateEntryMetadataLength);
 					logger.logSetMetadata(updateEntryId, timestamp, updateEntryMetadata);
 				} else {
 					System.err.println("Unknown control record with type " + type + "! Aborting");
-					return;
+					return false;
 				}
 			} else {
 				// Non-control record
-				ByteReader payloadSupplier = new ByteReader(input, payloadSize);
-				logger.logValue(entryId, timestamp, payloadSupplier::getUnchecked);
+				if (entryId < MAX_SKIPPABLE_ID && skippedIds.get((int) entryId)) {
+					input.skip(payloadSize);
+					continue;
+				}
+				payloadSupplier.reset(payloadSize);
+				logger.logValue(entryId, timestamp, input.position(), payloadSize, payloadSupplier);
 				payloadSupplier.finish();
 			}
 		}
 	}
 
-	private static class ByteReader {
-		private boolean wasPolled = false;
+	private static class ByteReader implements Supplier<byte[]> {
+		private boolean wasPolled;
 		private byte[] value;
-		private final InputStream input;
-		private final int numBytes;
+		private final LogInput input;
+		private int numBytes;
 
-		public ByteReader(InputStream input, int numBytes) {
+		public ByteReader(LogInput input) {
 			this.input = input;
+		}
+
+		public void reset(int numBytes) {
 			this.numBytes = numBytes;
+			wasPolled = false;
+			value = null;
 		}
 
 		public void finish() throws IOException {
@@ -111,20 +304,21 @@ public class WpiLogProcessor {
 			}
 		}
 
-		public byte[] get() throws IOException {
+		public byte[] getChecked() throws IOException {
 			if (!wasPolled) {
-				value = input.readNBytes(numBytes);
+				value = input.readBytes(numBytes);
 				wasPolled = true;
 			}
 			return value;
 		}
 
-		public byte[] getUnchecked() {
+		@Override
+		public byte[] get() {
 			try {
-				return get();
+				return getChecked();
 			} catch (IOException e) {
 				throw new UncheckedIOException(e);
 			}
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,205 @@
+package wpilogviewer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Writes a version 1.0 wpilog; records go through one buffer, and payloads copied from another log skip the heap
+public class WpiLogWriter implements Closeable {
+	private static final int BUFFER_SIZE = 1 << 20;
+	// Payloads at least this big are copied by the OS instead of through the buffer
+	private static final int TRANSFER_THRESHOLD = 1 << 16;
+	private static final long SOURCE_WINDOW_SIZE = 1L << 26;
+	// Bitfield, id, size and timestamp
+	private static final int MAX_RECORD_HEADER_SIZE = 1 + 4 + 4 + 8;
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	// Mapped part of the log payloads were last copied from
+	private FileChannel source = null;
+	private MappedByteBuffer sourceWindow = null;
+	private long sourceWindowStart;
+	private long recordCount = 0;
+	private long size = 0;
+
+	public WpiLogWriter(WritableByteChannel channel, String extraHeader) throws IOException {
+		this.channel = channel;
+		buffer.put("WPILOG".getBytes(StandardCharsets.US_ASCII));
+		// Minor then major version
+		buffer.put((byte) 0);
+		buffer.put((byte) 1);
+		byte[] extraHeaderBytes = extraHeader.getBytes(StandardCharsets.UTF_8);
+		buffer.putInt(extraHeaderBytes.length);
+		put(extraHeaderBytes, 0, extraHeaderBytes.length);
+	}
+
+	public WpiLogWriter(Path path, String extraHeader) throws IOException {
+		this(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), extraHeader);
+	}
+
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	// Bytes written so far, including any still buffered
+	public long getSize() {
+		return size + buffer.position();
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			size += channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private void ensureRemaining(int length) throws IOException {
+		if (buffer.remaining() < length) {
+			flush();
+		}
+	}
+
+	private void put(byte[] bytes, int offset, int length) throws IOException {
+		if (length <= buffer.remaining()) {
+			buffer.put(bytes, offset, length);
+			return;
+		}
+		flush();
+		if (length <= buffer.remaining()) {
+			buffer.put(bytes, offset, length);
+			return;
+		}
+		var wrapped = ByteBuffer.wrap(bytes, offset, length);
+		while (wrapped.hasRemaining()) {
+			size += channel.write(wrapped);
+		}
+	}
+
+	private static int byteCount(long value) {
+		int count = 1;
+		while (count < 8 && (value >>> (8 * count)) != 0) {
+			++count;
+		}
+		return count;
+	}
+
+	private void putLittleEndian(long value, int length) {
+		for (int i = 0; i < length; ++i) {
+			buffer.put((byte) (value >>> (8 * i)));
+		}
+	}
+
+	private void putRecordHeader(long id, int payloadSize, long timestamp) throws IOException {
+		if (id < 0 || id > 0xFFFFFFFFL) {
+			throw new IllegalArgumentException("Entry ids must fit in 4 bytes, but got " + id);
+		}
+		if (payloadSize < 0) {
+			throw new IllegalArgumentException("Payload size must not be negative, but was " + payloadSize);
+		}
+		ensureRemaining(MAX_RECORD_HEADER_SIZE);
+		int idLength = byteCount(id);
+		int sizeLength = byteCount(payloadSize);
+		int timestampLength = byteCount(timestamp);
+		buffer.put((byte) ((idLength - 1) | ((sizeLength - 1) << 2) | ((timestampLength - 1) << 4)));
+		putLittleEndian(id, idLength);
+		putLittleEndian(payloadSize, sizeLength);
+		putLittleEndian(timestamp, timestampLength);
+		++recordCount;
+	}
+
+	private void putString(byte[] bytes) throws IOException {
+		ensureRemaining(4);
+		buffer.putInt(bytes.length);
+		put(bytes, 0, bytes.length);
+	}
+
+	public void startEntry(long id, String name, String type, String metadata, long timestamp) throws IOException {
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		byte[] typeBytes = type.getBytes(StandardCharsets.UTF_8);
+		byte[] metadataBytes = metadata.getBytes(StandardCharsets.UTF_8);
+		putRecordHeader(0, 1 + 4 + 4 + nameBytes.length + 4 + typeBytes.length + 4 + metadataBytes.length, timestamp);
+		ensureRemaining(1 + 4);
+		buffer.put((byte) 0);
+		buffer.putInt((int) id);
+		putString(nameBytes);
+		putString(typeBytes);
+		putString(metadataBytes);
+	}
+
+	public void finishEntry(long id, long timestamp) throws IOException {
+		putRecordHeader(0, 1 + 4, timestamp);
+		ensureRemaining(1 + 4);
+		buffer.put((byte) 1);
+		buffer.putInt((int) id);
+	}
+
+	public void setMetadata(long id, long timestamp, String metadata) throws IOException {
+		byte[] metadataBytes = metadata.getBytes(StandardCharsets.UTF_8);
+		putRecordHeader(0, 1 + 4 + 4 + metadataBytes.length, timestamp);
+		ensureRemaining(1 + 4);
+		buffer.put((byte) 2);
+		buffer.putInt((int) id);
+		putString(metadataBytes);
+	}
+
+	public void appendRecord(long id, long timestamp, byte[] payload) throws IOException {
+		appendRecord(id, timestamp, payload, 0, payload.length);
+	}
+
+	public void appendRecord(long id, long timestamp, byte[] payload, int offset, int length) throws IOException {
+		if (id == 0) {
+			throw new IllegalArgumentException("Id 0 is reserved for control records");
+		}
+		putRecordHeader(id, length, timestamp);
+		put(payload, offset, length);
+	}
+
+	// Copies the payload at payloadOffset in source without reading it onto the heap; copies should mostly move
+	// forward through the source, since it's mapped a window at a time
+	public void appendRecord(long id, long timestamp, FileChannel source, long payloadOffset, int payloadSize) throws IOException {
+		if (id == 0) {
+			throw new IllegalArgumentException("Id 0 is reserved for control records");
+		}
+		putRecordHeader(id, payloadSize, timestamp);
+		if (payloadSize >= TRANSFER_THRESHOLD) {
+			flush();
+			long position = payloadOffset;
+			long end = payloadOffset + payloadSize;
+			while (position < end) {
+				long transferred = source.transferTo(position, end - position, channel);
+				if (transferred <= 0) {
+					throw new IOException("Could not copy payload at " + position + " of the source log");
+				}
+				position += transferred;
+				size += transferred;
+			}
+			return;
+		}
+		if (source != this.source || payloadOffset < sourceWindowStart || payloadOffset + payloadSize > sourceWindowStart + sourceWindow.capacity()) {
+			long length = Math.min(SOURCE_WINDOW_SIZE, source.size() - payloadOffset);
+			if (length < payloadSize) {
+				throw new IOException("Payload at " + payloadOffset + " runs past the end of the source log");
+			}
+			this.source = source;
+			sourceWindow = source.map(FileChannel.MapMode.READ_ONLY, payloadOffset, length);
+			sourceWindowStart = payloadOffset;
+		}
+		ensureRemaining(payloadSize);
+		buffer.put(buffer.position(), sourceWindow, (int) (payloadOffset - sourceWindowStart), payloadSize);
+		buffer.position(buffer.position() + payloadSize);
+	}
+
+	@Override
+	public void close() throws IOException {
+		flush();
+		channel.close();
+	}
+}
@@ -0,0 +1,54 @@
+package wpilogviewer.loading;
+
+// Summary of the numeric records in a time range; min and max skip NaN values
+public class Aggregate {
+	private long count = 0;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+	private double sum = 0;
+
+	void add(double value) {
+		++count;
+		if (value < min) {
+			min = value;
+		}
+		if (value > max) {
+			max = value;
+		}
+		sum += value;
+	}
+
+	void add(long count, double min, double max, double sum) {
+		this.count += count;
+		if (min < this.min) {
+			this.min = min;
+		}
+		if (max > this.max) {
+			this.max = max;
+		}
+		this.sum += sum;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	// Positive infinity when there are no records
+	public double getMin() {
+		return min;
+	}
+
+	// Negative infinity when there are no records
+	public double getMax() {
+		return max;
+	}
+
+	public double getSum() {
+		return sum;
+	}
+
+	// NaN when there are no records
+	public double getMean() {
+		return sum / count;
+	}
+}
@@ -0,0 +1,159 @@
+package wpilogviewer.loading;
+
+import java.util.Arrays;
+
+// Min, max and sum over blocks of records, then over pairs of blocks, pairs of pairs and so on, which answers
+// aggregate queries over any index range with O(BLOCK_SIZE + log n) work. Only complete blocks and pairs are
+// kept, and they're added as records arrive, so the records after the last complete block are scanned instead.
+class AggregatePyramid {
+	static final int BLOCK_SIZE = 32;
+
+	private static class Level {
+		private double[] mins = new double[Column.INITIAL_CAPACITY];
+		private double[] maxes = new double[Column.INITIAL_CAPACITY];
+		private double[] sums = new double[Column.INITIAL_CAPACITY];
+		private int size = 0;
+
+		void add(double min, double max, double sum) {
+			if (size == mins.length) {
+				int capacity = Column.grownCapacity(mins.length, size + 1);
+				mins = Arrays.copyOf(mins, capacity);
+				maxes = Arrays.copyOf(maxes, capacity);
+				sums = Arrays.copyOf(sums, capacity);
+			}
+			mins[size] = min;
+			maxes[size] = max;
+			sums[size] = sum;
+			++size;
+		}
+
+		void trimToSize() {
+			mins = Arrays.copyOf(mins, size);
+			maxes = Arrays.copyOf(maxes, size);
+			sums = Arrays.copyOf(sums, size);
+		}
+
+		long getMemoryUsage() {
+			return 32 + 3 * (16 + 8L * mins.length);
+		}
+	}
+
+	private Column values;
+	// Level k holds nodes covering BLOCK_SIZE << k records each
+	private Level[] levels = new Level[0];
+
+	AggregatePyramid(Column values) {
+		this.values = values;
+	}
+
+	// For when the entry moves its values to another column with the same contents
+	void setValues(Column values) {
+		this.values = values;
+	}
+
+	private int coveredRecords() {
+		return levels.length == 0 ? 0 : levels[0].size * BLOCK_SIZE;
+	}
+
+	// Keeps the pyramid in step after the record at index was added or replaced in a column of size records
+	void valueChanged(int index, int size) {
+		if (index < coveredRecords()) {
+			// Out of order records are rare, so just drop what they invalidate
+			int validNodes = index / BLOCK_SIZE;
+			for (var level : levels) {
+				level.size = Math.min(level.size, validNodes);
+				validNodes /= 2;
+			}
+		}
+		update(size);
+	}
+
+	// Adds the nodes for every complete block in the first size records
+	void update(int size) {
+		while (coveredRecords() + BLOCK_SIZE <= size) {
+			int start = coveredRecords();
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			double sum = 0;
+			for (int i = start; i < start + BLOCK_SIZE; ++i) {
+				double value = values.getNumber(i);
+				if (value < min) {
+					min = value;
+				}
+				if (value > max) {
+					max = value;
+				}
+				sum += value;
+			}
+			addNode(0, min, max, sum);
+		}
+	}
+
+	private void addNode(int levelIndex, double min, double max, double sum) {
+		if (levelIndex == levels.length) {
+			levels = Arrays.copyOf(levels, levelIndex + 1);
+			levels[levelIndex] = new Level();
+		}
+		var level = levels[levelIndex];
+		level.add(min, max, sum);
+		// A completed pair makes a node on the level above
+		if (level.size % 2 == 0) {
+			int left = level.size - 2;
+			int right = level.size - 1;
+			addNode(levelIndex + 1, Math.min(level.mins[left], level.mins[right]), Math.max(level.maxes[left], level.maxes[right]), level.sums[left] + level.sums[right]);
+		}
+	}
+
+	private void scan(Aggregate aggregate, int start, int end) {
+		for (int i = start; i < end; ++i) {
+			aggregate.add(values.getNumber(i));
+		}
+	}
+
+	// Aggregates the records in [start, end) of a column of size records
+	Aggregate query(int start, int end, int size) {
+		update(size);
+		var aggregate = new Aggregate();
+		int firstBlock = (start + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		int endBlock = Math.min(end / BLOCK_SIZE, levels.length == 0 ? 0 : levels[0].size);
+		if (firstBlock >= endBlock) {
+			scan(aggregate, start, end);
+			return aggregate;
+		}
+		scan(aggregate, start, firstBlock * BLOCK_SIZE);
+		scan(aggregate, endBlock * BLOCK_SIZE, end);
+		// Climb the levels, taking the nodes that stick out of the pairs covered by the level above
+		int left = firstBlock;
+		int right = endBlock;
+		long nodeSize = BLOCK_SIZE;
+		for (int levelIndex = 0; left < right; ++levelIndex) {
+			var level = levels[levelIndex];
+			if ((left & 1) == 1) {
+				aggregate.add(nodeSize, level.mins[left], level.maxes[left], level.sums[left]);
+				++left;
+			}
+			if ((right & 1) == 1) {
+				--right;
+				aggregate.add(nodeSize, level.mins[right], level.maxes[right], level.sums[right]);
+			}
+			left /= 2;
+			right /= 2;
+			nodeSize *= 2;
+		}
+		return aggregate;
+	}
+
+	void trimToSize() {
+		for (var level : levels) {
+			level.trimToSize();
+		}
+	}
+
+	long getMemoryUsage() {
+		long memoryUsage = 32 + 8L * levels.length;
+		for (var level : levels) {
+			memoryUsage += level.getMemoryUsage();
+		}
+		return memoryUsage;
+	}
+}
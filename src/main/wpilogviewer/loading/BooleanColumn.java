@@ -0,0 +1,86 @@
+package wpilogviewer.loading;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+class BooleanColumn extends Column {
+	// One bit per value
+	private long[] bits = new long[1];
+
+	@Override
+	Record.Type getType() {
+		return Record.Type.BOOLEAN;
+	}
+
+	boolean get(int index) {
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	void set(int index, boolean value) {
+		if (value) {
+			bits[index >>> 6] |= 1L << index;
+		} else {
+			bits[index >>> 6] &= ~(1L << index);
+		}
+	}
+
+	@Override
+	void insert(int index, int size) {
+		int minWords = (size >>> 6) + 1;
+		if (minWords > bits.length) {
+			bits = Arrays.copyOf(bits, grownCapacity(bits.length, minWords));
+		}
+		// Out of order values are rare, so shifting bit by bit is fine
+		for (int i = size; i > index; --i) {
+			set(i, get(i - 1));
+		}
+	}
+
+	@Override
+	void copy(Column source, int sourceIndex, int index) {
+		set(index, ((BooleanColumn) source).get(sourceIndex));
+	}
+
+	@Override
+	double getNumber(int index) {
+		return get(index) ? 1 : 0;
+	}
+
+	@Override
+	Record getRecord(int index, long timestamp) {
+		return Record.booleanRecord(timestamp, get(index));
+	}
+
+	@Override
+	void trimToSize(int size) {
+		bits = Arrays.copyOf(bits, Math.max(1, (size + 63) >>> 6));
+	}
+
+	@Override
+	Column moveOffHeap(OffHeapArena arena, int size) {
+		var buffer = arena.allocate(8L * ((size + 63) >>> 6));
+		if (buffer == null) {
+			return this;
+		}
+		buffer.asLongBuffer().put(bits, 0, (size + 63) >>> 6);
+		return new OffHeapColumn(getType(), buffer);
+	}
+
+	@Override
+	void write(CacheOutput output, int size) throws IOException {
+		output.writeLongs(bits, (size + 63) >>> 6);
+	}
+
+	@Override
+	void read(CacheInput input, int size) {
+		bits = input.readLongs((size + 63) >>> 6);
+		if (bits.length == 0) {
+			bits = new long[1];
+		}
+	}
+
+	@Override
+	long getMemoryUsage() {
+		return 16 + 8L * bits.length;
+	}
+}
@@ -0,0 +1,89 @@
+package wpilogviewer.loading;
+
+import java.io.IOException;
+import java.util.Arrays;
+import wpilogviewer.Util;
+
+// Stores the raw payload bytes; strings and arrays are decoded when a record is requested
+class BytesColumn extends PooledColumn {
+	private final Record.Type type;
+	private byte[] pool = new byte[INITIAL_CAPACITY];
+
+	BytesColumn(Record.Type type) {
+		this.type = type;
+	}
+
+	@Override
+	Record.Type getType() {
+		return type;
+	}
+
+	void set(int index, byte[] value) {
+		int start = allocate(index, value.length);
+		System.arraycopy(value, 0, pool, start, value.length);
+	}
+
+	@Override
+	void copy(Column source, int sourceIndex, int index) {
+		var sourceColumn = (BytesColumn) source;
+		int length = sourceColumn.length(sourceIndex);
+		int start = allocate(index, length);
+		System.arraycopy(sourceColumn.pool, sourceColumn.start(sourceIndex), pool, start, length);
+	}
+
+	@Override
+	void ensurePoolCapacity(int minCapacity) {
+		if (minCapacity > pool.length) {
+			pool = Arrays.copyOf(pool, grownCapacity(pool.length, minCapacity));
+		}
+	}
+
+	@Override
+	void trimPool() {
+		pool = Arrays.copyOf(pool, poolSize);
+	}
+
+	@Override
+	void writePool(CacheOutput output) throws IOException {
+		output.writeBytes(pool, poolSize);
+	}
+
+	@Override
+	void readPool(CacheInput input) {
+		pool = input.readBytes(poolSize);
+	}
+
+	@Override
+	long getPoolMemoryUsage() {
+		return 16 + pool.length;
+	}
+
+	@Override
+	Record getRecord(int index, long timestamp) {
+		int start = start(index);
+		int length = length(index);
+		return switch (type) {
+			case RAW -> Record.rawRecord(timestamp, Arrays.copyOfRange(pool, start, start + length));
+			case STRING -> Record.stringRecord(timestamp, Util.utf8StringFromBytes(pool, start, length));
+			case BOOLEAN_ARRAY -> {
+				boolean[] value = new boolean[length];
+				for (int i = 0; i < length; ++i) {
+					value[i] = pool[start + i] == 1;
+				}
+				yield Record.booleanArrayRecord(timestamp, value);
+			}
+			case STRING_ARRAY -> {
+				String[] value = new String[Util.intFromBytes(pool, start, 4)];
+				int poolIndex = start + 4;
+				for (int i = 0; i < value.length; ++i) {
+					int stringLength = Util.intFromBytes(pool, poolIndex, 4);
+					poolIndex += 4;
+					value[i] = Util.utf8StringFromBytes(pool, poolIndex, stringLength);
+					poolIndex += stringLength;
+				}
+				yield Record.stringArrayRecord(timestamp, value);
+			}
+			default -> Record.unknownRecord(timestamp, Arrays.copyOfRange(pool, start, start + length));
+		};
+	}
+}
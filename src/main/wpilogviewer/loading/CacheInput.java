@@ -0,0 +1,132 @@
+package wpilogviewer.loading;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+// Reads what CacheOutput wrote straight out of the memory-mapped cache file. A single mapping can't exceed 2 GiB, so
+// bigger caches are walked through a sliding window, and arrays are read a window at a time. Reading past the end
+// throws BufferUnderflowException, and failing to map throws UncheckedIOException.
+class CacheInput {
+	private static final long WINDOW_SIZE = 1L << 30;
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	private final FileChannel channel;
+	private final long size;
+	private ByteBuffer buffer = EMPTY;
+	// File offset of the start of the current window
+	private long bufferStart = 0;
+
+	public CacheInput(FileChannel channel) throws IOException {
+		this.channel = channel;
+		this.size = channel.size();
+	}
+
+	// Makes sure the window has at least length bytes left, which must be less than the window size
+	private void ensure(int length) {
+		if (buffer.remaining() >= length) {
+			return;
+		}
+		long position = bufferStart + buffer.position();
+		if (size - position < length) {
+			throw new BufferUnderflowException();
+		}
+		try {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, WINDOW_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		bufferStart = position;
+	}
+
+	// Number of the length elements of elementSize bytes left to read that are in the window, which is at least one
+	private int elementsInWindow(int length, int elementSize) {
+		ensure(elementSize);
+		return Math.min(length, buffer.remaining() / elementSize);
+	}
+
+	int readByte() {
+		ensure(1);
+		return buffer.get() & 0xFF;
+	}
+
+	boolean readBoolean() {
+		return readByte() != 0;
+	}
+
+	int readInt() {
+		ensure(4);
+		return buffer.getInt();
+	}
+
+	long readLong() {
+		ensure(8);
+		return buffer.getLong();
+	}
+
+	String readString() {
+		int length = readInt();
+		if (length < 0) {
+			return null;
+		}
+		return new String(readBytes(length), StandardCharsets.UTF_8);
+	}
+
+	byte[] readBytes(int length) {
+		byte[] values = new byte[length];
+		for (int start = 0; start < length;) {
+			int count = elementsInWindow(length - start, 1);
+			buffer.get(values, start, count);
+			start += count;
+		}
+		return values;
+	}
+
+	int[] readInts(int length) {
+		int[] values = new int[length];
+		for (int start = 0; start < length;) {
+			int count = elementsInWindow(length - start, 4);
+			buffer.asIntBuffer().get(values, start, count);
+			buffer.position(buffer.position() + 4 * count);
+			start += count;
+		}
+		return values;
+	}
+
+	long[] readLongs(int length) {
+		long[] values = new long[length];
+		for (int start = 0; start < length;) {
+			int count = elementsInWindow(length - start, 8);
+			buffer.asLongBuffer().get(values, start, count);
+			buffer.position(buffer.position() + 8 * count);
+			start += count;
+		}
+		return values;
+	}
+
+	float[] readFloats(int length) {
+		float[] values = new float[length];
+		for (int start = 0; start < length;) {
+			int count = elementsInWindow(length - start, 4);
+			buffer.asFloatBuffer().get(values, start, count);
+			buffer.position(buffer.position() + 4 * count);
+			start += count;
+		}
+		return values;
+	}
+
+	double[] readDoubles(int length) {
+		double[] values = new double[length];
+		for (int start = 0; start < length;) {
+			int count = elementsInWindow(length - start, 8);
+			buffer.asDoubleBuffer().get(values, start, count);
+			buffer.position(buffer.position() + 8 * count);
+			start += count;
+		}
+		return values;
+	}
+}
@@ -0,0 +1,118 @@
+package wpilogviewer.loading;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+// Little-endian writer used for LogCache files, with bulk writes for whole columns
+class CacheOutput implements Closeable {
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+	public CacheOutput(FileChannel channel) {
+		this.channel = channel;
+	}
+
+	private void ensure(int length) throws IOException {
+		if (buffer.remaining() < length) {
+			flush();
+		}
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	void writeByte(int value) throws IOException {
+		ensure(1);
+		buffer.put((byte) value);
+	}
+
+	void writeBoolean(boolean value) throws IOException {
+		writeByte(value ? 1 : 0);
+	}
+
+	void writeInt(int value) throws IOException {
+		ensure(4);
+		buffer.putInt(value);
+	}
+
+	void writeLong(long value) throws IOException {
+		ensure(8);
+		buffer.putLong(value);
+	}
+
+	// Null is written as a length of -1
+	void writeString(String value) throws IOException {
+		if (value == null) {
+			writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeInt(bytes.length);
+		writeBytes(bytes, bytes.length);
+	}
+
+	void writeBytes(byte[] values, int length) throws IOException {
+		for (int i = 0; i < length;) {
+			ensure(1);
+			int count = Math.min(buffer.remaining(), length - i);
+			buffer.put(values, i, count);
+			i += count;
+		}
+	}
+
+	void writeInts(int[] values, int length) throws IOException {
+		for (int i = 0; i < length;) {
+			ensure(4);
+			int count = Math.min(buffer.remaining() / 4, length - i);
+			buffer.asIntBuffer().put(values, i, count);
+			buffer.position(buffer.position() + 4 * count);
+			i += count;
+		}
+	}
+
+	void writeLongs(long[] values, int length) throws IOException {
+		for (int i = 0; i < length;) {
+			ensure(8);
+			int count = Math.min(buffer.remaining() / 8, length - i);
+			buffer.asLongBuffer().put(values, i, count);
+			buffer.position(buffer.position() + 8 * count);
+			i += count;
+		}
+	}
+
+	void writeFloats(float[] values, int length) throws IOException {
+		for (int i = 0; i < length;) {
+			ensure(4);
+			int count = Math.min(buffer.remaining() / 4, length - i);
+			buffer.asFloatBuffer().put(values, i, count);
+			buffer.position(buffer.position() + 4 * count);
+			i += count;
+		}
+	}
+
+	void writeDoubles(double[] values, int length) throws IOException {
+		for (int i = 0; i < length;) {
+			ensure(8);
+			int count = Math.min(buffer.remaining() / 8, length - i);
+			buffer.asDoubleBuffer().put(values, i, count);
+			buffer.position(buffer.position() + 8 * count);
+			i += count;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		flush();
+	}
+}
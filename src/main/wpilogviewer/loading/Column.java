@@ -0,0 +1,88 @@
+package wpilogviewer.loading;
+
+import java.io.IOException;
+
+abstract class Column {
+	static final int INITIAL_CAPACITY = 16;
+
+	static Record.Type recordTypeFor(String entryType) {
+		return switch (entryType) {
+			case "raw", "rawBytes" -> Record.Type.RAW;
+			case "boolean" -> Record.Type.BOOLEAN;
+			case "int64" -> Record.Type.INT64;
+			case "float" -> Record.Type.FLOAT;
+			case "double" -> Record.Type.DOUBLE;
+			case "json", "string" -> Record.Type.STRING;
+			case "boolean[]" -> Record.Type.BOOLEAN_ARRAY;
+			case "int64[]" -> Record.Type.INT64_ARRAY;
+			case "float[]" -> Record.Type.FLOAT_ARRAY;
+			case "double[]" -> Record.Type.DOUBLE_ARRAY;
+			case "string[]" -> Record.Type.STRING_ARRAY;
+			case "struct" -> Record.Type.STRUCT;
+			default -> Record.Type.UNKNOWN;
+		};
+	}
+
+	static Column forType(String entryType) {
+		var type = recordTypeFor(entryType);
+		return switch (type) {
+			case BOOLEAN -> new BooleanColumn();
+			case INT64 -> new Int64Column();
+			case FLOAT -> new FloatColumn();
+			case DOUBLE -> new DoubleColumn();
+			case INT64_ARRAY -> new Int64ArrayColumn();
+			case FLOAT_ARRAY -> new FloatArrayColumn();
+			case DOUBLE_ARRAY -> new DoubleArrayColumn();
+			// Strings repeat a lot, so each distinct one is only stored once
+			case STRING, STRING_ARRAY -> new DictionaryColumn(type);
+			// Raw, boolean[] and unknown entries keep their payload bytes
+			default -> new BytesColumn(type);
+		};
+	}
+
+	static int grownCapacity(int capacity, int minCapacity) {
+		return Math.max(minCapacity, capacity + (capacity >> 1) + 1);
+	}
+
+	abstract Record.Type getType();
+
+	// Makes room for a value at index, moving the values in [index, size) up by one
+	abstract void insert(int index, int size);
+
+	abstract Record getRecord(int index, long timestamp);
+
+	// Whether getNumber works, which is the case for the scalar types that can be plotted
+	boolean isNumeric() {
+		return isNumeric(getType());
+	}
+
+	static boolean isNumeric(Record.Type type) {
+		return switch (type) {
+			case BOOLEAN, INT64, FLOAT, DOUBLE -> true;
+			default -> false;
+		};
+	}
+
+	// The value at index as a double, with booleans as 0 or 1
+	double getNumber(int index) {
+		throw new UnsupportedOperationException(getType() + " values aren't numbers");
+	}
+
+	// Sets the value at index to the one at sourceIndex in source, which is the same kind of column
+	abstract void copy(Column source, int sourceIndex, int index);
+
+	abstract void trimToSize(int size);
+
+	// A column with the first size values in a buffer from arena, or this one if its values stay on the heap
+	Column moveOffHeap(OffHeapArena arena, int size) {
+		return this;
+	}
+
+	abstract void write(CacheOutput output, int size) throws IOException;
+
+	// Replaces the contents with the first size values written by write
+	abstract void read(CacheInput input, int size);
+
+	// Rough number of heap bytes held by this column
+	abstract long getMemoryUsage();
+}
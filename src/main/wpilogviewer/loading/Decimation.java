@@ -0,0 +1,8 @@
+package wpilogviewer.loading;
+
+public enum Decimation {
+	// The lowest and highest point of each time bucket, which keeps every spike visible
+	MIN_MAX,
+	// Largest-triangle-three-buckets, which picks the point per bucket that best keeps the shape of the line
+	LTTB;
+}
@@ -0,0 +1,118 @@
+package wpilogviewer.loading;
+
+// Reduces the numeric records of an entry to a few points that plot like the full series
+class Decimator {
+	private final Entry entry;
+	private final Column values;
+
+	Decimator(Entry entry, Column values) {
+		this.entry = entry;
+		this.values = values;
+	}
+
+	// Every point in [startIndex, endIndex], which may be empty
+	Series all(int startIndex, int endIndex) {
+		int count = Math.max(0, endIndex - startIndex + 1);
+		long[] seriesTimestamps = new long[count];
+		double[] seriesValues = new double[count];
+		for (int i = 0; i < count; ++i) {
+			seriesTimestamps[i] = entry.getTimestamp(startIndex + i);
+			seriesValues[i] = values.getNumber(startIndex + i);
+		}
+		return new Series(seriesTimestamps, seriesValues, count);
+	}
+
+	// Splits the time span of [startIndex, endIndex] into maxPoints / 2 buckets and keeps the lowest and highest point of each
+	Series minMax(int startIndex, int endIndex, int maxPoints) {
+		int bucketCount = maxPoints / 2;
+		long[] seriesTimestamps = new long[2 * bucketCount];
+		double[] seriesValues = new double[2 * bucketCount];
+		int size = 0;
+		long firstTimestamp = entry.getTimestamp(startIndex);
+		// Kept as a double so spans near the top of the timestamp range can't overflow
+		double bucketSpan = ((double) entry.getTimestamp(endIndex) - firstTimestamp + 1) / bucketCount;
+		int index = startIndex;
+		while (index <= endIndex) {
+			int bucket = Math.min(bucketCount - 1, (int) ((entry.getTimestamp(index) - firstTimestamp) / bucketSpan));
+			long bucketEnd = bucket == bucketCount - 1 ? Long.MAX_VALUE : firstTimestamp + (long) Math.ceil((bucket + 1) * bucketSpan);
+			int minIndex = index;
+			int maxIndex = index;
+			double min = values.getNumber(index);
+			double max = min;
+			for (++index; index <= endIndex && entry.getTimestamp(index) < bucketEnd; ++index) {
+				double value = values.getNumber(index);
+				if (value < min) {
+					min = value;
+					minIndex = index;
+				} else if (value > max) {
+					max = value;
+					maxIndex = index;
+				}
+			}
+			// Keep the two points in timestamp order, and don't repeat a point that is both
+			int first = Math.min(minIndex, maxIndex);
+			int second = Math.max(minIndex, maxIndex);
+			seriesTimestamps[size] = entry.getTimestamp(first);
+			seriesValues[size++] = first == minIndex ? min : max;
+			if (second != first) {
+				seriesTimestamps[size] = entry.getTimestamp(second);
+				seriesValues[size++] = second == minIndex ? min : max;
+			}
+		}
+		return new Series(seriesTimestamps, seriesValues, size);
+	}
+
+	// Keeps the first and last point, and from each of maxPoints - 2 equally sized buckets in between the point
+	// that makes the largest triangle with the previously kept point and the average of the next bucket
+	Series lttb(int startIndex, int endIndex, int maxPoints) {
+		long[] seriesTimestamps = new long[maxPoints];
+		double[] seriesValues = new double[maxPoints];
+		int size = 0;
+		int count = endIndex - startIndex + 1;
+		double bucketSize = (double) (count - 2) / (maxPoints - 2);
+		int kept = startIndex;
+		double keptValue = values.getNumber(kept);
+		seriesTimestamps[size] = entry.getTimestamp(kept);
+		seriesValues[size++] = keptValue;
+		for (int bucket = 0; bucket < maxPoints - 2; ++bucket) {
+			int bucketStart = startIndex + 1 + (int) (bucket * bucketSize);
+			int bucketEnd = startIndex + 1 + (int) ((bucket + 1) * bucketSize);
+			// The last bucket's neighbor is just the last point
+			int nextStart = bucketEnd;
+			int nextEnd = Math.min(startIndex + 1 + (int) ((bucket + 2) * bucketSize), endIndex + 1);
+			if (nextStart >= nextEnd) {
+				nextStart = endIndex;
+				nextEnd = endIndex + 1;
+			}
+			double averageTime = 0;
+			double averageValue = 0;
+			for (int i = nextStart; i < nextEnd; ++i) {
+				// Relative to the kept point so the doubles don't lose precision on large timestamps
+				averageTime += entry.getTimestamp(i) - entry.getTimestamp(kept);
+				averageValue += values.getNumber(i);
+			}
+			averageTime /= nextEnd - nextStart;
+			averageValue /= nextEnd - nextStart;
+			int best = bucketStart;
+			double bestValue = values.getNumber(bucketStart);
+			double bestArea = -1;
+			for (int i = bucketStart; i < bucketEnd; ++i) {
+				double value = values.getNumber(i);
+				// Twice the triangle area, which compares the same way
+				double area = Math.abs((entry.getTimestamp(i) - entry.getTimestamp(kept)) * (averageValue - keptValue) - averageTime * (value - keptValue));
+				if (area > bestArea) {
+					bestArea = area;
+					best = i;
+					bestValue = value;
+				}
+			}
+			kept = best;
+			keptValue = bestValue;
+			seriesTimestamps[size] = entry.getTimestamp(kept);
+			seriesValues[size++] = keptValue;
+		}
+		seriesTimestamps[size] = entry.getTimestamp(endIndex);
+		seriesValues[size++] = values.getNumber(endIndex);
+		return new Series(seriesTimestamps, seriesValues, size);
+	}
+}
@@ -0,0 +1,181 @@
+package wpilogviewer.loading;
+
+import java.io.IOException;
+import java.util.Arrays;
+import wpilogviewer.Util;
+
+// Stores each distinct payload once and a code per value, for string, json and string[] entries that keep repeating
+// the same few values. Payloads are only decoded the first time a record with their code is requested.
+class DictionaryColumn extends Column {
+	private final Record.Type type;
+	private int[] codes = new int[INITIAL_CAPACITY];
+	// Distinct payloads, back to back in the pool
+	private int[] starts = new int[INITIAL_CAPACITY];
+	private int[] lengths = new int[INITIAL_CAPACITY];
+	private byte[] pool = new byte[INITIAL_CAPACITY];
+	private int poolSize = 0;
+	private int codeCount = 0;
+	// Open addressing table of code + 1 for every code, with 0 for empty slots
+	private int[] table = new int[INITIAL_CAPACITY];
+	// Decoded String or String[] for each code, filled in as records are requested
+	private Object[] decoded = new Object[INITIAL_CAPACITY];
+	// Rough heap bytes of the decoded values, kept up to date so getMemoryUsage doesn't have to walk them
+	private long decodedUsage = 0;
+
+	DictionaryColumn(Record.Type type) {
+		this.type = type;
+	}
+
+	@Override
+	Record.Type getType() {
+		return type;
+	}
+
+	private static int hash(byte[] bytes, int start, int length) {
+		int hash = 0;
+		for (int i = start; i < start + length; ++i) {
+			hash = 31 * hash + bytes[i];
+		}
+		// Spread the bits so short payloads don't crowd into the low slots
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		return hash;
+	}
+
+	// Returns the code of the payload in bytes, adding it to the dictionary if it's new
+	private int codeFor(byte[] bytes, int start, int length) {
+		int mask = table.length - 1;
+		int slot = hash(bytes, start, length) & mask;
+		while (table[slot] != 0) {
+			int code = table[slot] - 1;
+			if (lengths[code] == length && Arrays.equals(pool, starts[code], starts[code] + length, bytes, start, start + length)) {
+				return code;
+			}
+			slot = (slot + 1) & mask;
+		}
+		int code = codeCount++;
+		if (code == starts.length) {
+			int capacity = grownCapacity(starts.length, code + 1);
+			starts = Arrays.copyOf(starts, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+			decoded = Arrays.copyOf(decoded, capacity);
+		}
+		if (poolSize + length > pool.length) {
+			pool = Arrays.copyOf(pool, grownCapacity(pool.length, poolSize + length));
+		}
+		System.arraycopy(bytes, start, pool, poolSize, length);
+		starts[code] = poolSize;
+		lengths[code] = length;
+		poolSize += length;
+		table[slot] = code + 1;
+		// Keep the table at most half full
+		if (2 * codeCount > table.length) {
+			rebuildTable(2 * table.length);
+		}
+		return code;
+	}
+
+	private void rebuildTable(int capacity) {
+		table = new int[capacity];
+		int mask = capacity - 1;
+		for (int code = 0; code < codeCount; ++code) {
+			int slot = hash(pool, starts[code], lengths[code]) & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = code + 1;
+		}
+	}
+
+	void set(int index, byte[] value) {
+		codes[index] = codeFor(value, 0, value.length);
+	}
+
+	@Override
+	void insert(int index, int size) {
+		if (size == codes.length) {
+			codes = Arrays.copyOf(codes, grownCapacity(codes.length, size + 1));
+		}
+		System.arraycopy(codes, index, codes, index + 1, size - index);
+	}
+
+	@Override
+	void copy(Column source, int sourceIndex, int index) {
+		var sourceColumn = (DictionaryColumn) source;
+		int code = sourceColumn.codes[sourceIndex];
+		codes[index] = codeFor(sourceColumn.pool, sourceColumn.starts[code], sourceColumn.lengths[code]);
+	}
+
+	private Object decode(int code) {
+		int start = starts[code];
+		int length = lengths[code];
+		if (type == Record.Type.STRING) {
+			String value = Util.utf8StringFromBytes(pool, start, length);
+			// Latin-1 strings take a byte per character
+			decodedUsage += 40 + value.length();
+			return value;
+		}
+		String[] value = new String[Util.intFromBytes(pool, start, 4)];
+		int poolIndex = start + 4;
+		for (int i = 0; i < value.length; ++i) {
+			int stringLength = Util.intFromBytes(pool, poolIndex, 4);
+			poolIndex += 4;
+			value[i] = Util.utf8StringFromBytes(pool, poolIndex, stringLength);
+			poolIndex += stringLength;
+		}
+		decodedUsage += 16 + length + 48L * value.length;
+		return value;
+	}
+
+	@Override
+	Record getRecord(int index, long timestamp) {
+		int code = codes[index];
+		if (decoded[code] == null) {
+			decoded[code] = decode(code);
+		}
+		if (type == Record.Type.STRING) {
+			return Record.stringRecord(timestamp, (String) decoded[code]);
+		}
+		// The array is shared between records, so hand out a copy
+		return Record.stringArrayRecord(timestamp, ((String[]) decoded[code]).clone());
+	}
+
+	@Override
+	void trimToSize(int size) {
+		codes = Arrays.copyOf(codes, size);
+		starts = Arrays.copyOf(starts, codeCount);
+		lengths = Arrays.copyOf(lengths, codeCount);
+		decoded = Arrays.copyOf(decoded, codeCount);
+		pool = Arrays.copyOf(pool, poolSize);
+	}
+
+	@Override
+	void write(CacheOutput output, int size) throws IOException {
+		output.writeInts(codes, size);
+		output.writeInt(codeCount);
+		output.writeInts(starts, codeCount);
+		output.writeInts(lengths, codeCount);
+		output.writeInt(poolSize);
+		output.writeBytes(pool, poolSize);
+	}
+
+	@Override
+	void read(CacheInput input, int size) {
+		codes = input.readInts(size);
+		codeCount = input.readInt();
+		starts = input.readInts(codeCount);
+		lengths = input.readInts(codeCount);
+		poolSize = input.readInt();
+		pool = input.readBytes(poolSize);
+		decoded = new Object[codeCount];
+		decodedUsage = 0;
+		// Smallest power of two that keeps the table at most half full
+		rebuildTable(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, 2 * codeCount - 1)) << 1));
+	}
+
+	@Override
+	long getMemoryUsage() {
+		return 16 + 4L * codes.length + 4L * starts.length + 4L * lengths.length + pool.length + 4L * table.length + 16 + 4L * decoded.length + decodedUsage;
+	}
+}
@@ -0,0 +1,63 @@
+package wpilogviewer.loading;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+class DoubleArrayColumn extends PooledColumn {
+	private double[] pool = new double[INITIAL_CAPACITY];
+
+	@Override
+	Record.Type getType() {
+		return Record.Type.DOUBLE_ARRAY;
+	}
+
+	double[] get(int index) {
+		int start = start(index);
+		return Arrays.copyOfRange(pool, start, start + length(index));
+	}
+
+	void set(int index, double[] value) {
+		int start = allocate(index, value.length);
+		System.arraycopy(value, 0, pool, start, value.length);
+	}
+
+	@Override
+	void copy(Column source, int sourceIndex, int index) {
+		var sourceColumn = (DoubleArrayColumn) source;
+		int length = sourceColumn.length(sourceIndex);
+		int start = allocate(index, length);
+		System.arraycopy(sourceColumn.pool, sourceColumn.start(sourceIndex), pool, start, length);
+	}
+
+	@Override
+	void ensurePoolCapacity(int minCapacity) {
+		if (minCapacity > pool.length) {
+			pool = Arrays.copyOf(pool, grownCapacity(pool.length, minCapacity));
+		}
+	}
+
+	@Override
+	void trimPool() {
+		pool = Arrays.copyOf(pool, poolSize);
+	}
+
+	@Override
+	void writePool(CacheOutput output) throws IOException {
+		output.writeDoubles(pool, poolSize);
+	}
+
+	@Override
+	void readPool(CacheInput input) {
+		pool = input.readDoubles(poolSize);
+	}
+
+	@Override
+	long getPoolMemoryUsage() {
+		return 16 + 8L * pool.length;
+	}
+
+	@Override
+	Record getRecord(int index, long timestamp) {
+		return Record.doubleArrayRecord(timestamp, get(index));
+	}
+}
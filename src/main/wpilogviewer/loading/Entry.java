@@ -1,7 +1,18 @@
 package wpilogviewer.loading;
 
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.NavigableMap;
 import java.util.TreeMap;
+import wpilogviewer.PayloadDecoder;
+import wpilogviewer.PayloadDecoders;
+import wpilogviewer.PayloadSink;
+import wpilogviewer.StructSchemas;
+import wpilogviewer.Util;
 
 public class Entry {
 	private final long startTimestamp;
@@ -10,19 +21,65 @@ public class Entry {
 	private final long id;
 	private final String name;
 	private final String type;
+	// Resolved once here so values don't need to look at the type
+	private PayloadDecoder decoder;
 	private NavigableMap<Long, String> timestampToMetadata = new TreeMap<>();
-	private NavigableMap<Long, Record> timestampToRecord = new TreeMap<>();
+	// Sorted record timestamps, with the values at the same index in the column
+	private long[] timestamps = new long[Column.INITIAL_CAPACITY];
+	// Replaces timestamps once the entry is moved off the heap
+	private LongBuffer offHeapTimestamps = null;
+	private int size = 0;
+	private Column values;
+	// Non-null once aggregates are enabled for a numeric entry
+	private AggregatePyramid aggregates = null;
+	// Whether fields made later should get aggregates too
+	private boolean aggregatesEnabled = false;
+	// Non-null when only payload locations are stored
+	private final LazyPayloads lazyPayloads;
+	// The struct entry this is a field of, whose id, start, end and metadata it has, or null
+	private final Entry parent;
+	// Entries of the fields of a struct entry, with a record at every index it has, made once its layout is known
+	private List<Entry> fields = List.of();
 
 	public Entry(long startTimestamp, long id, String name, String type, String metadata) {
+		this(startTimestamp, id, name, type, metadata, PayloadDecoders.forEntry(name, type), null);
+	}
+
+	// With non-null lazyPayloads, only payload locations are stored and values are decoded on demand. Struct entries
+	// need the decoder the schemas of their log made.
+	Entry(long startTimestamp, long id, String name, String type, String metadata, PayloadDecoder decoder, LazyPayloads lazyPayloads) {
 		this.startTimestamp = startTimestamp;
 		this.id = id;
 		this.name = name;
 		this.type = type;
+		this.decoder = decoder;
+		this.lazyPayloads = lazyPayloads;
+		this.parent = null;
+		this.values = makeColumn();
 		timestampToMetadata.put(startTimestamp, metadata);
 	}
 
+	// Field of the struct entry parent, named like /pose/translation.x after it
+	private Entry(Entry parent, String fieldName, PayloadDecoder decoder) {
+		this.startTimestamp = parent.startTimestamp;
+		this.id = parent.id;
+		this.name = parent.name + "/" + fieldName;
+		this.type = decoder.getValueType();
+		this.decoder = decoder;
+		this.lazyPayloads = parent.lazyPayloads;
+		this.parent = parent;
+		this.values = makeColumn();
+	}
+
+	private Column makeColumn() {
+		if (Column.recordTypeFor(decoder.getValueType()) == Record.Type.STRUCT) {
+			return new StructColumn(this);
+		}
+		return lazyPayloads == null ? Column.forType(decoder.getValueType()) : new OffsetColumn(this, lazyPayloads);
+	}
+
 	public boolean isExpiredAt(long timestamp) {
-		return hasEnded() && Long.compareUnsigned(endTimestamp, timestamp) < 0;
+		return hasEnded() && Long.compareUnsigned(getEndTimestamp(), timestamp) < 0;
 	}
 
 	public long getStartTimestamp() {
@@ -30,11 +87,11 @@ public class Entry {
 	}
 
 	public long getEndTimestamp() {
-		return endTimestamp;
+		return parent != null ? parent.endTimestamp : endTimestamp;
 	}
 
 	public boolean hasEnded() {
-		return hasEnded;
+		return parent != null ? parent.hasEnded : hasEnded;
 	}
 
 	public long getId() {
@@ -49,7 +106,67 @@ public class Entry {
 		return type;
 	}
 
+	PayloadDecoder getDecoder() {
+		return decoder;
+	}
+
+	// For cached entries, which are read before the schemas of their log are known
+	void setDecoder(PayloadDecoder decoder) {
+		if (!decoder.getValueType().equals(this.decoder.getValueType())) {
+			throw new IllegalArgumentException("Entry " + id + " with " + this.decoder.getValueType() + " values can't be decoded to " + decoder.getValueType());
+		}
+		// A struct entry that started before the schemas it needs has no layout yet, and its cached fields already hold
+		// their values, so they keep the decoders of their types
+		if (!fields.isEmpty() && decoder.getFieldCount() != 0) {
+			if (decoder.getFieldCount() != fields.size()) {
+				throw new IllegalArgumentException("Entry " + id + " with " + fields.size() + " fields can't be decoded to " + decoder.getFieldCount());
+			}
+			for (int i = 0; i < fields.size(); ++i) {
+				var field = fields.get(i);
+				if (!field.name.equals(name + "/" + decoder.getFieldName(i))) {
+					throw new IllegalArgumentException("Entry " + id + " with field " + field.name + " can't be decoded to field " + decoder.getFieldName(i));
+				}
+				field.setDecoder(decoder.getFieldDecoder(i));
+			}
+		}
+		this.decoder = decoder;
+	}
+
+	// The entries of the fields of a struct entry, named like /pose/translation.x, in the order of its layout; empty
+	// for other entries, and for struct entries until a value arrives that the layout of their struct is known for
+	public List<Entry> getFields() {
+		return fields;
+	}
+
+	// The entry of the field with a name like translation.x, or null if there isn't one
+	public Entry getField(String fieldName) {
+		for (var field : fields) {
+			if (field.name.equals(name + "/" + fieldName)) {
+				return field;
+			}
+		}
+		return null;
+	}
+
+	private void makeFields() {
+		if (!fields.isEmpty() || decoder.getFieldCount() == 0) {
+			return;
+		}
+		var fields = new ArrayList<Entry>(decoder.getFieldCount());
+		for (int i = 0; i < decoder.getFieldCount(); ++i) {
+			var field = new Entry(this, decoder.getFieldName(i), decoder.getFieldDecoder(i));
+			if (aggregatesEnabled) {
+				field.enableAggregates();
+			}
+			fields.add(field);
+		}
+		this.fields = List.copyOf(fields);
+	}
+
 	public String getMetadata(long timestamp) {
+		if (parent != null) {
+			return parent.getMetadata(timestamp);
+		}
 		Long floorTimestamp = timestampToMetadata.floorKey(timestamp);
 		if (floorTimestamp == null) {
 			return null;
@@ -57,16 +174,160 @@ public class Entry {
 		return timestampToMetadata.get(floorTimestamp);
 	}
 
+	public Record.Type getRecordType() {
+		return values.getType();
+	}
+
+	public int getRecordCount() {
+		return size;
+	}
+
+	long getTimestamp(int index) {
+		return offHeapTimestamps != null ? offHeapTimestamps.get(index) : timestamps[index];
+	}
+
+	// Index of the last record at or before timestamp, or -1 if there is none
+	int floorIndex(long timestamp) {
+		if (offHeapTimestamps == null) {
+			int index = Arrays.binarySearch(timestamps, 0, size, timestamp);
+			return index >= 0 ? index : -index - 2;
+		}
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			long middleTimestamp = offHeapTimestamps.get(middle);
+			if (middleTimestamp < timestamp) {
+				low = middle + 1;
+			} else if (middleTimestamp > timestamp) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return low - 1;
+	}
+
 	public Record getRecord(long timestamp) {
-		Long floorTimestamp = timestampToRecord.floorKey(timestamp);
-		if (floorTimestamp == null) {
+		int index = floorIndex(timestamp);
+		if (index < 0) {
 			return null;
 		}
-		return timestampToRecord.get(floorTimestamp);
+		return values.getRecord(index, getTimestamp(index));
+	}
+
+	Record getRecordAt(int index) {
+		return values.getRecord(index, getTimestamp(index));
+	}
+
+	double getNumberAt(int index) {
+		return values.getNumber(index);
+	}
+
+	// Records with timestamps in [startTimestamp, endTimestamp], in timestamp order
+	public List<Record> getRecords(long startTimestamp, long endTimestamp) {
+		int startIndex = floorIndex(startTimestamp);
+		if (startIndex < 0 || getTimestamp(startIndex) != startTimestamp) {
+			++startIndex;
+		}
+		int endIndex = floorIndex(endTimestamp);
+		var records = new ArrayList<Record>(Math.max(0, endIndex - startIndex + 1));
+		for (int i = startIndex; i <= endIndex; ++i) {
+			records.add(values.getRecord(i, getTimestamp(i)));
+		}
+		return records;
+	}
+
+	// Numeric records with timestamps in [startTimestamp, endTimestamp], reduced to at most maxPoints points
+	// when there are more than that; values are read straight from the column without making Records
+	public Series getSeries(long startTimestamp, long endTimestamp, int maxPoints, Decimation decimation) {
+		if (!values.isNumeric()) {
+			throw new RuntimeException("Entry " + id + " with type " + type + " is not numeric");
+		}
+		int minPoints = decimation == Decimation.LTTB ? 3 : 2;
+		if (maxPoints < minPoints) {
+			throw new IllegalArgumentException(decimation + " needs at least " + minPoints + " points, but got " + maxPoints);
+		}
+		int startIndex = floorIndex(startTimestamp);
+		if (startIndex < 0 || getTimestamp(startIndex) != startTimestamp) {
+			++startIndex;
+		}
+		int endIndex = floorIndex(endTimestamp);
+		var decimator = new Decimator(this, values);
+		if (endIndex - startIndex + 1 <= maxPoints) {
+			return decimator.all(startIndex, endIndex);
+		}
+		return switch (decimation) {
+			case MIN_MAX -> decimator.minMax(startIndex, endIndex, maxPoints);
+			case LTTB -> decimator.lttb(startIndex, endIndex, maxPoints);
+		};
+	}
+
+	// Keeps a pyramid of aggregates up to date from now on, so getAggregate doesn't have to scan; only
+	// int64, float and double entries get one
+	void enableAggregates() {
+		aggregatesEnabled = true;
+		for (var field : fields) {
+			field.enableAggregates();
+		}
+		if (aggregates != null) {
+			return;
+		}
+		switch (values.getType()) {
+			case INT64, FLOAT, DOUBLE -> {
+				aggregates = new AggregatePyramid(values);
+				// Lazily loaded entries decode their values when first queried instead
+				if (!isLazy()) {
+					aggregates.update(size);
+				}
+			}
+			default -> {
+			}
+		}
+	}
+
+	// Count, min, max and sum of the numeric records with timestamps in [startTimestamp, endTimestamp]
+	public Aggregate getAggregate(long startTimestamp, long endTimestamp) {
+		if (!values.isNumeric()) {
+			throw new RuntimeException("Entry " + id + " with type " + type + " is not numeric");
+		}
+		int startIndex = floorIndex(startTimestamp);
+		if (startIndex < 0 || getTimestamp(startIndex) != startTimestamp) {
+			++startIndex;
+		}
+		int endIndex = Math.max(startIndex, floorIndex(endTimestamp) + 1);
+		if (aggregates != null) {
+			return aggregates.query(startIndex, endIndex, size);
+		}
+		var aggregate = new Aggregate();
+		for (int i = startIndex; i < endIndex; ++i) {
+			aggregate.add(values.getNumber(i));
+		}
+		return aggregate;
+	}
+
+	// Rough number of heap bytes held by the aggregate pyramids of this entry and its fields
+	public long getAggregateMemoryUsage() {
+		long usage = aggregates == null ? 0 : aggregates.getMemoryUsage();
+		for (var field : fields) {
+			usage += field.getAggregateMemoryUsage();
+		}
+		return usage;
+	}
+
+	// Rough number of heap bytes held by the records of this entry and its fields, including aggregates
+	public long getMemoryUsage() {
+		long timestampUsage = offHeapTimestamps != null ? 64 : 8L * timestamps.length;
+		long usage = 16 + timestampUsage + values.getMemoryUsage() + (aggregates == null ? 0 : aggregates.getMemoryUsage());
+		for (var field : fields) {
+			usage += field.getMemoryUsage();
+		}
+		return usage;
 	}
 
 	public void finish(long timestamp) {
 		endTimestamp = timestamp;
+		hasEnded = true;
 	}
 
 	public void setMetadata(long timestamp, String metadata) {
@@ -80,9 +341,300 @@ public class Entry {
 		if (record.getTimestamp() != timestamp) {
 			System.err.println("WARNING: Entry.addRecord: Record timestamp (" + Long.toUnsignedString(record.getTimestamp()) + ") didn't match timestamp (" + Long.toUnsignedString(timestamp) + ")");
 		}
-		if (isExpiredAt(timestamp)) {
+		switch (record.getType()) {
+			case RAW, UNKNOWN -> addBytes(timestamp, record.getType(), record.rawValue());
+			case BOOLEAN -> addBoolean(timestamp, record.booleanValue());
+			case INT64 -> addInt64(timestamp, record.int64Value());
+			case FLOAT -> addFloat(timestamp, record.floatValue());
+			case DOUBLE -> addDouble(timestamp, record.doubleValue());
+			case STRING -> addBytes(timestamp, Record.Type.STRING, record.stringValue().getBytes(StandardCharsets.UTF_8));
+			case BOOLEAN_ARRAY -> {
+				boolean[] value = record.booleanArrayValue();
+				byte[] bytes = new byte[value.length];
+				for (int i = 0; i < value.length; ++i) {
+					bytes[i] = (byte) (value[i] ? 1 : 0);
+				}
+				addBytes(timestamp, Record.Type.BOOLEAN_ARRAY, bytes);
+			}
+			case INT64_ARRAY -> addInt64Array(timestamp, record.int64ArrayValue());
+			case FLOAT_ARRAY -> addFloatArray(timestamp, record.floatArrayValue());
+			case DOUBLE_ARRAY -> addDoubleArray(timestamp, record.doubleArrayValue());
+			case STRING_ARRAY -> addBytes(timestamp, Record.Type.STRING_ARRAY, Util.stringArrayToBytes(record.stringArrayValue()));
+			case STRUCT -> {
+				checkType(Record.Type.STRUCT);
+				makeFields();
+				Record[] fieldRecords = record.structValue();
+				if (fieldRecords.length != fields.size()) {
+					throw new RuntimeException("Expected " + fields.size() + " fields, but record has " + fieldRecords.length);
+				}
+				slotFor(timestamp);
+				for (int i = 0; i < fieldRecords.length; ++i) {
+					fields.get(i).addRecord(timestamp, fieldRecords[i]);
+				}
+			}
+		}
+	}
+
+	private void checkType(Record.Type expected) {
+		if (values.getType() != expected) {
+			throw new RuntimeException("Expected type " + expected + ", but entry " + id + " has type " + values.getType());
+		}
+	}
+
+	// Returns the index to store the value for timestamp at, making room for it if needed
+	private int slotFor(long timestamp) {
+		// Fields were already warned about by their struct entry
+		if (parent == null && isExpiredAt(timestamp)) {
 			System.err.println("WARNING: Entry.addRecord: Timestamp (" + Long.toUnsignedString(timestamp) + ") was after end timestamp (" + Long.toUnsignedString(endTimestamp) + ")");
 		}
-		timestampToRecord.put(timestamp, record);
+		return insertSlot(timestamp);
+	}
+
+	private int insertSlot(long timestamp) {
+		if (offHeapTimestamps != null) {
+			throw new IllegalStateException("Entry " + id + " was moved off the heap and can't take more records");
+		}
+		int index;
+		// Records normally arrive in order, so skip the search in that case
+		if (size == 0 || timestamps[size - 1] < timestamp) {
+			index = size;
+		} else {
+			index = Arrays.binarySearch(timestamps, 0, size, timestamp);
+			if (index >= 0) {
+				// Replace the existing value
+				return index;
+			}
+			index = -index - 1;
+		}
+		if (size == timestamps.length) {
+			timestamps = Arrays.copyOf(timestamps, Column.grownCapacity(timestamps.length, size + 1));
+		}
+		System.arraycopy(timestamps, index, timestamps, index + 1, size - index);
+		timestamps[index] = timestamp;
+		values.insert(index, size);
+		++size;
+		return index;
+	}
+
+	void addBoolean(long timestamp, boolean value) {
+		checkType(Record.Type.BOOLEAN);
+		((BooleanColumn) values).set(slotFor(timestamp), value);
+	}
+
+	private void valueChanged(int index) {
+		if (aggregates != null) {
+			aggregates.valueChanged(index, size);
+		}
+	}
+
+	void addInt64(long timestamp, long value) {
+		checkType(Record.Type.INT64);
+		int index = slotFor(timestamp);
+		((Int64Column) values).set(index, value);
+		valueChanged(index);
+	}
+
+	void addFloat(long timestamp, float value) {
+		checkType(Record.Type.FLOAT);
+		int index = slotFor(timestamp);
+		((FloatColumn) values).set(index, value);
+		valueChanged(index);
+	}
+
+	void addDouble(long timestamp, double value) {
+		checkType(Record.Type.DOUBLE);
+		int index = slotFor(timestamp);
+		((DoubleColumn) values).set(index, value);
+		valueChanged(index);
+	}
+
+	void addInt64Array(long timestamp, long[] value) {
+		checkType(Record.Type.INT64_ARRAY);
+		((Int64ArrayColumn) values).set(slotFor(timestamp), value);
+	}
+
+	void addFloatArray(long timestamp, float[] value) {
+		checkType(Record.Type.FLOAT_ARRAY);
+		((FloatArrayColumn) values).set(slotFor(timestamp), value);
+	}
+
+	void addDoubleArray(long timestamp, double[] value) {
+		checkType(Record.Type.DOUBLE_ARRAY);
+		((DoubleArrayColumn) values).set(slotFor(timestamp), value);
+	}
+
+	// For raw, string, boolean[], string[] and unknown entries, which keep their payload bytes, once per distinct
+	// value for strings
+	void addBytes(long timestamp, Record.Type type, byte[] payload) {
+		checkType(type);
+		if (values instanceof DictionaryColumn) {
+			((DictionaryColumn) values).set(slotFor(timestamp), payload);
+		} else {
+			((BytesColumn) values).set(slotFor(timestamp), payload);
+		}
+	}
+
+	// Struct payloads the decoder checked; each field is decoded from the payload into the entry of the field
+	void addStruct(long timestamp, byte[] payload, PayloadSink<Entry> sink) {
+		checkType(Record.Type.STRUCT);
+		makeFields();
+		slotFor(timestamp);
+		for (var field : fields) {
+			field.decoder.decode(id, payload, sink, field, timestamp);
+		}
+	}
+
+	void addOffset(long timestamp, long payloadOffset, int payloadSize) {
+		if (!isLazy()) {
+			throw new RuntimeException("Entry " + id + " is not lazily loaded");
+		}
+		if (values instanceof StructColumn) {
+			// Each field decodes its own values from the payload
+			makeFields();
+			slotFor(timestamp);
+			for (var field : fields) {
+				field.addOffset(timestamp, payloadOffset, payloadSize);
+			}
+			return;
+		}
+		((OffsetColumn) values).set(slotFor(timestamp), payloadOffset, payloadSize);
+	}
+
+	// Adds every record of other, which must have the same type, as if they were added one by one when they were
+	// logged, which may have been before this entry ended
+	void addAll(Entry other) {
+		if (other.values.getClass() != values.getClass() || other.values.getType() != values.getType()) {
+			throw new RuntimeException("Cannot add records of type " + other.values.getType() + " to entry " + id + " with type " + values.getType());
+		}
+		for (int i = 0; i < other.size; ++i) {
+			int index = insertSlot(other.getTimestamp(i));
+			values.copy(other.values, i, index);
+			valueChanged(index);
+		}
+		if (!other.fields.isEmpty()) {
+			makeFields();
+			if (fields.size() != other.fields.size()) {
+				throw new RuntimeException("Cannot add records with " + other.fields.size() + " fields to entry " + id + " with " + fields.size());
+			}
+			for (int i = 0; i < fields.size(); ++i) {
+				fields.get(i).addAll(other.fields.get(i));
+			}
+		}
+	}
+
+	boolean isLazy() {
+		return lazyPayloads != null;
+	}
+
+	void write(CacheOutput output) throws IOException {
+		output.writeLong(startTimestamp);
+		output.writeLong(endTimestamp);
+		output.writeBoolean(hasEnded);
+		output.writeLong(id);
+		output.writeString(name);
+		output.writeString(type);
+		// A decoder registered since could store the values differently
+		output.writeString(values.getType().name());
+		output.writeInt(timestampToMetadata.size());
+		for (var metadataEntry : timestampToMetadata.entrySet()) {
+			output.writeLong(metadataEntry.getKey());
+			output.writeString(metadataEntry.getValue());
+		}
+		writeValues(output);
+	}
+
+	// The records, and for struct entries the name, type and records of each field
+	private void writeValues(CacheOutput output) throws IOException {
+		if (offHeapTimestamps != null) {
+			throw new UnsupportedOperationException("Entries that were moved off the heap can't be cached");
+		}
+		output.writeInt(size);
+		output.writeLongs(timestamps, size);
+		values.write(output, size);
+		output.writeInt(fields.size());
+		for (var field : fields) {
+			output.writeString(field.name.substring(name.length() + 1));
+			output.writeString(field.type);
+			field.writeValues(output);
+		}
+	}
+
+	static Entry read(CacheInput input, StructSchemas structSchemas) {
+		long startTimestamp = input.readLong();
+		long endTimestamp = input.readLong();
+		boolean hasEnded = input.readBoolean();
+		long id = input.readLong();
+		String name = input.readString();
+		String type = input.readString();
+		var entry = new Entry(startTimestamp, id, name, type, null, structSchemas.forEntry(name, type), null);
+		String valueType = input.readString();
+		if (!valueType.equals(entry.values.getType().name())) {
+			throw new IllegalArgumentException("Entry " + id + " was cached with " + valueType + " values, but now decodes to " + entry.values.getType());
+		}
+		entry.endTimestamp = endTimestamp;
+		entry.hasEnded = hasEnded;
+		entry.timestampToMetadata.clear();
+		int metadataCount = input.readInt();
+		for (int i = 0; i < metadataCount; ++i) {
+			long timestamp = input.readLong();
+			entry.timestampToMetadata.put(timestamp, input.readString());
+		}
+		entry.readValues(input);
+		return entry;
+	}
+
+	// Fields get the decoder of their type until the struct entry gets the one the schemas of its log make
+	private void readValues(CacheInput input) {
+		size = input.readInt();
+		timestamps = input.readLongs(size);
+		values.read(input, size);
+		int fieldCount = input.readInt();
+		var fields = new ArrayList<Entry>(fieldCount);
+		for (int i = 0; i < fieldCount; ++i) {
+			String fieldName = input.readString();
+			var field = new Entry(this, fieldName, PayloadDecoders.forType(input.readString()));
+			field.readValues(input);
+			if (field.size != size) {
+				throw new IllegalArgumentException("Field " + field.name + " was cached with " + field.size + " records, but its entry has " + size);
+			}
+			fields.add(field);
+		}
+		this.fields = List.copyOf(fields);
+	}
+
+	// Drops spare capacity once no more records are expected
+	void trimToSize() {
+		if (offHeapTimestamps != null) {
+			return;
+		}
+		timestamps = Arrays.copyOf(timestamps, size);
+		values.trimToSize(size);
+		if (aggregates != null) {
+			aggregates.trimToSize();
+		}
+		for (var field : fields) {
+			field.trimToSize();
+		}
+	}
+
+	// Moves the timestamps and the values of scalar and lazily loaded entries to buffers from arena, so the garbage
+	// collector doesn't have to deal with them anymore; the entry can't take more records after that
+	void moveOffHeap(OffHeapArena arena) {
+		if (offHeapTimestamps != null) {
+			return;
+		}
+		var buffer = arena.allocate(8L * size);
+		if (buffer == null) {
+			return;
+		}
+		offHeapTimestamps = buffer.asLongBuffer().put(timestamps, 0, size);
+		timestamps = null;
+		values = values.moveOffHeap(arena, size);
+		if (aggregates != null) {
+			aggregates.setValues(values);
+		}
+		for (var field : fields) {
+			field.moveOffHeap(arena);
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,74 @@
+package wpilogviewer.loading;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+class Int64Column extends Column {
+	private long[] values = new long[INITIAL_CAPACITY];
+
+	@Override
+	Record.Type getType() {
+		return Record.Type.INT64;
+	}
+
+	long get(int index) {
+		return values[index];
+	}
+
+	void set(int index, long value) {
+		values[index] = value;
+	}
+
+	@Override
+	void insert(int index, int size) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, grownCapacity(values.length, size + 1));
+		}
+		System.arraycopy(values, index, values, index + 1, size - index);
+	}
+
+	@Override
+	void copy(Column source, int sourceIndex, int index) {
+		values[index] = ((Int64Column) source).values[sourceIndex];
+	}
+
+	@Override
+	double getNumber(int index) {
+		return values[index];
+	}
+
+	@Override
+	Record getRecord(int index, long timestamp) {
+		return Record.int64Record(timestamp, values[index]);
+	}
+
+	@Override
+	void trimToSize(int size) {
+		values = Arrays.copyOf(values, size);
+	}
+
+	@Override
+	Column moveOffHeap(OffHeapArena arena, int size) {
+		var buffer = arena.allocate(8L * size);
+		if (buffer == null) {
+			return this;
+		}
+		buffer.asLongBuffer().put(values, 0, size);
+		return new OffHeapColumn(getType(), buffer);
+	}
+
+	@Override
+	void write(CacheOutput output, int size) throws IOException {
+		output.writeLongs(values, size);
+	}
+
+	@Override
+	void read(CacheInput input, int size) {
+		values = input.readLongs(size);
+	}
+
+	@Override
+	long getMemoryUsage() {
+		return 16 + 8L * values.length;
+	}
+}
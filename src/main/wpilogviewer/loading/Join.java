@@ -0,0 +1,247 @@
+package wpilogviewer.loading;
+
+import java.util.List;
+
+// Rows of several entries on a common time base, made in a single pass that merges their sorted timestamps. Each
+// row has the latest record of every entry at or before its timestamp (zero-order hold), or none for entries without
+// a record yet. Loader makes joins; next moves to the first row and each one after it.
+public class Join {
+	private static enum Mode {
+		// A row at every timestamp any of the entries has a record at
+		UNION,
+		// A row every period
+		FIXED_RATE,
+		// A row at every record of the driver entry
+		AS_OF;
+	}
+
+	private final Entry[] entries;
+	private final Mode mode;
+	private final long startTimestamp;
+	private final long endTimestamp;
+	private final long period;
+	private final int driver;
+	private final boolean[] numeric;
+	// Index of the latest record of each entry at or before the current row, or -1 if there is none
+	private final int[] indices;
+	// Min-heap of the entries that have records left, by the timestamp of their next record
+	private final int[] heap;
+	private final long[] nextTimestamps;
+	private int heapSize = 0;
+	private long timestamp = 0;
+	private boolean started = false;
+	private boolean done = false;
+
+	private Join(List<Entry> entries, Mode mode, long startTimestamp, long endTimestamp, long period, int driver) {
+		if (startTimestamp > endTimestamp) {
+			throw new IllegalArgumentException("Start " + startTimestamp + " is after end " + endTimestamp);
+		}
+		this.entries = entries.toArray(new Entry[0]);
+		this.mode = mode;
+		this.startTimestamp = startTimestamp;
+		this.endTimestamp = endTimestamp;
+		this.period = period;
+		this.driver = driver;
+		numeric = new boolean[this.entries.length];
+		indices = new int[this.entries.length];
+		heap = new int[this.entries.length];
+		nextTimestamps = new long[this.entries.length];
+		for (int i = 0; i < this.entries.length; ++i) {
+			var entry = this.entries[i];
+			numeric[i] = Column.isNumeric(entry.getRecordType());
+			// Rows start at startTimestamp, so the records before it are only there to be held
+			int index = entry.floorIndex(startTimestamp);
+			if (index >= 0 && entry.getTimestamp(index) == startTimestamp) {
+				--index;
+			}
+			indices[i] = index;
+			if (index + 1 < entry.getRecordCount()) {
+				nextTimestamps[i] = entry.getTimestamp(index + 1);
+				heap[heapSize] = i;
+				siftUp(heapSize);
+				++heapSize;
+			}
+		}
+	}
+
+	static Join union(List<Entry> entries, long startTimestamp, long endTimestamp) {
+		return new Join(entries, Mode.UNION, startTimestamp, endTimestamp, 0, -1);
+	}
+
+	static Join fixedRate(List<Entry> entries, long startTimestamp, long endTimestamp, long period) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("Period must be positive, but was " + period);
+		}
+		return new Join(entries, Mode.FIXED_RATE, startTimestamp, endTimestamp, period, -1);
+	}
+
+	static Join asOf(List<Entry> entries, Entry driver, long startTimestamp, long endTimestamp) {
+		int driverIndex = entries.indexOf(driver);
+		if (driverIndex < 0) {
+			throw new IllegalArgumentException("Driver entry " + driver.getId() + " is not one of the joined entries");
+		}
+		return new Join(entries, Mode.AS_OF, startTimestamp, endTimestamp, 0, driverIndex);
+	}
+
+	private void siftUp(int position) {
+		int entry = heap[position];
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (nextTimestamps[heap[parent]] <= nextTimestamps[entry]) {
+				break;
+			}
+			heap[position] = heap[parent];
+			position = parent;
+		}
+		heap[position] = entry;
+	}
+
+	private void siftDown(int position) {
+		int entry = heap[position];
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && nextTimestamps[heap[child + 1]] < nextTimestamps[heap[child]]) {
+				++child;
+			}
+			if (nextTimestamps[entry] <= nextTimestamps[heap[child]]) {
+				break;
+			}
+			heap[position] = heap[child];
+			position = child;
+		}
+		heap[position] = entry;
+	}
+
+	// Index of the last record of entry at or before rowTimestamp, given that the one at index is. Gallops ahead and
+	// then searches back, so rows that are many records apart don't walk every record in between.
+	private static int lastIndexAtOrBefore(Entry entry, int index, long rowTimestamp) {
+		int size = entry.getRecordCount();
+		int low = index;
+		int high = index + 1;
+		for (long step = 1; high < size && entry.getTimestamp(high) <= rowTimestamp; step *= 2) {
+			low = high;
+			high = (int) Math.min(size, low + step);
+		}
+		// The record at low is at or before rowTimestamp and the one at high, if any, is after it
+		while (high - low > 1) {
+			int middle = (low + high) >>> 1;
+			if (entry.getTimestamp(middle) <= rowTimestamp) {
+				low = middle;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	// Moves every entry to its latest record at or before rowTimestamp
+	private void advanceTo(long rowTimestamp) {
+		while (heapSize > 0 && nextTimestamps[heap[0]] <= rowTimestamp) {
+			int i = heap[0];
+			var entry = entries[i];
+			int index = lastIndexAtOrBefore(entry, indices[i] + 1, rowTimestamp);
+			indices[i] = index;
+			if (index + 1 < entry.getRecordCount()) {
+				nextTimestamps[i] = entry.getTimestamp(index + 1);
+			} else {
+				--heapSize;
+				heap[0] = heap[heapSize];
+			}
+			if (heapSize > 0) {
+				siftDown(0);
+			}
+		}
+	}
+
+	// Moves to the next row, returning false once there are no more
+	public boolean next() {
+		if (done) {
+			return false;
+		}
+		long rowTimestamp;
+		switch (mode) {
+			case UNION -> {
+				if (heapSize == 0) {
+					done = true;
+					return false;
+				}
+				rowTimestamp = nextTimestamps[heap[0]];
+			}
+			case FIXED_RATE -> {
+				if (started && timestamp > endTimestamp - period) {
+					done = true;
+					return false;
+				}
+				rowTimestamp = started ? timestamp + period : startTimestamp;
+			}
+			case AS_OF -> {
+				var entry = entries[driver];
+				if (indices[driver] + 1 >= entry.getRecordCount()) {
+					done = true;
+					return false;
+				}
+				rowTimestamp = entry.getTimestamp(indices[driver] + 1);
+			}
+			default -> throw new IllegalStateException("Unknown join mode " + mode);
+		}
+		if (rowTimestamp > endTimestamp) {
+			done = true;
+			return false;
+		}
+		advanceTo(rowTimestamp);
+		timestamp = rowTimestamp;
+		started = true;
+		return true;
+	}
+
+	private void checkRow() {
+		if (!started || done) {
+			throw new IllegalStateException("Join is not at a row");
+		}
+	}
+
+	public int getEntryCount() {
+		return entries.length;
+	}
+
+	public Entry getEntry(int entry) {
+		return entries[entry];
+	}
+
+	public long getTimestamp() {
+		checkRow();
+		return timestamp;
+	}
+
+	// Whether the entry had a record at or before the current row
+	public boolean hasValue(int entry) {
+		checkRow();
+		return indices[entry] >= 0;
+	}
+
+	// Timestamp of the record the entry holds in the current row
+	public long getValueTimestamp(int entry) {
+		checkRow();
+		return entries[entry].getTimestamp(indices[entry]);
+	}
+
+	// Record the entry holds in the current row, or null if it has none
+	public Record getRecord(int entry) {
+		checkRow();
+		int index = indices[entry];
+		return index < 0 ? null : entries[entry].getRecordAt(index);
+	}
+
+	// Value of a numeric entry in the current row, read straight from its column, or NaN if it has none
+	public double getNumber(int entry) {
+		checkRow();
+		if (!numeric[entry]) {
+			throw new RuntimeException("Entry " + entries[entry].getId() + " with type " + entries[entry].getType() + " is not numeric");
+		}
+		int index = indices[entry];
+		return index < 0 ? Double.NaN : entries[entry].getNumberAt(index);
+	}
+}
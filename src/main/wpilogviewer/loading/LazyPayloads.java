@@ -0,0 +1,192 @@
+package wpilogviewer.loading;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import wpilogviewer.LogPhaseEvent;
+import wpilogviewer.LogReadEvent;
+
+// Decodes the payloads of lazily loaded entries a block of records at a time, keeping the most recently used blocks
+// up to a number of blocks and of bytes
+class LazyPayloads implements Closeable {
+	static final int BLOCK_SIZE = 1024;
+	static final int DEFAULT_CACHED_BLOCKS = 256;
+	// Blocks whose payloads are closer together than this are read with a single call
+	private static final int MAX_SPAN_SIZE = 1 << 22;
+
+	private static class BlockKey {
+		private final Entry entry;
+		private final int block;
+
+		public BlockKey(Entry entry, int block) {
+			this.entry = entry;
+			this.block = block;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof BlockKey)) {
+				return false;
+			}
+			var otherKey = (BlockKey) other;
+			return entry == otherKey.entry && block == otherKey.block;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(entry) + block;
+		}
+	}
+
+	private static class CachedBlock {
+		private final Entry decoded;
+		// What the block counts toward cachedBytes; string values get decoded as they're requested, so this can grow
+		private long memoryUsage = 0;
+
+		public CachedBlock(Entry decoded) {
+			this.decoded = decoded;
+		}
+	}
+
+	private final Path path;
+	private final LoaderLogger logger;
+	// Access order makes this an LRU cache
+	private final Map<BlockKey, CachedBlock> blockCache = new LinkedHashMap<>(16, 0.75f, true);
+	private final int maxCachedBlocks;
+	private final long maxCachedBytes;
+	private long cachedBytes = 0;
+	private long hitCount = 0;
+	private long missCount = 0;
+	private long evictionCount = 0;
+	private FileChannel channel;
+	private ByteBuffer spanBuffer = ByteBuffer.allocate(0);
+
+	public LazyPayloads(Path path, LoaderLogger logger, int maxCachedBlocks, long maxCachedBytes) {
+		this.path = path;
+		this.logger = logger;
+		this.maxCachedBlocks = maxCachedBlocks;
+		this.maxCachedBytes = maxCachedBytes;
+	}
+
+	long getCachedBytes() {
+		return cachedBytes;
+	}
+
+	long getHitCount() {
+		return hitCount;
+	}
+
+	long getMissCount() {
+		return missCount;
+	}
+
+	long getEvictionCount() {
+		return evictionCount;
+	}
+
+	// The newest block always stays, even if it's bigger than the budget by itself
+	private void evict() {
+		var iterator = blockCache.values().iterator();
+		while (blockCache.size() > 1 && (blockCache.size() > maxCachedBlocks || cachedBytes > maxCachedBytes)) {
+			cachedBytes -= iterator.next().memoryUsage;
+			iterator.remove();
+			++evictionCount;
+		}
+	}
+
+	Record getRecord(Entry entry, OffsetColumn column, int index) {
+		int block = index / BLOCK_SIZE;
+		var key = new BlockKey(entry, block);
+		var cached = blockCache.get(key);
+		if (cached == null) {
+			++missCount;
+			try {
+				cached = new CachedBlock(decodeBlock(entry, column, block));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			blockCache.put(key, cached);
+		} else {
+			++hitCount;
+		}
+		var record = cached.decoded.getRecord(entry.getTimestamp(index));
+		long memoryUsage = cached.decoded.getMemoryUsage();
+		if (memoryUsage != cached.memoryUsage) {
+			cachedBytes += memoryUsage - cached.memoryUsage;
+			cached.memoryUsage = memoryUsage;
+			evict();
+		}
+		if (record == null && block > 0) {
+			// Every payload up to index in this block was invalid, so keep looking in the previous block
+			return getRecord(entry, column, block * BLOCK_SIZE - 1);
+		}
+		return record;
+	}
+
+	private Entry decodeBlock(Entry entry, OffsetColumn column, int block) throws IOException {
+		if (channel == null) {
+			channel = FileChannel.open(path, StandardOpenOption.READ);
+		}
+		var event = new LogPhaseEvent("lazy block");
+		int start = block * BLOCK_SIZE;
+		int end = Math.min(start + BLOCK_SIZE, entry.getRecordCount());
+		// Out of order records can make offsets non-monotonic, so find the span explicitly
+		long spanStart = Long.MAX_VALUE;
+		long spanEnd = 0;
+		for (int i = start; i < end; ++i) {
+			spanStart = Math.min(spanStart, column.getOffset(i));
+			spanEnd = Math.max(spanEnd, column.getOffset(i) + column.getSize(i));
+		}
+		boolean readSpan = spanEnd - spanStart <= MAX_SPAN_SIZE;
+		if (readSpan) {
+			if (spanBuffer.capacity() < spanEnd - spanStart) {
+				spanBuffer = ByteBuffer.allocate((int) (spanEnd - spanStart));
+			}
+			spanBuffer.clear().limit((int) (spanEnd - spanStart));
+			readFully(spanBuffer, spanStart);
+		}
+		var decoded = new Entry(entry.getStartTimestamp(), entry.getId(), entry.getName(), entry.getType(), null, entry.getDecoder(), null);
+		for (int i = start; i < end; ++i) {
+			byte[] payload = new byte[column.getSize(i)];
+			if (readSpan) {
+				spanBuffer.get((int) (column.getOffset(i) - spanStart), payload);
+			} else {
+				readFully(ByteBuffer.wrap(payload), column.getOffset(i));
+			}
+			logger.decodeValue(decoded, entry.getTimestamp(i), payload);
+		}
+		decoded.trimToSize();
+		event.end(path, readSpan ? spanEnd - spanStart : 0);
+		return decoded;
+	}
+
+	private void readFully(ByteBuffer buffer, long offset) throws IOException {
+		var event = new LogReadEvent();
+		long startOffset = offset;
+		while (buffer.hasRemaining()) {
+			int numRead = channel.read(buffer, offset);
+			if (numRead == -1) {
+				throw new EOFException("Log ended before payload at offset " + offset);
+			}
+			offset += numRead;
+		}
+		event.end(startOffset, offset - startOffset);
+	}
+
+	@Override
+	public void close() throws IOException {
+		blockCache.clear();
+		cachedBytes = 0;
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+	}
+}
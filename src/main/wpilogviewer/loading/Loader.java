@@ -1,14 +1,30 @@
 package wpilogviewer.loading;
 
+import java.io.Closeable;
 import java.io.InputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Set;
+import wpilogviewer.LogFingerprint;
+import wpilogviewer.LogFollower;
+import wpilogviewer.LogPhaseEvent;
+import wpilogviewer.Logger;
+import wpilogviewer.MultiLogger;
+import wpilogviewer.ParseStats;
+import wpilogviewer.PayloadDecoders;
+import wpilogviewer.SparseIndex;
+import wpilogviewer.TopicFilter;
 import wpilogviewer.WpiLogProcessor;
 
-public class Loader {
+public class Loader implements Closeable {
 	public static enum Verbosity {
 		SILENT,
 		QUIET,
@@ -16,23 +32,362 @@ public class Loader {
 		VERBOSE;
 	}
 
+	// Exactly one of these is non-null
 	private final InputStream inputStream;
+	private final Path path;
 	private final LoaderLogger logger;
 	private final Map<Long, NavigableMap<Long, Entry>> idToStartToEntry;
+	private boolean lazy = false;
+	private int lazyCachedBlocks = LazyPayloads.DEFAULT_CACHED_BLOCKS;
+	// 0 when decoded records aren't limited by size
+	private long memoryBudget = 0;
+	private LazyPayloads lazyPayloads = null;
+	private boolean offHeap = false;
+	// Non-null once entries have been moved off the heap
+	private OffHeapArena arena = null;
+	private int parallelism = 1;
+	private boolean useCache = false;
+	private boolean index = false;
+	private TopicFilter topicFilter = null;
+	private boolean buildAggregates = false;
+	private boolean follow = false;
+	// Non-null after loading in follow mode
+	private LogFollower follower = null;
+	private boolean hasTimeWindow = false;
+	private long windowStart;
+	private long windowEnd;
+	// Non-null when the records that get loaded should be counted
+	private ParseStats stats = null;
 
-	public Loader(InputStream inputStream, Verbosity verbosity) {
+	private Loader(InputStream inputStream, Path path, Verbosity verbosity) {
 		this.inputStream = inputStream;
+		this.path = path;
 		this.logger = new LoaderLogger(verbosity);
 		// This is a live reference to the logger's map, so it'll be updated for us
 		this.idToStartToEntry = logger.getIdToStartToEntry();
 	}
 
+	public Loader(InputStream inputStream, Verbosity verbosity) {
+		this(inputStream, null, verbosity);
+	}
+
 	public Loader(InputStream inputStream) {
 		this(inputStream, Verbosity.NORMAL);
 	}
 
+	public Loader(Path path, Verbosity verbosity) {
+		this(null, path, verbosity);
+	}
+
+	public Loader(Path path) {
+		this(path, Verbosity.NORMAL);
+	}
+
+	// Lazy loading only indexes where payloads are and decodes them when records are requested
+	public void setLazy(boolean lazy) {
+		this.lazy = lazy;
+	}
+
+	// Lazily decoded records are cached in blocks of 1024 records per entry
+	public void setLazyCachedBlocks(int lazyCachedBlocks) {
+		this.lazyCachedBlocks = lazyCachedBlocks;
+	}
+
+	// Keeps decoded records within about this many heap bytes by loading lazily and dropping the least recently used
+	// blocks of records when there are more, which get decoded again if they're needed later. Where each record is
+	// stays in memory, at 20 bytes a record, and isn't part of the budget.
+	public void setMemoryBudget(long memoryBudget) {
+		if (memoryBudget <= 0) {
+			throw new IllegalArgumentException("Memory budget must be positive, but was " + memoryBudget);
+		}
+		this.memoryBudget = memoryBudget;
+	}
+
+	// Moves timestamps and the values of scalar entries to direct buffers after loading, along with where each record
+	// is for lazily loaded entries, which keeps them out of garbage collection. Lookups read them in place. The
+	// buffers count against -XX:MaxDirectMemorySize rather than the heap, and are released with the entries after
+	// close; other value types stay on the heap.
+	public void setOffHeap(boolean offHeap) {
+		this.offHeap = offHeap;
+	}
+
+	// Files are split into chunks that are decoded on this many threads; stdin is always loaded on one thread
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1, but was " + parallelism);
+		}
+		this.parallelism = parallelism;
+	}
+
+	// Decoded entries get saved next to the log file and are reused while the log stays the same
+	public void setUseCache(boolean useCache) {
+		this.useCache = useCache;
+	}
+
+	// Only entries whose names match one of these names or globs get loaded
+	public void setTopicFilter(Collection<String> topics) {
+		topicFilter = new TopicFilter(topics);
+		logger.setTopicFilter(topicFilter);
+	}
+
+	// Numeric entries keep aggregates up to date while loading, so getAggregate takes O(log n) instead of a scan
+	public void setBuildAggregates(boolean buildAggregates) {
+		this.buildAggregates = buildAggregates;
+		logger.setBuildAggregates(buildAggregates);
+	}
+
+	// Keeps the log open after load so update can add records that were written since; following skips the cache,
+	// parallel loading and trimming, since the entries keep growing
+	public void setFollow(boolean follow) {
+		this.follow = follow;
+	}
+
+	// A load of the whole file also saves an index next to the log on the way through, so later time windows don't
+	// need a pass of their own to build it; nothing gets written otherwise, except by time windows
+	public void setIndex(boolean index) {
+		this.index = index;
+	}
+
+	// Only records with timestamps in [start, end] get loaded, using an index saved next to the log to skip the rest
+	public void setTimeWindow(long start, long end) {
+		hasTimeWindow = true;
+		windowStart = start;
+		windowEnd = end;
+	}
+
+	// Counts the records that load reads from the log; the caller finishes the stats once it's done
+	public void setStats(ParseStats stats) {
+		this.stats = stats;
+	}
+
+	private Logger countedLogger(Logger logger) {
+		return stats == null ? logger : stats.wrap(logger);
+	}
+
 	public void load() throws IOException {
-		WpiLogProcessor.process(inputStream, logger);
+		if (hasTimeWindow && path == null) {
+			throw new IllegalStateException("Loading a time window needs a file to index");
+		}
+		if (follow) {
+			if (path == null || lazy || memoryBudget > 0 || offHeap || hasTimeWindow) {
+				throw new IllegalStateException("Following needs a file that is loaded eagerly and without a time window");
+			}
+			follower = new LogFollower(path, countedLogger(logger));
+			follower.update();
+			return;
+		}
+		// A cache always holds every topic and record, so it can't come from a filtered load, and it's all decoded, so it
+		// doesn't fit a memory budget
+		var cache = useCache && path != null && topicFilter == null && !hasTimeWindow && memoryBudget == 0 ? new LogCache(path) : null;
+		// Taken before parsing, which stops where the log ended then, so the cache and the index saved from this load
+		// match what it loaded even if the log grows meanwhile
+		var fingerprint = path == null ? null : LogFingerprint.of(path);
+		long endOffset = fingerprint == null ? Long.MAX_VALUE : fingerprint.getSize();
+		boolean cacheRead = false;
+		if (cache != null) {
+			var event = new LogPhaseEvent("cache read");
+			cacheRead = cache.read(idToStartToEntry, logger.getStructSchemas(), fingerprint);
+			event.end(path, 0);
+		}
+		if (cacheRead) {
+			registerStructSchemas();
+			if (buildAggregates) {
+				// Cached entries didn't go through the logger
+				for (var startToEntry : idToStartToEntry.values()) {
+					for (var entry : startToEntry.values()) {
+						entry.enableAggregates();
+						entry.trimToSize();
+					}
+				}
+			}
+			moveOffHeap();
+			return;
+		}
+		if (lazy || memoryBudget > 0) {
+			if (path == null) {
+				throw new IllegalStateException("Lazy loading needs a file to read payloads from later");
+			}
+			if (memoryBudget > 0) {
+				lazyPayloads = new LazyPayloads(path, logger, Integer.MAX_VALUE, memoryBudget);
+			} else {
+				lazyPayloads = new LazyPayloads(path, logger, lazyCachedBlocks, Long.MAX_VALUE);
+			}
+			logger.setLazyPayloads(lazyPayloads);
+		}
+		if (hasTimeWindow) {
+			SparseIndex.loadOrBuild(path).process(path, countedLogger(logger), windowStart, windowEnd);
+		} else if (path != null && index && topicFilter == null && !Files.exists(SparseIndex.indexPathFor(path))) {
+			// Building the index takes a single pass over every record, so it comes before loading in parallel
+			processAndIndex(fingerprint);
+		} else if (path != null && parallelism > 1) {
+			new ParallelLoader(path, endOffset, logger, lazyPayloads, parallelism, stats).load();
+		} else if (path != null) {
+			WpiLogProcessor.process(path, countedLogger(logger), endOffset);
+		} else {
+			WpiLogProcessor.process(inputStream, countedLogger(logger));
+		}
+		for (var startToEntry : idToStartToEntry.values()) {
+			for (var entry : startToEntry.values()) {
+				entry.trimToSize();
+			}
+		}
+		// Lazily loaded entries have nothing decoded to cache
+		if (cache != null && lazyPayloads == null) {
+			var event = new LogPhaseEvent("cache write");
+			try {
+				cache.write(idToStartToEntry, fingerprint);
+				event.end(path, 0);
+			} catch (IOException e) {
+				System.err.println("Could not write cache for " + path + ": " + e.getMessage());
+			}
+		}
+		moveOffHeap();
+	}
+
+	// A cached entry starting, or a schema logged by a cached schema entry if schema is non-null
+	private static class CachedEvent {
+		private final long timestamp;
+		private final Entry entry;
+		private final String schema;
+
+		public CachedEvent(long timestamp, Entry entry, String schema) {
+			this.timestamp = timestamp;
+			this.entry = entry;
+			this.schema = schema;
+		}
+	}
+
+	// Cached entries didn't go through the decoders, so the schemas in the cached schema entries are registered again in
+	// the order they were logged, and each entry gets the decoder it would have gotten when it started
+	private void registerStructSchemas() {
+		var events = new ArrayList<CachedEvent>();
+		for (var startToEntry : idToStartToEntry.values()) {
+			for (var entry : startToEntry.values()) {
+				events.add(new CachedEvent(entry.getStartTimestamp(), entry, null));
+				if (PayloadDecoders.isStructSchema(entry.getName(), entry.getType())) {
+					for (int i = 0; i < entry.getRecordCount(); ++i) {
+						var record = entry.getRecordAt(i);
+						events.add(new CachedEvent(record.getTimestamp(), entry, record.stringValue()));
+					}
+				}
+			}
+		}
+		// Schemas logged at the same time as a start were most likely logged for it
+		events.sort(Comparator.comparingLong((CachedEvent event) -> event.timestamp).thenComparing(event -> event.schema == null));
+		var structSchemas = logger.getStructSchemas();
+		for (var event : events) {
+			var entry = event.entry;
+			if (event.schema == null) {
+				entry.setDecoder(structSchemas.forEntry(entry.getName(), entry.getType()));
+				continue;
+			}
+			try {
+				structSchemas.register(entry.getName(), event.schema);
+			} catch (IllegalArgumentException e) {
+				System.err.println("Could not parse struct schema of entry " + entry.getId() + ": " + e.getMessage());
+			}
+		}
+	}
+
+	private void moveOffHeap() {
+		if (!offHeap) {
+			return;
+		}
+		var event = new LogPhaseEvent("move off heap");
+		arena = new OffHeapArena();
+		for (var startToEntry : idToStartToEntry.values()) {
+			for (var entry : startToEntry.values()) {
+				entry.moveOffHeap(arena);
+			}
+		}
+		event.end(path, arena.getAllocatedBytes());
+	}
+
+	// Indexes the log on the way through so later time windows don't need their own pass
+	private void processAndIndex(LogFingerprint fingerprint) throws IOException {
+		long firstRecordOffset = WpiLogProcessor.findFirstRecordOffset(path);
+		if (firstRecordOffset < 0) {
+			// Let the processor report the bad header
+			WpiLogProcessor.process(path, countedLogger(logger), fingerprint.getSize());
+			return;
+		}
+		var indexBuilder = new SparseIndex.Builder(firstRecordOffset, SparseIndex.DEFAULT_RECORDS_PER_BLOCK);
+		WpiLogProcessor.process(path, countedLogger(new MultiLogger(logger, indexBuilder)), fingerprint.getSize());
+		var event = new LogPhaseEvent("index write");
+		try {
+			indexBuilder.build(fingerprint).write(SparseIndex.indexPathFor(path));
+			event.end(path, 0);
+		} catch (IOException e) {
+			System.err.println("Could not write index for " + path + ": " + e.getMessage());
+		}
+	}
+
+	// Adds the records written to the log since the last load or update, and returns whether there were any
+	public boolean update() throws IOException {
+		if (follower == null) {
+			throw new IllegalStateException("Only a loader that is following its log can update");
+		}
+		return follower.update();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (lazyPayloads != null) {
+			lazyPayloads.close();
+		}
+		if (follower != null) {
+			follower.close();
+		}
+		if (arena != null) {
+			arena.close();
+		}
+	}
+
+	// Rough number of heap bytes held by the aggregate pyramids of all entries, which getMemoryUsage includes
+	public long getAggregateMemoryUsage() {
+		long memoryUsage = 0;
+		for (var startToEntry : idToStartToEntry.values()) {
+			for (var entry : startToEntry.values()) {
+				memoryUsage += entry.getAggregateMemoryUsage();
+			}
+		}
+		return memoryUsage;
+	}
+
+	// Rough number of heap bytes held by lazily decoded records, which getMemoryUsage includes
+	public long getDecodedMemoryUsage() {
+		return lazyPayloads == null ? 0 : lazyPayloads.getCachedBytes();
+	}
+
+	// Lookups of lazily loaded records whose block was still decoded
+	public long getDecodedHitCount() {
+		return lazyPayloads == null ? 0 : lazyPayloads.getHitCount();
+	}
+
+	// Lookups of lazily loaded records whose block had to be decoded from the file
+	public long getDecodedMissCount() {
+		return lazyPayloads == null ? 0 : lazyPayloads.getMissCount();
+	}
+
+	// Decoded blocks that were dropped to stay within the block count or memory budget
+	public long getDecodedEvictionCount() {
+		return lazyPayloads == null ? 0 : lazyPayloads.getEvictionCount();
+	}
+
+	// Bytes of direct buffers that entries were moved to, which getMemoryUsage doesn't include
+	public long getOffHeapMemoryUsage() {
+		return arena == null ? 0 : arena.getAllocatedBytes();
+	}
+
+	// Rough number of heap bytes held by the records of all entries
+	public long getMemoryUsage() {
+		long memoryUsage = getDecodedMemoryUsage();
+		for (var startToEntry : idToStartToEntry.values()) {
+			for (var entry : startToEntry.values()) {
+				memoryUsage += entry.getMemoryUsage();
+			}
+		}
+		return memoryUsage;
 	}
 
 	public Set<Long> getIds() {
@@ -62,4 +417,38 @@ public class Loader {
 		}
 		return floorEntry;
 	}
+
+	// Aggregate of the records in [startTimestamp, endTimestamp] of the entry with this id that is active at
+	// startTimestamp, or null if there is none
+	public Aggregate getAggregate(long id, long startTimestamp, long endTimestamp) {
+		var entry = getEntry(id, startTimestamp);
+		if (entry == null) {
+			return null;
+		}
+		return entry.getAggregate(startTimestamp, endTimestamp);
+	}
+
+	// Decimated numeric series of the entry with this id that is active at startTimestamp, or null if there is none
+	public Series getSeries(long id, long startTimestamp, long endTimestamp, int maxPoints, Decimation decimation) {
+		var entry = getEntry(id, startTimestamp);
+		if (entry == null) {
+			return null;
+		}
+		return entry.getSeries(startTimestamp, endTimestamp, maxPoints, decimation);
+	}
+
+	// Rows of the entries at every timestamp in [startTimestamp, endTimestamp] that any of them has a record at
+	public Join joinUnion(List<Entry> entries, long startTimestamp, long endTimestamp) {
+		return Join.union(entries, startTimestamp, endTimestamp);
+	}
+
+	// Rows of the entries every period microseconds from startTimestamp through endTimestamp
+	public Join joinFixedRate(List<Entry> entries, long startTimestamp, long endTimestamp, long period) {
+		return Join.fixedRate(entries, startTimestamp, endTimestamp, period);
+	}
+
+	// Rows of the entries at every record of driver, which is one of them, in [startTimestamp, endTimestamp]
+	public Join joinAsOf(List<Entry> entries, Entry driver, long startTimestamp, long endTimestamp) {
+		return Join.asOf(entries, driver, startTimestamp, endTimestamp);
+	}
 }
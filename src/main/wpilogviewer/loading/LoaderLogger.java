@@ -1,12 +1,17 @@
 package wpilogviewer.loading;
 
-import java.util.Arrays;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.NavigableMap;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.function.Supplier;
 import wpilogviewer.Logger;
+import wpilogviewer.PayloadDecoders;
+import wpilogviewer.PayloadSink;
+import wpilogviewer.StructSchemas;
+import wpilogviewer.TopicFilter;
 import wpilogviewer.Util;
 import wpilogviewer.loading.Loader.Verbosity;
 
@@ -16,6 +21,23 @@ class LoaderLogger implements Logger {
 	private Map<Long, NavigableMap<Long, Entry>> idToStartToEntry = new HashMap<>();
 	private final Verbosity verbosity;
 	private long valueCount = 0;
+	// Non-null when loading lazily
+	private LazyPayloads lazyPayloads = null;
+	// Non-null when only some topics get loaded
+	private TopicFilter topicFilter = null;
+	// Ids that were started with a topic the filter rejected
+	private final Set<Long> ignoredIds = new HashSet<>();
+	private boolean buildAggregates = false;
+	// Whether the latest start of each id passed the filter
+	private final Map<Long, Boolean> idToWantsValues = new HashMap<>();
+	// Names of the ids whose latest start is a struct schema entry, even if the filter rejected it, since the topics
+	// it took may need the schema
+	private final Map<Long, String> idToStructSchemaName = new HashMap<>();
+	// Schemas of this log, registered in the order they were logged by the sequential passes over it
+	private final StructSchemas structSchemas = new StructSchemas();
+	private final EntrySink entrySink = new EntrySink();
+	// Entry made by the latest start record, or null if the filter rejected it
+	private Entry startedEntry = null;
 
 	public LoaderLogger(Verbosity verbosity) {
 		this.verbosity = verbosity;
@@ -43,6 +65,34 @@ class LoaderLogger implements Logger {
 		}
 	}
 
+	void setLazyPayloads(LazyPayloads lazyPayloads) {
+		this.lazyPayloads = lazyPayloads;
+	}
+
+	void setBuildAggregates(boolean buildAggregates) {
+		this.buildAggregates = buildAggregates;
+	}
+
+	void setTopicFilter(TopicFilter topicFilter) {
+		this.topicFilter = topicFilter;
+	}
+
+	boolean isIgnored(long id) {
+		return ignoredIds.contains(id);
+	}
+
+	Set<Long> getIgnoredIds() {
+		return ignoredIds;
+	}
+
+	StructSchemas getStructSchemas() {
+		return structSchemas;
+	}
+
+	Entry getStartedEntry() {
+		return startedEntry;
+	}
+
 	Map<Long, NavigableMap<Long, Entry>> getIdToStartToEntry() {
 		return idToStartToEntry;
 	}
@@ -85,7 +135,7 @@ class LoaderLogger implements Logger {
 		return entry;
 	}
 
-	private Entry getEntry(long id, long timestamp) {
+	Entry getEntry(long id, long timestamp) {
 		if (!idToStartToEntry.containsKey(id)) {
 			return null;
 		}
@@ -105,12 +155,32 @@ class LoaderLogger implements Logger {
 	@Override
 	public void logStart(long entryId, String entryName, String entryType, String entryMetadata,  long timestamp) {
 		logDebug("Log start: entryId=" + entryId);
+		boolean structSchema = PayloadDecoders.isStructSchema(entryName, entryType);
+		if (structSchema) {
+			idToStructSchemaName.put(entryId, entryName);
+		} else {
+			idToStructSchemaName.remove(entryId);
+		}
+		if (topicFilter != null && !topicFilter.matches(entryName)) {
+			logDebug("Ignoring entry " + entryId + " with name " + entryName);
+			// The id can't refer to an older entry anymore
+			finishEntry(entryId, timestamp);
+			ignoredIds.add(entryId);
+			idToWantsValues.put(entryId, structSchema);
+			startedEntry = null;
+			return;
+		}
+		idToWantsValues.put(entryId, true);
 		if (hasEntry(entryId, timestamp)) {
 			var oldEntry = getEntry(entryId, timestamp);
 			logWarning("Note: Overriding existing entry with id " + oldEntry.getId() + " and name " + oldEntry.getName() + "!");
 		}
-		var entry = new Entry(timestamp, entryId, entryName, entryType, entryMetadata);
+		var entry = new Entry(timestamp, entryId, entryName, entryType, entryMetadata, structSchemas.forEntry(entryName, entryType), lazyPayloads);
+		if (buildAggregates) {
+			entry.enableAggregates();
+		}
 		addEntry(entryId, timestamp, entry);
+		startedEntry = entry;
 		logDebug("Done with log start");
 	}
 
@@ -118,6 +188,9 @@ class LoaderLogger implements Logger {
 	public void logFinish(long entryId, long timestamp) {
 		logDebug("Log finish: entryId=" + entryId);
 		if (!hasEntry(entryId, timestamp)) {
+			if (isIgnored(entryId)) {
+				return;
+			}
 			logErr("Could not end non-existent ID " + entryId + " at timestamp " + Long.toUnsignedString(timestamp) + "!");
 			return;
 		}
@@ -129,6 +202,9 @@ class LoaderLogger implements Logger {
 	public void logSetMetadata(long entryId, long timestamp, String newMetadata) {
 		logDebug("Log set metadata: entryId=" + entryId);
 		if (!hasEntry(entryId, timestamp)) {
+			if (isIgnored(entryId)) {
+				return;
+			}
 			logErr("Could not set metadata of entry with non-existent ID " + entryId + " at timestamp " + Long.toUnsignedString(timestamp) + "!");
 			return;
 		}
@@ -138,127 +214,166 @@ class LoaderLogger implements Logger {
 	}
 
 	@Override
-	public void logValue(long entryId, long timestamp, Supplier<byte[]> payloadSupplier) {
+	public boolean wantsValues(long entryId) {
+		return idToWantsValues.getOrDefault(entryId, true);
+	}
+
+	private Entry getValueEntry(long entryId, long timestamp) {
 		logDebug("Log value: entryId=" + entryId);
 		if (valueCount % VALUE_COUNT_PERIOD == 0) {
 			logInfo("Processing value #" + valueCount);
 		}
 		++valueCount;
 		if (!hasEntry(entryId, timestamp)) {
+			if (isIgnored(entryId)) {
+				return null;
+			}
 			logErr("Cannot log to entry with non-existent ID " + entryId + " at timestamp " + Long.toUnsignedString(timestamp) + "!");
+			return null;
+		}
+		return getEntry(entryId, timestamp);
+	}
+
+	@Override
+	public void logValue(long entryId, long timestamp, Supplier<byte[]> payloadSupplier) {
+		registerStructSchema(entryId, payloadSupplier);
+		var entry = getValueEntry(entryId, timestamp);
+		if (entry == null) {
 			return;
 		}
-		var entry = getEntry(entryId, timestamp);
-		byte[] payload = payloadSupplier.get();
-		final Record record;
-		switch (entry.getType()) {
-			case "raw", "rawBytes" -> {
-				record = Record.rawRecord(timestamp, payload);
-			}
-			case "boolean" -> {
-				if (payload.length != 1) {
-					logWarning("Got invalid payload for boolean entry " + entry.getId() + " of size " + payload.length + "! (" + Arrays.toString(payload) + ")");
-					return;
-				}
-				if (payload[0] < 0 || payload[0] > 1) {
-					logWarning("Got invalid payload for boolean entry " + entry.getId() + ": " + payload[0] + "!");
-					return;
-				}
-				boolean value = payload[0] == 1;
-				record = Record.booleanRecord(timestamp, value);
-			}
-			case "int64" -> {
-				if (payload.length != 8) {
-					logWarning("Got invalid payload for int64 entry " + entry.getId() + " of size " + payload.length + "! (" + Arrays.toString(payload) + ")");
-					return;
-				}
-				long value = Util.longFromBytes(payload);
-				record = Record.int64Record(timestamp, value);
-			}
-			case "float" -> {
-				if (payload.length != 4) {
-					logWarning("Got invalid payload for float entry " + entry.getId() + " of size " + payload.length + "! (" + Arrays.toString(payload) + ")");
-					return;
-				}
-				float value = Float.intBitsToFloat(Util.intFromBytes(payload));
-				record = Record.floatRecord(timestamp, value);
-			}
-			case "double" -> {
-				if (payload.length != 8) {
-					logWarning("Got invalid payload for double entry " + entry.getId() + " of size " + payload.length + "! (" + Arrays.toString(payload) + ")");
-					return;
-				}
-				double value = Double.longBitsToDouble(Util.longFromBytes(payload));
-				record = Record.doubleRecord(timestamp, value);
-			}
-			case "json", "string" -> {
-				String value = Util.utf8StringFromBytes(payload);
-				record = Record.stringRecord(timestamp, value);
-			}
-			case "boolean[]" -> {
-				boolean[] value = new boolean[payload.length];
-				for (int i = 0; i < payload.length; ++i) {
-					if (payload[i] < 0 || payload[i] > 1) {
-						System.out.println("Got invalid payload for boolean array entry " + entry.getId() + ": " + Arrays.toString(payload));
-						return;
-					}
-					value[i] = payload[i] == 1;
-				}
-				record = Record.booleanArrayRecord(timestamp, value);
-			}
-			case "int64[]" -> {
-				if (payload.length % 8 != 0) {
-					logWarning("Got invalid payload for int64[] entry " + entry.getId() + " of size " + payload.length + "! (" + Arrays.toString(payload) + ")");
-					return;
-				}
-				long[] value = new long[payload.length / 8];
-				for (int i = 0; i < value.length; ++i) {
-					value[i] = Util.longFromBytes(payload, 8 * i, 8);
-				}
-				record = Record.int64ArrayRecord(timestamp, value);
-			}
-			case "float[]" -> {
-				if (payload.length % 4 != 0) {
-					logWarning("Got invalid payload for float[] entry " + entry.getId() + " of size " + payload.length + "! (" + Arrays.toString(payload) + ")");
-					return;
-				}
-				float[] value = new float[payload.length / 4];
-				for (int i = 0; i < value.length; ++i) {
-					value[i] = Float.intBitsToFloat(Util.intFromBytes(payload, 4 * i, 4));
-				}
-				record = Record.floatArrayRecord(timestamp, value);
-			}
-			case "double[]" -> {
-				if (payload.length % 8 != 0) {
-					logWarning("Got invalid payload for double[] entry " + entry.getId() + " of size " + payload.length + "! (" + Arrays.toString(payload) + ")");
-					return;
-				}
-				double[] value = new double[payload.length / 8];
-				for (int i = 0; i < value.length; ++i) {
-					value[i] = Double.longBitsToDouble(Util.longFromBytes(payload, 8 * i, 8));
-				}
-				record = Record.doubleArrayRecord(timestamp, value);
-			}
-			case "string[]" -> {
-				int arrayLength = Util.intFromBytes(payload, 0, 4);
-				String[] value = new String[arrayLength];
-				int payloadIndex = 4;
-				for (int i = 0; i < value.length; ++i) {
-					int stringLength = Util.intFromBytes(payload, payloadIndex, 4);
-					payloadIndex += 4;
-					value[i] = Util.utf8StringFromBytes(payload, payloadIndex, stringLength);
-					payloadIndex += stringLength;
-				}
-				if (payloadIndex != payload.length) {
-					logWarning("Warning: string array did not consume last " + (payload.length - payloadIndex) + " bytes of the payload");
-				}
-				record = Record.stringArrayRecord(timestamp, value);
-			}
-			default -> {
-				record = Record.unknownRecord(timestamp, payload);
-			}
+		decodeValue(entry, timestamp, payloadSupplier.get());
+		logDebug("Done with log value");
+	}
+
+	@Override
+	public void logValue(long entryId, long timestamp, long payloadOffset, int payloadSize, Supplier<byte[]> payloadSupplier) {
+		if (lazyPayloads == null) {
+			logValue(entryId, timestamp, payloadSupplier);
+			return;
 		}
-		entry.addRecord(timestamp, record);
+		registerStructSchema(entryId, payloadSupplier);
+		var entry = getValueEntry(entryId, timestamp);
+		if (entry == null) {
+			return;
+		}
+		// The payload gets skipped and is decoded later if it's ever needed
+		addOffset(entry, timestamp, payloadOffset, payloadSize, payloadSupplier);
 		logDebug("Done with log value");
 	}
+
+	// Registers the schema in a value of a struct schema entry, whether or not the entry is loaded, which only costs a
+	// lookup for logs that have any. Decoding schema entries doesn't register them, so this has to be called in the
+	// order the values were logged.
+	void registerStructSchema(long entryId, Supplier<byte[]> payloadSupplier) {
+		if (idToStructSchemaName.isEmpty()) {
+			return;
+		}
+		String name = idToStructSchemaName.get(entryId);
+		if (name == null) {
+			return;
+		}
+		try {
+			structSchemas.register(name, Util.utf8StringFromBytes(payloadSupplier.get()));
+		} catch (IllegalArgumentException e) {
+			logWarning("Warning: could not parse struct schema of entry " + entryId + ": " + e.getMessage());
+		}
+	}
+
+	// Adds decoded values to the entry they're for; it holds no state, so chunks can share it while loading in parallel
+	private class EntrySink implements PayloadSink<Entry> {
+		@Override
+		public void rawValue(Entry entry, long timestamp, byte[] payload) {
+			entry.addBytes(timestamp, Record.Type.RAW, payload);
+		}
+
+		@Override
+		public void booleanValue(Entry entry, long timestamp, boolean value) {
+			entry.addBoolean(timestamp, value);
+		}
+
+		@Override
+		public void int64Value(Entry entry, long timestamp, long value) {
+			entry.addInt64(timestamp, value);
+		}
+
+		@Override
+		public void floatValue(Entry entry, long timestamp, float value) {
+			entry.addFloat(timestamp, value);
+		}
+
+		@Override
+		public void doubleValue(Entry entry, long timestamp, double value) {
+			entry.addDouble(timestamp, value);
+		}
+
+		@Override
+		public void stringValue(Entry entry, long timestamp, byte[] payload) {
+			entry.addBytes(timestamp, Record.Type.STRING, payload);
+		}
+
+		@Override
+		public void booleanArrayValue(Entry entry, long timestamp, byte[] payload) {
+			entry.addBytes(timestamp, Record.Type.BOOLEAN_ARRAY, payload);
+		}
+
+		@Override
+		public void int64ArrayValue(Entry entry, long timestamp, byte[] payload) {
+			entry.addInt64Array(timestamp, Util.longsFromBytes(payload));
+		}
+
+		@Override
+		public void floatArrayValue(Entry entry, long timestamp, byte[] payload) {
+			entry.addFloatArray(timestamp, Util.floatsFromBytes(payload));
+		}
+
+		@Override
+		public void doubleArrayValue(Entry entry, long timestamp, byte[] payload) {
+			entry.addDoubleArray(timestamp, Util.doublesFromBytes(payload));
+		}
+
+		@Override
+		public void stringArrayValue(Entry entry, long timestamp, byte[] payload) {
+			// Strings are only decoded when the record is requested
+			entry.addBytes(timestamp, Record.Type.STRING_ARRAY, payload);
+		}
+
+		@Override
+		public void structValue(Entry entry, long timestamp, byte[] payload) {
+			entry.addStruct(timestamp, payload, this);
+		}
+
+		@Override
+		public void unknownValue(Entry entry, long timestamp, byte[] payload) {
+			entry.addBytes(timestamp, Record.Type.UNKNOWN, payload);
+		}
+
+		@Override
+		public void invalid(Entry entry, long timestamp, String message) {
+			logWarning(message);
+		}
+
+		@Override
+		public void warn(Entry entry, long timestamp, String message) {
+			logWarning(message);
+		}
+	}
+
+	// Leaves out payloads that decoding would reject, so lazy entries hold the same records as eagerly loaded ones.
+	// Only payloads of types whose content can be invalid get read, which are small ones like booleans.
+	void addOffset(Entry entry, long timestamp, long payloadOffset, int payloadSize, Supplier<byte[]> payloadSupplier) {
+		var decoder = entry.getDecoder();
+		if (!decoder.isValidSize(payloadSize)) {
+			logWarning("Got invalid payload for " + entry.getType() + " entry " + entry.getId() + " of size " + payloadSize + "!");
+			return;
+		}
+		if (decoder.canHaveInvalidContent() && !decoder.isValid(payloadSupplier.get())) {
+			logWarning("Got invalid payload for " + entry.getType() + " entry " + entry.getId() + "!");
+			return;
+		}
+		entry.addOffset(timestamp, payloadOffset, payloadSize);
+	}
+
+	void decodeValue(Entry entry, long timestamp, byte[] payload) {
+		entry.getDecoder().decode(entry.getId(), payload, entrySink, entry, timestamp);
+	}
 }
@@ -0,0 +1,115 @@
+package wpilogviewer.loading;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import wpilogviewer.LogFingerprint;
+import wpilogviewer.StructSchemas;
+
+// Sidecar file next to a log holding its decoded entries, so the log doesn't have to be parsed again
+class LogCache {
+	private static final String SUFFIX = ".wlvcache";
+	private static final byte[] MAGIC = "WLVCACHE".getBytes(StandardCharsets.US_ASCII);
+	// Bump whenever the layout of the file or of any column changes, or which records get loaded
+	private static final int VERSION = 6;
+
+	private final Path logPath;
+	private final Path cachePath;
+
+	public LogCache(Path logPath) {
+		this.logPath = logPath;
+		this.cachePath = logPath.resolveSibling(logPath.getFileName() + SUFFIX);
+	}
+
+	private void writeKey(CacheOutput output, LogFingerprint fingerprint) throws IOException {
+		output.writeLong(fingerprint.getSize());
+		output.writeLong(fingerprint.getLastModified());
+		output.writeLong(fingerprint.getHeaderHash());
+	}
+
+	private boolean keyMatches(CacheInput input, LogFingerprint fingerprint) throws IOException {
+		var cachedFingerprint = new LogFingerprint(input.readLong(), input.readLong(), input.readLong());
+		return cachedFingerprint.equals(fingerprint);
+	}
+
+	// Fills idToStartToEntry and returns true if there is a cache of the log with the fingerprint, otherwise leaves it
+	// alone
+	public boolean read(Map<Long, NavigableMap<Long, Entry>> idToStartToEntry, StructSchemas structSchemas, LogFingerprint fingerprint) throws IOException {
+		if (!Files.isRegularFile(cachePath)) {
+			return false;
+		}
+		try (var channel = FileChannel.open(cachePath, StandardOpenOption.READ)) {
+			var input = new CacheInput(channel);
+			for (byte magicByte : MAGIC) {
+				if (input.readByte() != (magicByte & 0xFF)) {
+					return false;
+				}
+			}
+			if (input.readInt() != VERSION || !keyMatches(input, fingerprint)) {
+				return false;
+			}
+			// Only touch the real map once the whole file turned out to be readable
+			Map<Long, NavigableMap<Long, Entry>> readIdToStartToEntry = new HashMap<>();
+			int entryCount = input.readInt();
+			for (int i = 0; i < entryCount; ++i) {
+				var entry = Entry.read(input, structSchemas);
+				readIdToStartToEntry.computeIfAbsent(entry.getId(), key -> new TreeMap<>()).put(entry.getStartTimestamp(), entry);
+			}
+			idToStartToEntry.putAll(readIdToStartToEntry);
+			return true;
+		} catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+			// Truncated or corrupted
+			return false;
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	// The entries have to be loaded from just the part of the log the fingerprint was taken of, so a log that grew since
+	// doesn't get a cache that claims to hold all of it
+	public void write(Map<Long, NavigableMap<Long, Entry>> idToStartToEntry, LogFingerprint fingerprint) throws IOException {
+		int entryCount = 0;
+		for (var startToEntry : idToStartToEntry.values()) {
+			for (var entry : startToEntry.values()) {
+				if (entry.isLazy()) {
+					return;
+				}
+				++entryCount;
+			}
+		}
+		// Write to a temporary file first so readers never see a partially written cache
+		var tempPath = cachePath.resolveSibling(cachePath.getFileName() + ".tmp");
+		try {
+			try (var channel = FileChannel.open(tempPath, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+					var output = new CacheOutput(channel)) {
+				output.writeBytes(MAGIC, MAGIC.length);
+				output.writeInt(VERSION);
+				writeKey(output, fingerprint);
+				output.writeInt(entryCount);
+				for (var startToEntry : idToStartToEntry.values()) {
+					for (var entry : startToEntry.values()) {
+						entry.write(output);
+					}
+				}
+			}
+			Files.move(tempPath, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | RuntimeException e) {
+			try {
+				Files.deleteIfExists(tempPath);
+			} catch (IOException deleteException) {
+				e.addSuppressed(deleteException);
+			}
+			throw e;
+		}
+	}
+}
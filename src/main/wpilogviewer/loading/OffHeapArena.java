@@ -0,0 +1,35 @@
+package wpilogviewer.loading;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Hands out direct buffers for entries that get moved off the heap, so the garbage collector neither copies nor
+// scans their records. Java 17 can't free a direct buffer on demand, so the memory goes back once the entries using
+// it are unreachable; after close the arena hands out nothing more.
+class OffHeapArena implements Closeable {
+	private long allocatedBytes = 0;
+	private boolean closed = false;
+
+	// Returns null if bytes is more than a single buffer can hold, in which case the values have to stay on the heap
+	ByteBuffer allocate(long bytes) {
+		if (closed) {
+			throw new IllegalStateException("Cannot allocate from a closed arena");
+		}
+		if (bytes > Integer.MAX_VALUE) {
+			return null;
+		}
+		allocatedBytes += bytes;
+		return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+	}
+
+	long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		allocatedBytes = 0;
+	}
+}
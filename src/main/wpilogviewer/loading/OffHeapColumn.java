@@ -0,0 +1,76 @@
+package wpilogviewer.loading;
+
+import java.nio.ByteBuffer;
+
+// Values of a scalar column copied to a direct buffer, laid out like the column kept them: booleans as bits in
+// longs and the other types one after another. The values can't change anymore.
+class OffHeapColumn extends Column {
+	private final Record.Type type;
+	private final ByteBuffer buffer;
+
+	OffHeapColumn(Record.Type type, ByteBuffer buffer) {
+		this.type = type;
+		this.buffer = buffer;
+	}
+
+	@Override
+	Record.Type getType() {
+		return type;
+	}
+
+	private boolean getBoolean(int index) {
+		return (buffer.getLong((index >>> 6) << 3) & (1L << index)) != 0;
+	}
+
+	@Override
+	double getNumber(int index) {
+		return switch (type) {
+			case BOOLEAN -> getBoolean(index) ? 1 : 0;
+			case INT64 -> buffer.getLong(index << 3);
+			case FLOAT -> buffer.getFloat(index << 2);
+			case DOUBLE -> buffer.getDouble(index << 3);
+			default -> super.getNumber(index);
+		};
+	}
+
+	@Override
+	Record getRecord(int index, long timestamp) {
+		return switch (type) {
+			case BOOLEAN -> Record.booleanRecord(timestamp, getBoolean(index));
+			case INT64 -> Record.int64Record(timestamp, buffer.getLong(index << 3));
+			case FLOAT -> Record.floatRecord(timestamp, buffer.getFloat(index << 2));
+			case DOUBLE -> Record.doubleRecord(timestamp, buffer.getDouble(index << 3));
+			default -> throw new IllegalStateException(type + " values aren't kept off the heap");
+		};
+	}
+
+	@Override
+	void insert(int index, int size) {
+		throw new IllegalStateException("Values that were moved off the heap can't change");
+	}
+
+	@Override
+	void copy(Column source, int sourceIndex, int index) {
+		throw new IllegalStateException("Values that were moved off the heap can't change");
+	}
+
+	@Override
+	void trimToSize(int size) {
+	}
+
+	@Override
+	void write(CacheOutput output, int size) {
+		throw new UnsupportedOperationException("Entries that were moved off the heap can't be cached");
+	}
+
+	@Override
+	void read(CacheInput input, int size) {
+		throw new UnsupportedOperationException("Entries that were moved off the heap can't be cached");
+	}
+
+	// Only the buffer object is on the heap
+	@Override
+	long getMemoryUsage() {
+		return 64;
+	}
+}
@@ -0,0 +1,133 @@
+package wpilogviewer.loading;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+// Only remembers where each payload is in the log; values are decoded through LazyPayloads
+class OffsetColumn extends Column {
+	private final Entry entry;
+	private final LazyPayloads payloads;
+	private final Record.Type type;
+	private long[] offsets = new long[INITIAL_CAPACITY];
+	private int[] sizes = new int[INITIAL_CAPACITY];
+	// Replace offsets and sizes once the column is moved off the heap
+	private LongBuffer offHeapOffsets = null;
+	private IntBuffer offHeapSizes = null;
+
+	OffsetColumn(Entry entry, LazyPayloads payloads) {
+		this.entry = entry;
+		this.payloads = payloads;
+		this.type = recordTypeFor(entry.getDecoder().getValueType());
+	}
+
+	@Override
+	Record.Type getType() {
+		return type;
+	}
+
+	long getOffset(int index) {
+		return offHeapOffsets != null ? offHeapOffsets.get(index) : offsets[index];
+	}
+
+	int getSize(int index) {
+		return offHeapSizes != null ? offHeapSizes.get(index) : sizes[index];
+	}
+
+	private void checkOnHeap() {
+		if (offHeapOffsets != null) {
+			throw new IllegalStateException("Payload locations that were moved off the heap can't change");
+		}
+	}
+
+	void set(int index, long offset, int size) {
+		checkOnHeap();
+		offsets[index] = offset;
+		sizes[index] = size;
+	}
+
+	@Override
+	void insert(int index, int size) {
+		checkOnHeap();
+		if (size == offsets.length) {
+			int capacity = grownCapacity(offsets.length, size + 1);
+			offsets = Arrays.copyOf(offsets, capacity);
+			sizes = Arrays.copyOf(sizes, capacity);
+		}
+		System.arraycopy(offsets, index, offsets, index + 1, size - index);
+		System.arraycopy(sizes, index, sizes, index + 1, size - index);
+	}
+
+	@Override
+	void copy(Column source, int sourceIndex, int index) {
+		var sourceColumn = (OffsetColumn) source;
+		set(index, sourceColumn.getOffset(sourceIndex), sourceColumn.getSize(sourceIndex));
+	}
+
+	@Override
+	Record getRecord(int index, long timestamp) {
+		return payloads.getRecord(entry, this, index);
+	}
+
+	// Decodes the record, so this is only as fast as LazyPayloads
+	@Override
+	double getNumber(int index) {
+		var record = getRecord(index, entry.getTimestamp(index));
+		if (record == null) {
+			return Double.NaN;
+		}
+		return switch (type) {
+			case BOOLEAN -> record.booleanValue() ? 1 : 0;
+			case INT64 -> record.int64Value();
+			case FLOAT -> record.floatValue();
+			case DOUBLE -> record.doubleValue();
+			default -> super.getNumber(index);
+		};
+	}
+
+	@Override
+	void trimToSize(int size) {
+		if (offHeapOffsets != null) {
+			return;
+		}
+		offsets = Arrays.copyOf(offsets, size);
+		sizes = Arrays.copyOf(sizes, size);
+	}
+
+	// Stays the same column, since LazyPayloads looks records up through it
+	@Override
+	Column moveOffHeap(OffHeapArena arena, int size) {
+		if (offHeapOffsets != null) {
+			return this;
+		}
+		var offsetBuffer = arena.allocate(8L * size);
+		var sizeBuffer = arena.allocate(4L * size);
+		if (offsetBuffer == null || sizeBuffer == null) {
+			return this;
+		}
+		offHeapOffsets = offsetBuffer.asLongBuffer().put(offsets, 0, size);
+		offHeapSizes = sizeBuffer.asIntBuffer().put(sizes, 0, size);
+		offsets = null;
+		sizes = null;
+		return this;
+	}
+
+	@Override
+	void write(CacheOutput output, int size) {
+		// Only decoded values are worth caching
+		throw new UnsupportedOperationException("Lazily loaded entries can't be cached");
+	}
+
+	@Override
+	void read(CacheInput input, int size) {
+		throw new UnsupportedOperationException("Lazily loaded entries can't be cached");
+	}
+
+	@Override
+	long getMemoryUsage() {
+		if (offHeapOffsets != null) {
+			return 96;
+		}
+		return 32 + 8L * offsets.length + 4L * sizes.length;
+	}
+}
@@ -0,0 +1,293 @@
+package wpilogviewer.loading;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import wpilogviewer.LogPhaseEvent;
+import wpilogviewer.Logger;
+import wpilogviewer.ParseStats;
+import wpilogviewer.WpiLogProcessor;
+
+// Loads a log file on several threads. A pass over just the record headers applies every control record and hands
+// each chunk to a thread as soon as it gets past the chunk's end, so chunks are decoded while the pass goes on.
+// Chunks decode into chunk-local copies of the entries, which are merged into the loaded entries in file order once
+// the pass is done, and are dropped as soon as they're merged.
+class ParallelLoader {
+	private static final long MIN_CHUNK_SIZE = 1 << 22;
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	// Applies control records, registers struct schemas and starts decoding a chunk every chunkSize bytes
+	private class ControlPass implements Logger {
+		private final long chunkSize;
+		private final ForkJoinPool pool;
+		private final List<Future<ChunkLogger>> chunks = new ArrayList<>();
+		private long lastBoundary;
+		private final BitSet skippedIds = new BitSet();
+		// What the chunk being scanned starts out with, and the entries its start records made
+		private ChunkLogger chunkLogger = new ChunkLogger(new HashMap<>(), new HashMap<>(), new HashSet<>());
+		private BitSet chunkSkippedIds = new BitSet();
+
+		public ControlPass(long chunkSize, ForkJoinPool pool, long firstRecordOffset) {
+			this.chunkSize = chunkSize;
+			this.pool = pool;
+			this.lastBoundary = firstRecordOffset;
+		}
+
+		@Override
+		public void logStart(long entryId, String entryName, String entryType, String entryMetadata, long timestamp) {
+			logger.logStart(entryId, entryName, entryType, entryMetadata, timestamp);
+			var entry = logger.getStartedEntry();
+			chunkLogger.startedEntries.add(entry);
+			if (entryId < WpiLogProcessor.MAX_SKIPPABLE_ID) {
+				skippedIds.set((int) entryId, entry == null);
+			}
+		}
+
+		@Override
+		public void logFinish(long entryId, long timestamp) {
+			logger.logFinish(entryId, timestamp);
+			if (entryId < WpiLogProcessor.MAX_SKIPPABLE_ID) {
+				skippedIds.clear((int) entryId);
+			}
+		}
+
+		@Override
+		public void logSetMetadata(long entryId, long timestamp, String newMetadata) {
+			logger.logSetMetadata(entryId, timestamp, newMetadata);
+		}
+
+		@Override
+		public boolean wantsValues(long entryId) {
+			return logger.wantsValues(entryId);
+		}
+
+		@Override
+		public void logValue(long entryId, long timestamp, Supplier<byte[]> payloadSupplier) {
+		}
+
+		@Override
+		public void logValue(long entryId, long timestamp, long payloadOffset, int payloadSize, Supplier<byte[]> payloadSupplier) {
+			// A chunk only starts once this pass is past it, so every schema its values need is known by then
+			logger.registerStructSchema(entryId, payloadSupplier);
+			long recordEnd = payloadOffset + payloadSize;
+			if (recordEnd - lastBoundary >= chunkSize) {
+				submitChunk(recordEnd);
+			}
+		}
+
+		void submitChunk(long end) {
+			long start = lastBoundary;
+			var chunkLogger = this.chunkLogger;
+			var skipped = chunkSkippedIds;
+			chunks.add(pool.submit(() -> {
+				var event = new LogPhaseEvent("chunk");
+				WpiLogProcessor.process(path, stats == null ? chunkLogger : stats.wrap(chunkLogger, false, true), start, end, skipped);
+				event.end(path, end - start);
+				return chunkLogger;
+			}));
+			// The next chunk gets its own copy of the entry maps and of when the entries ended, since this pass keeps
+			// changing them
+			Map<Long, NavigableMap<Long, Entry>> idToStartToEntry = new HashMap<>();
+			Map<Entry, Long> entryToEndTimestamp = new HashMap<>();
+			for (var mapEntry : logger.getIdToStartToEntry().entrySet()) {
+				idToStartToEntry.put(mapEntry.getKey(), new TreeMap<>(mapEntry.getValue()));
+				for (var entry : mapEntry.getValue().values()) {
+					if (entry.hasEnded()) {
+						entryToEndTimestamp.put(entry, entry.getEndTimestamp());
+					}
+				}
+			}
+			this.chunkLogger = new ChunkLogger(idToStartToEntry, entryToEndTimestamp, new HashSet<>(logger.getIgnoredIds()));
+			chunkSkippedIds = (BitSet) skippedIds.clone();
+			lastBoundary = end;
+		}
+	}
+
+	// Decodes the values of one chunk into chunk-local copies of their entries. Control records were already applied
+	// by the ControlPass, so this only replays the starts and finishes in the chunk on its own copy of the entry maps,
+	// to look values up the way LoaderLogger would have when it got to them. The ControlPass keeps changing the
+	// entries themselves, so this never reads when they ended from them.
+	private class ChunkLogger implements Logger {
+		private final Map<Long, NavigableMap<Long, Entry>> idToStartToEntry;
+		// End timestamps of the entries that ended before this chunk or in it so far
+		private final Map<Entry, Long> entryToEndTimestamp;
+		private final Set<Long> ignoredIds;
+		// Entry each start record in the chunk made, or null if the filter rejected it
+		private final List<Entry> startedEntries = new ArrayList<>();
+		private int startIndex = 0;
+		private final Map<Long, Boolean> idToWantsValues = new HashMap<>();
+		private final Map<Entry, Entry> entryToChunkEntry = new LinkedHashMap<>();
+
+		public ChunkLogger(Map<Long, NavigableMap<Long, Entry>> idToStartToEntry, Map<Entry, Long> entryToEndTimestamp, Set<Long> ignoredIds) {
+			this.idToStartToEntry = idToStartToEntry;
+			this.entryToEndTimestamp = entryToEndTimestamp;
+			this.ignoredIds = ignoredIds;
+		}
+
+		// Like LoaderLogger.getEntry
+		private Entry getEntry(long id, long timestamp) {
+			var startToEntry = idToStartToEntry.get(id);
+			var floorEntry = startToEntry == null ? null : startToEntry.floorEntry(timestamp);
+			if (floorEntry == null) {
+				return null;
+			}
+			Long endTimestamp = entryToEndTimestamp.get(floorEntry.getValue());
+			if (endTimestamp != null && Long.compareUnsigned(endTimestamp, timestamp) < 0) {
+				return null;
+			}
+			return floorEntry.getValue();
+		}
+
+		@Override
+		public void logStart(long entryId, String entryName, String entryType, String entryMetadata, long timestamp) {
+			var entry = startedEntries.get(startIndex++);
+			if (entry == null) {
+				logFinish(entryId, timestamp);
+				ignoredIds.add(entryId);
+			} else {
+				var startToEntry = idToStartToEntry.computeIfAbsent(entryId, key -> new TreeMap<>());
+				var floorEntry = startToEntry.floorEntry(timestamp);
+				if (floorEntry != null) {
+					entryToEndTimestamp.putIfAbsent(floorEntry.getValue(), timestamp);
+				}
+				startToEntry.put(timestamp, entry);
+			}
+			idToWantsValues.put(entryId, entry != null);
+		}
+
+		@Override
+		public void logFinish(long entryId, long timestamp) {
+			var entry = getEntry(entryId, timestamp);
+			if (entry != null) {
+				entryToEndTimestamp.put(entry, timestamp);
+			}
+		}
+
+		@Override
+		public void logSetMetadata(long entryId, long timestamp, String newMetadata) {
+		}
+
+		@Override
+		public boolean wantsValues(long entryId) {
+			return idToWantsValues.getOrDefault(entryId, true);
+		}
+
+		@Override
+		public void logValue(long entryId, long timestamp, Supplier<byte[]> payloadSupplier) {
+		}
+
+		@Override
+		public void logValue(long entryId, long timestamp, long payloadOffset, int payloadSize, Supplier<byte[]> payloadSupplier) {
+			var entry = getEntry(entryId, timestamp);
+			if (entry == null) {
+				if (ignoredIds.contains(entryId)) {
+					return;
+				}
+				System.err.println("Cannot log to entry with non-existent ID " + entryId + " at timestamp " + Long.toUnsignedString(timestamp) + "!");
+				return;
+			}
+			var chunkEntry = entryToChunkEntry.computeIfAbsent(entry, key -> new Entry(key.getStartTimestamp(), key.getId(), key.getName(), key.getType(), null, key.getDecoder(), lazyPayloads));
+			if (lazyPayloads != null) {
+				logger.addOffset(chunkEntry, timestamp, payloadOffset, payloadSize, payloadSupplier);
+			} else {
+				logger.decodeValue(chunkEntry, timestamp, payloadSupplier.get());
+			}
+		}
+	}
+
+	private final Path path;
+	// Where loading stops, even if the log grew past it
+	private final long endOffset;
+	private final LoaderLogger logger;
+	private final LazyPayloads lazyPayloads;
+	private final int parallelism;
+	// Non-null when records should be counted; the control pass counts control records, and the chunks values
+	private final ParseStats stats;
+
+	public ParallelLoader(Path path, long endOffset, LoaderLogger logger, LazyPayloads lazyPayloads, int parallelism, ParseStats stats) {
+		this.path = path;
+		this.endOffset = endOffset;
+		this.logger = logger;
+		this.lazyPayloads = lazyPayloads;
+		this.parallelism = parallelism;
+		this.stats = stats;
+	}
+
+	public void load() throws IOException {
+		long firstRecordOffset = WpiLogProcessor.findFirstRecordOffset(path);
+		if (firstRecordOffset < 0) {
+			// Let the sequential path report what's wrong with the header
+			WpiLogProcessor.process(path, stats == null ? logger : stats.wrap(logger), endOffset);
+			return;
+		}
+		long size = Math.min(endOffset, Files.size(path));
+		long chunkSize = Math.max(MIN_CHUNK_SIZE, size / (CHUNKS_PER_THREAD * parallelism));
+		var pool = new ForkJoinPool(parallelism);
+		try {
+			var controlPass = new ControlPass(chunkSize, pool, firstRecordOffset);
+			var controlPassEvent = new LogPhaseEvent("control pass");
+			WpiLogProcessor.process(path, stats == null ? controlPass : stats.wrap(controlPass, true, false), size);
+			controlPass.submitChunk(size);
+			controlPassEvent.end(path, size);
+
+			// Chunks are in file order, so merging them in this order keeps each entry's records in file order
+			var mergeEvent = new LogPhaseEvent("merge");
+			var chunks = controlPass.chunks;
+			for (int i = 0; i < chunks.size(); ++i) {
+				var mergeTasks = new ArrayList<Callable<Entry>>();
+				for (var mapEntry : getAll(List.of(chunks.get(i))).get(0).entryToChunkEntry.entrySet()) {
+					mergeTasks.add(() -> {
+						var entry = mapEntry.getKey();
+						entry.addAll(mapEntry.getValue());
+						return entry;
+					});
+				}
+				getAll(pool.invokeAll(mergeTasks));
+				// Let the chunk's copies of the entries go before merging the next one
+				chunks.set(i, null);
+			}
+			mergeEvent.end(path, size);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static <T> List<T> getAll(List<Future<T>> futures) throws IOException {
+		var results = new ArrayList<T>(futures.size());
+		for (var future : futures) {
+			try {
+				results.add(future.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while loading", e);
+			} catch (ExecutionException e) {
+				var cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				} else if (cause instanceof UncheckedIOException) {
+					throw ((UncheckedIOException) cause).getCause();
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				throw new RuntimeException(cause);
+			}
+		}
+		return results;
+	}
+}
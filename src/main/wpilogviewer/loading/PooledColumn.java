@@ -0,0 +1,79 @@
+package wpilogviewer.loading;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// Variable-length values live back to back in a pool owned by the subclass
+abstract class PooledColumn extends Column {
+	private int[] starts = new int[INITIAL_CAPACITY];
+	private int[] lengths = new int[INITIAL_CAPACITY];
+	protected int poolSize = 0;
+
+	int start(int index) {
+		return starts[index];
+	}
+
+	int length(int index) {
+		return lengths[index];
+	}
+
+	// Reserves length pool slots for the value at index and returns where they start
+	int allocate(int index, int length) {
+		ensurePoolCapacity(poolSize + length);
+		int start = poolSize;
+		starts[index] = start;
+		lengths[index] = length;
+		poolSize += length;
+		return start;
+	}
+
+	abstract void ensurePoolCapacity(int minCapacity);
+
+	abstract void trimPool();
+
+	abstract long getPoolMemoryUsage();
+
+	abstract void writePool(CacheOutput output) throws IOException;
+
+	// Replaces the pool with poolSize values written by writePool
+	abstract void readPool(CacheInput input);
+
+	@Override
+	void insert(int index, int size) {
+		if (size == starts.length) {
+			int capacity = grownCapacity(starts.length, size + 1);
+			starts = Arrays.copyOf(starts, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+		}
+		System.arraycopy(starts, index, starts, index + 1, size - index);
+		System.arraycopy(lengths, index, lengths, index + 1, size - index);
+	}
+
+	@Override
+	void trimToSize(int size) {
+		starts = Arrays.copyOf(starts, size);
+		lengths = Arrays.copyOf(lengths, size);
+		trimPool();
+	}
+
+	@Override
+	void write(CacheOutput output, int size) throws IOException {
+		output.writeInts(starts, size);
+		output.writeInts(lengths, size);
+		output.writeInt(poolSize);
+		writePool(output);
+	}
+
+	@Override
+	void read(CacheInput input, int size) {
+		starts = input.readInts(size);
+		lengths = input.readInts(size);
+		poolSize = input.readInt();
+		readPool(input);
+	}
+
+	@Override
+	long getMemoryUsage() {
+		return 32 + 4L * starts.length + 4L * lengths.length + getPoolMemoryUsage();
+	}
+}
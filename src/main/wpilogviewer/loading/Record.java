@@ -15,55 +15,61 @@ public class Record {
 		FLOAT_ARRAY,
 		DOUBLE_ARRAY,
 		STRING_ARRAY,
+		STRUCT,
 		UNKNOWN;
 	}
 
 	public static Record rawRecord(long timestamp, byte[] value) {
-		return new Record(timestamp, Type.RAW, value, false, 0, 0f, 0d, null, null, null, null, null, null);
+		return new Record(timestamp, Type.RAW, value, false, 0, 0f, 0d, null, null, null, null, null, null, null);
 	}
 
 	public static Record booleanRecord(long timestamp, boolean value) {
-		return new Record(timestamp, Type.BOOLEAN, null, value, 0, 0f, 0d, null, null, null, null, null, null);
+		return new Record(timestamp, Type.BOOLEAN, null, value, 0, 0f, 0d, null, null, null, null, null, null, null);
 	}
 
 	public static Record int64Record(long timestamp, long value) {
-		return new Record(timestamp, Type.INT64, null, false, value, 0f, 0d, null, null, null, null, null, null);
+		return new Record(timestamp, Type.INT64, null, false, value, 0f, 0d, null, null, null, null, null, null, null);
 	}
 
 	public static Record floatRecord(long timestamp, float value) {
-		return new Record(timestamp, Type.FLOAT, null, false, 0, value, 0d, null, null, null, null, null, null);
+		return new Record(timestamp, Type.FLOAT, null, false, 0, value, 0d, null, null, null, null, null, null, null);
 	}
 
 	public static Record doubleRecord(long timestamp, double value) {
-		return new Record(timestamp, Type.DOUBLE, null, false, 0, 0f, value, null, null, null, null, null, null);
+		return new Record(timestamp, Type.DOUBLE, null, false, 0, 0f, value, null, null, null, null, null, null, null);
 	}
 
 	public static Record stringRecord(long timestamp, String value) {
-		return new Record(timestamp, Type.STRING, null, false, 0, 0f, 0d, value, null, null, null, null, null);
+		return new Record(timestamp, Type.STRING, null, false, 0, 0f, 0d, value, null, null, null, null, null, null);
 	}
 
 	public static Record booleanArrayRecord(long timestamp, boolean[] value) {
-		return new Record(timestamp, Type.BOOLEAN_ARRAY, null, false, 0, 0f, 0d, null, value, null, null, null, null);
+		return new Record(timestamp, Type.BOOLEAN_ARRAY, null, false, 0, 0f, 0d, null, value, null, null, null, null, null);
 	}
 
 	public static Record int64ArrayRecord(long timestamp, long[] value) {
-		return new Record(timestamp, Type.INT64_ARRAY, null, false, 0, 0f, 0d, null, null, value, null, null, null);
+		return new Record(timestamp, Type.INT64_ARRAY, null, false, 0, 0f, 0d, null, null, value, null, null, null, null);
 	}
 
 	public static Record floatArrayRecord(long timestamp, float[] value) {
-		return new Record(timestamp, Type.FLOAT_ARRAY, null, false, 0, 0f, 0d, null, null, null, value, null, null);
+		return new Record(timestamp, Type.FLOAT_ARRAY, null, false, 0, 0f, 0d, null, null, null, value, null, null, null);
 	}
 
 	public static Record doubleArrayRecord(long timestamp, double[] value) {
-		return new Record(timestamp, Type.DOUBLE_ARRAY, null, false, 0, 0f, 0d, null, null, null, null, value, null);
+		return new Record(timestamp, Type.DOUBLE_ARRAY, null, false, 0, 0f, 0d, null, null, null, null, value, null, null);
 	}
 
 	public static Record stringArrayRecord(long timestamp, String[] value) {
-		return new Record(timestamp, Type.STRING_ARRAY, null, false, 0, 0f, 0d, null, null, null, null, null, value);
+		return new Record(timestamp, Type.STRING_ARRAY, null, false, 0, 0f, 0d, null, null, null, null, null, value, null);
+	}
+
+	// The records of the fields of a struct entry, in the order of Entry.getFields
+	public static Record structRecord(long timestamp, Record[] value) {
+		return new Record(timestamp, Type.STRUCT, null, false, 0, 0f, 0d, null, null, null, null, null, null, value);
 	}
 
 	public static Record unknownRecord(long timestamp, byte[] value) {
-		return new Record(timestamp, Type.UNKNOWN, value, false, 0, 0f, 0d, null, null, null, null, null, null);
+		return new Record(timestamp, Type.UNKNOWN, value, false, 0, 0f, 0d, null, null, null, null, null, null, null);
 	}
 
 	private final long timestamp;
@@ -79,13 +85,14 @@ public class Record {
 	private final float[] floatArrayValue;
 	private final double[] doubleArrayValue;
 	private final String[] stringArrayValue;
+	private final Record[] structValue;
 
 	private Record(
 			long timestamp, Type type, byte[] rawValue, boolean booleanValue,
 			long int64Value, float floatValue, double doubleValue, String stringValue,
 			boolean[] booleanArrayValue, long[] int64ArrayValue,
 			float[] floatArrayValue, double[] doubleArrayValue,
-			String[] stringArrayValue) {
+			String[] stringArrayValue, Record[] structValue) {
 		this.timestamp = timestamp;
 		this.type = type;
 		this.rawValue = rawValue;
@@ -99,6 +106,7 @@ public class Record {
 		this.floatArrayValue = floatArrayValue;
 		this.doubleArrayValue = doubleArrayValue;
 		this.stringArrayValue = stringArrayValue;
+		this.structValue = structValue;
 	}
 
 	public long getTimestamp() {
@@ -188,4 +196,9 @@ public class Record {
 		checkType(Type.STRING_ARRAY);
 		return stringArrayValue;
 	}
+
+	public Record[] structValue() {
+		checkType(Type.STRUCT);
+		return structValue;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package wpilogviewer.loading;
+
+// Numeric points of an entry, in timestamp order
+public class Series {
+	private final long[] timestamps;
+	private final double[] values;
+	private final int size;
+
+	Series(long[] timestamps, double[] values, int size) {
+		this.timestamps = timestamps;
+		this.values = values;
+		this.size = size;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getTimestamp(int index) {
+		return timestamps[index];
+	}
+
+	public double getValue(int index) {
+		return values[index];
+	}
+}
@@ -0,0 +1,51 @@
+package wpilogviewer.loading;
+
+// Holds no values, since each field of a struct entry keeps its own in an entry of its own with a record at every
+// index this one has; records are put together from those
+class StructColumn extends Column {
+	private final Entry entry;
+
+	StructColumn(Entry entry) {
+		this.entry = entry;
+	}
+
+	@Override
+	Record.Type getType() {
+		return Record.Type.STRUCT;
+	}
+
+	@Override
+	void insert(int index, int size) {
+	}
+
+	@Override
+	void copy(Column source, int sourceIndex, int index) {
+	}
+
+	@Override
+	Record getRecord(int index, long timestamp) {
+		var fields = entry.getFields();
+		var fieldRecords = new Record[fields.size()];
+		for (int i = 0; i < fieldRecords.length; ++i) {
+			fieldRecords[i] = fields.get(i).getRecordAt(index);
+		}
+		return Record.structRecord(timestamp, fieldRecords);
+	}
+
+	@Override
+	void trimToSize(int size) {
+	}
+
+	@Override
+	void write(CacheOutput output, int size) {
+	}
+
+	@Override
+	void read(CacheInput input, int size) {
+	}
+
+	@Override
+	long getMemoryUsage() {
+		return 16;
+	}
+}